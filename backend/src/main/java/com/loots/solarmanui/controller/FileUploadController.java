@@ -1,24 +1,40 @@
 package com.loots.solarmanui.controller;
 
+import com.loots.solarmanui.model.ImportLedgerEntry;
 import com.loots.solarmanui.model.SolarManRecord;
+import com.loots.solarmanui.model.StoredUpload;
 import com.loots.solarmanui.model.TshwaneRecord;
+import com.loots.solarmanui.model.UploadStoreStats;
+import com.loots.solarmanui.model.UploadedFile;
+import com.loots.solarmanui.service.ChunkedUploadService;
 import com.loots.solarmanui.service.ExcelProcessingService;
+import com.loots.solarmanui.service.ImportAdmission;
+import com.loots.solarmanui.service.ImportDiffService;
+import com.loots.solarmanui.service.ImportLedger;
+import com.loots.solarmanui.service.ParseResultCache;
+import com.loots.solarmanui.service.StagingService;
+import com.loots.solarmanui.service.UploadStore;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @RequestMapping("/api/upload")
@@ -28,168 +44,384 @@ public class FileUploadController {
     @Autowired
     private ExcelProcessingService excelProcessingService;
     
-    // Store file information temporarily
-    private static final Map<String, FileInfo> uploadedFiles = new ConcurrentHashMap<>();
-    private static final String TEMP_DIR = System.getProperty("java.io.tmpdir") + "/solarman-uploads/";
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private ParseResultCache parseResultCache;
+
+    @Autowired
+    private ImportLedger importLedger;
+
+    @Autowired
+    private ImportDiffService importDiffService;
+
+    @Autowired
+    private StagingService stagingService;
+
+    @Autowired
+    private ImportAdmission importAdmission;
+
+    // The response carries only the first rows; the import always reads the whole file
+    @Value("${solarman.upload.preview-rows:100}")
+    private int previewRows = 100;
     
-    static {
+    @PostMapping("/solarman")
+    public ResponseEntity<?> uploadSolarManFile(@RequestParam("file") MultipartFile file,
+                                                @RequestParam(value = "format", required = false) String format) {
+        if ("csv".equalsIgnoreCase(format)) {
+            if (file.isEmpty() || !excelProcessingService.validateCsvFileName(file.getOriginalFilename())) {
+                return ResponseEntity.badRequest().body("Invalid file format. Please upload a SolarMan CSV export.");
+            }
+            return storeAndProcess(file, "solarman");
+        }
+        if (format != null && !"xlsx".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().body("Unknown format: " + format);
+        }
+
+        // Validate file format
+        if (!excelProcessingService.validateFileFormat(file, "solarman")) {
+            return ResponseEntity.badRequest().body("Invalid file format. Please upload an Excel file.");
+        }
+
+        return storeAndProcess(file, "solarman");
+    }
+
+    @PostMapping("/tshwane")
+    public ResponseEntity<?> uploadTshwaneFile(@RequestParam("file") MultipartFile file) {
+        // Validate file format
+        if (!excelProcessingService.validateFileFormat(file, "tshwane")) {
+            return ResponseEntity.badRequest().body("Invalid file format. Please upload an Excel file.");
+        }
+
+        return storeAndProcess(file, "tshwane");
+    }
+
+    /**
+     * Raw-body upload: the request body is the workbook itself, so it is written
+     * to the upload store as it arrives without multipart spooling or a second copy.
+     */
+    @PostMapping(value = "/{fileType}/stream", consumes = {
+            MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/vnd.ms-excel"})
+    public ResponseEntity<?> uploadFileStream(@PathVariable String fileType,
+                                              @RequestParam("filename") String filename,
+                                              HttpServletRequest request) {
+        if (!"solarman".equals(fileType) && !"tshwane".equals(fileType)) {
+            return ResponseEntity.badRequest().body("Unknown file type: " + fileType);
+        }
+        if (!excelProcessingService.validateFileName(filename)) {
+            return ResponseEntity.badRequest().body("Invalid file format. Please upload an Excel file.");
+        }
+        if (request.getContentLengthLong() > uploadStore.getMaxFileSize()) {
+            return fileTooLarge();
+        }
+
+        StoredUpload stored;
+        try (InputStream in = request.getInputStream()) {
+            stored = uploadStore.store(in, filename);
+        } catch (MaxUploadSizeExceededException e) {
+            return fileTooLarge();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body("Error processing file: " + e.getMessage());
+        }
+
+        return processStoredUpload(stored, fileType);
+    }
+
+    // Chunked, resumable uploads: init -> PUT chunks at offsets -> complete
+
+    @PostMapping("/chunked")
+    public ResponseEntity<?> initChunkedUpload(@RequestBody Map<String, Object> request) {
+        String filename = (String) request.get("filename");
+        String fileType = (String) request.get("fileType");
+        Object totalSize = request.get("totalSize");
+
+        if (!"solarman".equals(fileType) && !"tshwane".equals(fileType)) {
+            return ResponseEntity.badRequest().body("Unknown file type: " + fileType);
+        }
+        if (!excelProcessingService.validateFileName(filename)) {
+            return ResponseEntity.badRequest().body("Invalid file format. Please upload an Excel file.");
+        }
+        if (!(totalSize instanceof Number)) {
+            return ResponseEntity.badRequest().body("Request must contain a numeric 'totalSize'");
+        }
+
         try {
-            Files.createDirectories(Paths.get(TEMP_DIR));
+            return ResponseEntity.ok(chunkedUploadService.init(filename, fileType, ((Number) totalSize).longValue()));
+        } catch (MaxUploadSizeExceededException e) {
+            return fileTooLarge();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (DataAccessResourceFailureException e) {
+            return chunkedUploadUnavailable();
+        } catch (IllegalStateException e) {
+            // Uploads in progress already reserve the whole upload quota
+            return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(e.getMessage());
         } catch (IOException e) {
-            System.err.println("Failed to create temp directory: " + e.getMessage());
+            return ResponseEntity.internalServerError().body("Error creating upload: " + e.getMessage());
         }
     }
-    
-    public static class FileInfo {
-        private final String filePath;
-        private final String fileType;
-        private final int totalRecords;
-        private final long timestamp;
-        
-        public FileInfo(String filePath, String fileType, int totalRecords) {
-            this.filePath = filePath;
-            this.fileType = fileType;
-            this.totalRecords = totalRecords;
-            this.timestamp = System.currentTimeMillis();
-        }
-        
-        public String getFilePath() { return filePath; }
-        public String getFileType() { return fileType; }
-        public int getTotalRecords() { return totalRecords; }
-        public long getTimestamp() { return timestamp; }
+
+    @PutMapping(value = "/chunked/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @RequestParam("offset") long offset,
+                                         HttpServletRequest request) {
+        try (InputStream in = request.getInputStream()) {
+            return ResponseEntity.ok(chunkedUploadService.writeChunk(uploadId, offset, in));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (DataAccessResourceFailureException e) {
+            return chunkedUploadUnavailable();
+        } catch (IOException | IllegalStateException e) {
+            // Whatever reached the disk before the connection dropped is kept; the client resends the rest
+            return ResponseEntity.internalServerError().body("Error writing chunk: " + e.getMessage());
+        }
     }
 
-    @PostMapping("/solarman")
-    public ResponseEntity<?> uploadSolarManFile(@RequestParam("file") MultipartFile file) {
+    @GetMapping("/chunked/{uploadId}")
+    public ResponseEntity<?> getChunkedUploadStatus(@PathVariable String uploadId) {
         try {
-            // Validate file format
-            if (!excelProcessingService.validateFileFormat(file, "solarman")) {
-                return ResponseEntity.badRequest().body("Invalid file format. Please upload an Excel file.");
+            return ResponseEntity.ok(chunkedUploadService.getStatus(uploadId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/chunked/{uploadId}/complete")
+    public ResponseEntity<?> completeChunkedUpload(@PathVariable String uploadId,
+                                                   @RequestBody(required = false) Map<String, Object> request) {
+        String expectedSha256 = request != null ? (String) request.get("sha256") : null;
+
+        StoredUpload stored;
+        String fileType;
+        ImportAdmission.Permit permit;
+        try {
+            fileType = chunkedUploadService.getFileType(uploadId);
+            // Admitted before completing, so a busy server leaves the session in place for a retry
+            permit = importAdmission.tryAdmit(fileType, chunkedUploadService.getPartFile(uploadId));
+            if (permit == null) {
+                return serverBusy();
             }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
 
-            // Process the Excel file
-            List<SolarManRecord> records = excelProcessingService.processSolarManFile(file);
-
-            // Convert to preview format (all records)
-            List<Map<String, Object>> previewData = new ArrayList<>();
-
-            for (int i = 0; i < records.size(); i++) {
-                SolarManRecord record = records.get(i);
-                Map<String, Object> previewRecord = new HashMap<>();
-                previewRecord.put("Plant", "SolarMan Plant"); // Add plant info if available
-                previewRecord.put("Updated", record.getUpdated().toString());
-                previewRecord.put("Time", record.getUpdated().toString()); // Duplicate for now
-                previewRecord.put("Production Power", record.getProductionPower());
-                previewRecord.put("Consumption Power", record.getConsumePower());
-                previewRecord.put("Grid Power", record.getGridPower());
-                previewRecord.put("Purchasing Power", record.getPurchasePower());
-                previewRecord.put("Feed-in", record.getFeedIn());
-                previewRecord.put("Battery Power", record.getBatteryPower());
-                previewRecord.put("Charging Power", record.getChargePower());
-                previewRecord.put("Discharging Power", record.getDischargePower());
-                previewRecord.put("SoC", record.getSoc());
-                previewData.add(previewRecord);
+        try (permit) {
+            try {
+                stored = chunkedUploadService.complete(uploadId, expectedSha256);
+            } catch (IllegalStateException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            } catch (IOException e) {
+                return ResponseEntity.internalServerError().body("Error completing upload: " + e.getMessage());
             }
 
-            // Store file temporarily for later import
-            String fileId = UUID.randomUUID().toString();
-            String tempFilePath = TEMP_DIR + fileId + "_" + file.getOriginalFilename();
-            Files.copy(file.getInputStream(), Paths.get(tempFilePath), StandardCopyOption.REPLACE_EXISTING);
-            
-            // Store file info
-            uploadedFiles.put(fileId, new FileInfo(tempFilePath, "solarman", records.size()));
-            
-            // Clean up old files (older than 1 hour)
-            cleanupOldFiles();
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("previewData", previewData);
-            response.put("totalRecords", records.size());
-            response.put("fileType", "solarman");
-            response.put("fileId", fileId); // Add file ID for import
+            return parseStoredUpload(stored, fileType);
+        }
+    }
 
-            return ResponseEntity.ok(response);
+    @DeleteMapping("/chunked/{uploadId}")
+    public ResponseEntity<?> abortChunkedUpload(@PathVariable String uploadId) {
+        chunkedUploadService.abort(uploadId);
+        return ResponseEntity.ok().body("Upload aborted");
+    }
+
+    /** Discards an upload the user cancelled, along with anything staged for it. */
+    @DeleteMapping("/{fileId}")
+    public ResponseEntity<?> discardUpload(@PathVariable String fileId) {
+        uploadStore.remove(fileId);
+        return ResponseEntity.ok().body("Upload discarded");
+    }
 
+    /**
+     * Reports, per day, how many rows of an uploaded file are new, changed or
+     * identical to what is stored, without importing anything.
+     */
+    @GetMapping("/{fileId}/diff")
+    public ResponseEntity<?> diffUpload(@PathVariable String fileId) {
+        UploadedFile fileInfo = uploadStore.get(fileId);
+        if (fileInfo == null) {
+            return ResponseEntity.badRequest().body("File not found or expired. Please upload the file again.");
+        }
+
+        try {
+            List<?> records = parseResultCache.get(fileInfo.getFileType(), fileInfo.getSha256());
+            Path path = Paths.get(fileInfo.getFilePath());
+            if ("solarman".equals(fileInfo.getFileType())) {
+                @SuppressWarnings("unchecked")
+                List<SolarManRecord> solarManRecords = records != null
+                        ? (List<SolarManRecord>) records : excelProcessingService.processSolarManFile(path);
+                return ResponseEntity.ok(importDiffService.diffSolarMan(solarManRecords));
+            } else {
+                @SuppressWarnings("unchecked")
+                List<TshwaneRecord> tshwaneRecords = records != null
+                        ? (List<TshwaneRecord>) records : excelProcessingService.processTshwaneFile(path);
+                return ResponseEntity.ok(importDiffService.diffTshwane(tshwaneRecords));
+            }
+        } catch (SQLException e) {
+            return ResponseEntity.internalServerError().body("Error reading stored records: " + e.getMessage());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body("File validation error: " + e.getMessage());
         } catch (IOException e) {
             return ResponseEntity.internalServerError().body("Error processing file: " + e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body("Unexpected error: " + e.getMessage());
         }
     }
 
-    @PostMapping("/tshwane")
-    public ResponseEntity<?> uploadTshwaneFile(@RequestParam("file") MultipartFile file) {
+    private ResponseEntity<?> storeAndProcess(MultipartFile file, String fileType) {
+        StoredUpload stored;
+        try (InputStream in = file.getInputStream()) {
+            stored = uploadStore.store(in, file.getOriginalFilename());
+        } catch (MaxUploadSizeExceededException e) {
+            return fileTooLarge();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body("Error processing file: " + e.getMessage());
+        }
+
+        return processStoredUpload(stored, fileType);
+    }
+
+    private ResponseEntity<?> processStoredUpload(StoredUpload stored, String fileType) {
+        try (ImportAdmission.Permit permit = importAdmission.tryAdmit(fileType, stored.getPath())) {
+            if (permit == null) {
+                uploadStore.delete(stored);
+                return serverBusy();
+            }
+            return parseStoredUpload(stored, fileType);
+        }
+    }
+
+    private ResponseEntity<?> parseStoredUpload(StoredUpload stored, String fileType) {
         try {
-            // Validate file format
-            if (!excelProcessingService.validateFileFormat(file, "tshwane")) {
-                return ResponseEntity.badRequest().body("Invalid file format. Please upload an Excel file.");
+            // A repeat upload of the same content reuses the existing file ID and drops the new copy
+            UploadedFile existing = uploadStore.findByHash(stored.getSha256(), fileType);
+            String fileId = stored.getFileId();
+            Path source = stored.getPath();
+            if (existing != null) {
+                uploadStore.delete(stored);
+                fileId = existing.getFileId();
+                source = Paths.get(existing.getFilePath());
+            }
+
+            // Parse straight from the stored copy, unless this content was parsed before
+            List<?> records = parseResultCache.get(fileType, stored.getSha256());
+            boolean parseCached = records != null;
+            if (!parseCached) {
+                records = "solarman".equals(fileType)
+                        ? excelProcessingService.processSolarManFile(source)
+                        : excelProcessingService.processTshwaneFile(source);
+                parseResultCache.put(fileType, stored.getSha256(), records);
             }
 
-            // Process the Excel file
-            List<TshwaneRecord> records = excelProcessingService.processTshwaneFile(file);
+            List<?> previewRecords = records.subList(0, Math.min(records.size(), previewRows));
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> previewData = "solarman".equals(fileType)
+                    ? toSolarManPreview((List<SolarManRecord>) previewRecords)
+                    : toTshwanePreview((List<TshwaneRecord>) previewRecords);
 
-            // Convert to preview format (all records)
-            List<Map<String, Object>> previewData = new ArrayList<>();
+            // Register the upload for later import; eviction and expiry run in the background
+            if (existing == null) {
+                uploadStore.register(stored, fileType, records.size());
+            }
 
-            for (int i = 0; i < records.size(); i++) {
-                TshwaneRecord record = records.get(i);
-                Map<String, Object> previewRecord = new HashMap<>();
-                previewRecord.put("Reading Date", record.getReadingDate().toString());
-                previewRecord.put("Cumulative Electricity Used", record.getCumulativeElectricityUsed());
-                previewRecord.put("Reading Notes", record.getReadingNotes());
-                previewData.add(previewRecord);
+            // Start loading the rows into staging while the user reviews the preview
+            if ("solarman".equals(fileType)) {
+                @SuppressWarnings("unchecked")
+                List<SolarManRecord> solarManRecords = (List<SolarManRecord>) records;
+                stagingService.stageSolarMan(fileId, solarManRecords);
             }
 
-            // Store file temporarily for later import
-            String fileId = UUID.randomUUID().toString();
-            String tempFilePath = TEMP_DIR + fileId + "_" + file.getOriginalFilename();
-            Files.copy(file.getInputStream(), Paths.get(tempFilePath), StandardCopyOption.REPLACE_EXISTING);
-            
-            // Store file info
-            uploadedFiles.put(fileId, new FileInfo(tempFilePath, "tshwane", records.size()));
-            
-            // Clean up old files (older than 1 hour)
-            cleanupOldFiles();
-            
             Map<String, Object> response = new HashMap<>();
             response.put("previewData", previewData);
             response.put("totalRecords", records.size());
-            response.put("fileType", "tshwane");
+            response.put("fileType", fileType);
             response.put("fileId", fileId); // Add file ID for import
+            response.put("fileSize", stored.getSize());
+            response.put("contentHash", stored.getSha256());
+            response.put("parseCached", parseCached);
+
+            ImportLedgerEntry previousImport = importLedger.findImport(stored.getSha256(), fileType);
+            response.put("alreadyImported", previousImport != null);
+            if (previousImport != null) {
+                response.put("importedAt", previousImport.getImportedAt().toString());
+            }
 
             return ResponseEntity.ok(response);
 
         } catch (IllegalArgumentException e) {
+            uploadStore.delete(stored);
             return ResponseEntity.badRequest().body("File validation error: " + e.getMessage());
         } catch (IOException e) {
+            uploadStore.delete(stored);
             return ResponseEntity.internalServerError().body("Error processing file: " + e.getMessage());
         } catch (Exception e) {
+            uploadStore.delete(stored);
             return ResponseEntity.internalServerError().body("Unexpected error: " + e.getMessage());
         }
     }
-    
-    private void cleanupOldFiles() {
-        long oneHourAgo = System.currentTimeMillis() - (60 * 60 * 1000);
-        
-        uploadedFiles.entrySet().removeIf(entry -> {
-            FileInfo fileInfo = entry.getValue();
-            if (fileInfo.getTimestamp() < oneHourAgo) {
-                try {
-                    Files.deleteIfExists(Paths.get(fileInfo.getFilePath()));
-                    return true;
-                } catch (IOException e) {
-                    System.err.println("Failed to delete old file: " + fileInfo.getFilePath());
-                    return false;
-                }
-            }
-            return false;
-        });
+
+    private List<Map<String, Object>> toSolarManPreview(List<SolarManRecord> records) {
+        List<Map<String, Object>> previewData = new ArrayList<>(records.size());
+
+        for (SolarManRecord record : records) {
+            Map<String, Object> previewRecord = new HashMap<>();
+            previewRecord.put("Plant", "SolarMan Plant"); // Add plant info if available
+            previewRecord.put("Updated", record.getUpdated().toString());
+            previewRecord.put("Time", record.getUpdated().toString()); // Duplicate for now
+            previewRecord.put("Production Power", record.getProductionPower());
+            previewRecord.put("Consumption Power", record.getConsumePower());
+            previewRecord.put("Grid Power", record.getGridPower());
+            previewRecord.put("Purchasing Power", record.getPurchasePower());
+            previewRecord.put("Feed-in", record.getFeedIn());
+            previewRecord.put("Battery Power", record.getBatteryPower());
+            previewRecord.put("Charging Power", record.getChargePower());
+            previewRecord.put("Discharging Power", record.getDischargePower());
+            previewRecord.put("SoC", record.getSoc());
+            previewData.add(previewRecord);
+        }
+
+        return previewData;
+    }
+
+    private List<Map<String, Object>> toTshwanePreview(List<TshwaneRecord> records) {
+        List<Map<String, Object>> previewData = new ArrayList<>(records.size());
+
+        for (TshwaneRecord record : records) {
+            Map<String, Object> previewRecord = new HashMap<>();
+            previewRecord.put("Reading Date", record.getReadingDate().toString());
+            previewRecord.put("Cumulative Electricity Used", record.getCumulativeElectricityUsed());
+            previewRecord.put("Reading Notes", record.getReadingNotes());
+            previewData.add(previewRecord);
+        }
+
+        return previewData;
+    }
+
+    /** With a shared upload registry, chunked uploads are tracked in the database. */
+    private ResponseEntity<?> chunkedUploadUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("Resumable uploads are unavailable while the database is unreachable. Please upload the file in one request.");
+    }
+
+    private ResponseEntity<?> serverBusy() {
+        long retryAfter = importAdmission.getRetryAfterSeconds();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body("The server is busy with other imports. Please try again in " + retryAfter + " seconds.");
+    }
+
+    private ResponseEntity<?> fileTooLarge() {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body("File exceeds the maximum upload size of " + (uploadStore.getMaxFileSize() / (1024 * 1024)) + "MB");
     }
     
-    // Method to get file info for import
-    public static FileInfo getFileInfo(String fileId) {
-        return uploadedFiles.get(fileId);
+    @GetMapping("/stats")
+    public ResponseEntity<UploadStoreStats> getUploadStoreStats() {
+        return ResponseEntity.ok(uploadStore.getStats());
     }
 }
\ No newline at end of file
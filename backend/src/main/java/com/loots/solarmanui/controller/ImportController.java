@@ -1,24 +1,44 @@
 package com.loots.solarmanui.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loots.solarmanui.model.ImportMode;
+import com.loots.solarmanui.model.ImportProfile;
 import com.loots.solarmanui.model.ImportResult;
 import com.loots.solarmanui.model.SolarManRecord;
 import com.loots.solarmanui.model.TshwaneRecord;
+import com.loots.solarmanui.model.UploadedFile;
+import com.loots.solarmanui.service.DatabaseService;
+import com.loots.solarmanui.service.ImportAdmission;
 import com.loots.solarmanui.service.ImportService;
 import com.loots.solarmanui.service.ExcelProcessingService;
+import com.loots.solarmanui.service.ImportLedger;
+import com.loots.solarmanui.service.ImportProfiler;
+import com.loots.solarmanui.service.ParseResultCache;
+import com.loots.solarmanui.service.SolarManJsonReader;
+import com.loots.solarmanui.service.StagingService;
+import com.loots.solarmanui.service.UploadStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import org.springframework.web.multipart.MultipartFile;
-import org.springframework.mock.web.MockMultipartFile;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/import")
@@ -31,24 +51,85 @@ public class ImportController {
     @Autowired
     private ExcelProcessingService excelProcessingService;
 
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Autowired
+    private ParseResultCache parseResultCache;
+
+    @Autowired
+    private ImportLedger importLedger;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    @Autowired
+    private StagingService stagingService;
+
+    @Autowired
+    private SolarManJsonReader solarManJsonReader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ImportAdmission importAdmission;
+
+    @Autowired
+    private ImportProfiler importProfiler;
+
+    @Value("${solarman.import.append-overlap:PT1H}")
+    private Duration appendOverlap;
+
     @PostMapping("/solarman")
-    public ResponseEntity<?> importSolarManData(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> importSolarManData(InputStream body) {
+        // The body is read token by token so that a large legacy 'data' array is never bound to maps
+        String fileId = null;
+        String mode = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return ResponseEntity.badRequest().body("Request must contain either 'fileId' or 'data'");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "fileId" -> fileId = parser.getValueAsString();
+                    case "mode" -> mode = parser.getValueAsString();
+                    case "data" -> {
+                        if (fileId == null) {
+                            return importSolarManFromData(parser);
+                        }
+                        parser.skipChildren();
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Invalid request body: " + e.getMessage());
+        }
+
         // Check if request contains fileId (new approach) or data array (legacy)
-        if (request.containsKey("fileId")) {
-            return importSolarManFromFile((String) request.get("fileId"));
-        } else if (request.containsKey("data")) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> data = (List<Map<String, Object>>) request.get("data");
-            return importSolarManFromData(data);
-        } else {
-            return ResponseEntity.badRequest().body("Request must contain either 'fileId' or 'data'");
+        if (fileId != null) {
+            ImportMode importMode;
+            try {
+                importMode = ImportMode.fromString(mode);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+            return importSolarManFromFile(fileId, importMode);
         }
+        return ResponseEntity.badRequest().body("Request must contain either 'fileId' or 'data'");
     }
     
     public ResponseEntity<?> importSolarManFromFile(String fileId) {
+        return importSolarManFromFile(fileId, ImportMode.UPSERT);
+    }
+
+    public ResponseEntity<?> importSolarManFromFile(String fileId, ImportMode mode) {
         try {
             // Get file info
-            FileUploadController.FileInfo fileInfo = FileUploadController.getFileInfo(fileId);
+            UploadedFile fileInfo = uploadStore.get(fileId);
             if (fileInfo == null) {
                 return ResponseEntity.badRequest().body("File not found or expired. Please upload the file again.");
             }
@@ -58,87 +139,105 @@ public class ImportController {
             if (!file.exists()) {
                 return ResponseEntity.badRequest().body("File not found on disk. Please upload the file again.");
             }
-            
-            try (FileInputStream fis = new FileInputStream(file)) {
-                MultipartFile multipartFile = new MockMultipartFile(
-                    "file",
-                    file.getName(),
-                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
-                    fis
-                );
-                
-                // Process ALL records from the file
-                List<SolarManRecord> records = excelProcessingService.processSolarManFile(multipartFile);
-                
-                // Import all records
-                ImportResult result = importService.importSolarManData(records);
-                return ResponseEntity.ok(result);
+
+            try (ImportAdmission.Permit permit = importAdmission.tryAdmit("solarman", file.toPath())) {
+                if (permit == null) {
+                    return serverBusy();
+                }
+                return importSolarManFile(fileId, fileInfo, file, mode);
             }
-            
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Error importing SolarMan data: " + e.getMessage());
         }
     }
-    
-    public ResponseEntity<?> importSolarManFromData(List<Map<String, Object>> data) {
-        try {
-            // Convert Map data back to SolarManRecord objects
-            List<SolarManRecord> records = new ArrayList<>();
 
-            for (Map<String, Object> recordMap : data) {
-                try {
-                    SolarManRecord record = new SolarManRecord();
+    private ResponseEntity<?> importSolarManFile(String fileId, UploadedFile fileInfo, File file, ImportMode mode) {
+        try (ImportProfiler.Profiling profiling = importProfiler.begin("solarman", mode.name().toLowerCase(Locale.ROOT), true)) {
+            ImportProfile profile = profiling.profile();
+            boolean databaseDown = false;
+            if (mode == ImportMode.UPSERT) {
+                // Rows staged in the background during the preview are merged in a single statement
+                ImportResult stagedResult = stagingService.mergeSolarMan(fileId);
+                if (stagedResult != null && stagedResult.getErrorCount() == 0) {
+                    stagedResult.setProfile(profile);
+                    importLedger.recordImport(fileInfo.getSha256(), "solarman", stagedResult);
+                    return ResponseEntity.ok(stagedResult);
+                }
+                // A failed merge falls back to the row-by-row import, or straight to the spool if the database is down
+                databaseDown = stagedResult != null && ImportService.lostConnection(stagedResult);
+            } else {
+                stagingService.drop(fileId);
+            }
 
-                    // Parse updated timestamp - check both display name and camelCase
-                    String updatedStr = (String) recordMap.get("Updated");
-                    if (updatedStr == null) {
-                        updatedStr = (String) recordMap.get("updated");
+            // The preview upload usually parsed this content already
+            List<SolarManRecord> records = parseResultCache.get("solarman", fileInfo.getSha256());
+            if (mode == ImportMode.APPEND) {
+                // Only rows from the watermark on are converted and imported
+                LocalDateTime watermark = appendWatermark();
+                if (records != null) {
+                    records = records.stream()
+                            .filter(record -> watermark == null || !record.getUpdated().isBefore(watermark))
+                            .collect(Collectors.toList());
+                } else {
+                    try (ImportProfiler.Span parse = ImportProfiler.stage("parse")) {
+                        records = excelProcessingService.processSolarManFile(Paths.get(fileInfo.getFilePath()), watermark);
                     }
-                    
-                    if (updatedStr != null && !updatedStr.trim().isEmpty()) {
-                        try {
-                            LocalDateTime updated;
-                            // Try parsing with seconds first, then without seconds
-                            try {
-                                updated = LocalDateTime.parse(updatedStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-                            } catch (Exception e1) {
-                                // Try parsing without seconds (add :00)
-                                String updatedWithSeconds = updatedStr.contains(":") && !updatedStr.matches(".*:\\d{2}:\\d{2}$") 
-                                    ? updatedStr + ":00" : updatedStr;
-                                updated = LocalDateTime.parse(updatedWithSeconds, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-                            }
-                            record.setUpdated(updated);
-                        } catch (Exception e) {
-                            return ResponseEntity.badRequest().body("Invalid date format: " + updatedStr + " - " + e.getMessage());
-                        }
-                    } else {
-                        return ResponseEntity.badRequest().body("Missing or empty 'Updated' field in record");
-                    }
-
-                    // Parse numeric fields - check both display names and camelCase
-                    record.setProductionPower(parseDoubleValue(getFieldValue(recordMap, "Production Power", "productionPower")));
-                    record.setConsumePower(parseDoubleValue(getFieldValue(recordMap, "Consumption Power", "consumePower")));
-                    record.setGridPower(parseDoubleValue(getFieldValue(recordMap, "Grid Power", "gridPower")));
-                    record.setPurchasePower(parseDoubleValue(getFieldValue(recordMap, "Purchasing Power", "purchasePower")));
-                    record.setFeedIn(parseDoubleValue(getFieldValue(recordMap, "Feed-in", "feedIn")));
-                    record.setBatteryPower(parseDoubleValue(getFieldValue(recordMap, "Battery Power", "batteryPower")));
-                    record.setChargePower(parseDoubleValue(getFieldValue(recordMap, "Charging Power", "chargePower")));
-                    record.setDischargePower(parseDoubleValue(getFieldValue(recordMap, "Discharging Power", "dischargePower")));
-                    record.setSoc(parseDoubleValue(getFieldValue(recordMap, "SoC", "soc")));
-
-                    records.add(record);
-
-                } catch (DateTimeParseException e) {
-                    return ResponseEntity.badRequest().body("Invalid date format in record: " + e.getMessage());
-                } catch (Exception e) {
-                    return ResponseEntity.badRequest().body("Error parsing record: " + e.getMessage());
+                    profile.setBytesRead(file.length());
                 }
+            } else if (records == null) {
+                // Process ALL records, reading the sheet straight from the stored file
+                try (ImportProfiler.Span parse = ImportProfiler.stage("parse")) {
+                    records = excelProcessingService.processSolarManFile(file.toPath());
+                }
+                profile.setBytesRead(file.length());
             }
 
-            // Import the records
-            ImportResult result = importService.importSolarManData(records);
+            // Import all records
+            ImportResult result;
+            if (databaseDown) {
+                result = importService.spoolSolarManData(records);
+            } else if (mode == ImportMode.REPLACE_RANGE) {
+                result = importService.replaceSolarManRange(records);
+            } else {
+                result = importService.importSolarManData(records);
+            }
+            if (mode == ImportMode.APPEND) {
+                // Rows below the watermark were dropped while parsing
+                result.setRecordsSkipped(result.getRecordsSkipped() + Math.max(0, fileInfo.getTotalRecords() - records.size()));
+            }
+            result.setProfile(profile);
+            // Spooled rows are not in the database yet, so the file does not count as imported
+            if (result.getErrorCount() == 0 && result.getRecordsSpooled() == 0) {
+                importLedger.recordImport(fileInfo.getSha256(), "solarman", result);
+            }
             return ResponseEntity.ok(result);
-
+            
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error importing SolarMan data: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Imports the legacy 'data' array the parser is positioned on, one batch at a time.
+     * A malformed record stops the import; batches before it have already been written.
+     */
+    public ResponseEntity<?> importSolarManFromData(JsonParser parser) {
+        ImportResult result = new ImportResult();
+        try (ImportProfiler.Profiling profiling = importProfiler.begin("solarman", "json", true)) {
+            // Each batch records into this one profile
+            solarManJsonReader.readRecords(parser, SolarManJsonReader.DEFAULT_BATCH_SIZE,
+                    batch -> result.merge(importService.importSolarManData(batch)));
+            profiling.profile().setBytesRead(parser.currentLocation().getByteOffset());
+            result.setProfile(profiling.profile());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            int written = result.getRecordsInserted() + result.getRecordsSkipped();
+            String message = written > 0
+                    ? e.getMessage() + " (" + written + " earlier records were already imported)"
+                    : e.getMessage();
+            return ResponseEntity.badRequest().body(message);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Invalid request body: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Error importing SolarMan data: " + e.getMessage());
         }
@@ -161,7 +260,7 @@ public class ImportController {
     public ResponseEntity<?> importTshwaneFromFile(String fileId) {
         try {
             // Get file info
-            FileUploadController.FileInfo fileInfo = FileUploadController.getFileInfo(fileId);
+            UploadedFile fileInfo = uploadStore.get(fileId);
             if (fileInfo == null) {
                 return ResponseEntity.badRequest().body("File not found or expired. Please upload the file again.");
             }
@@ -171,22 +270,37 @@ public class ImportController {
             if (!file.exists()) {
                 return ResponseEntity.badRequest().body("File not found on disk. Please upload the file again.");
             }
-            
-            try (FileInputStream fis = new FileInputStream(file)) {
-                MultipartFile multipartFile = new MockMultipartFile(
-                    "file",
-                    file.getName(),
-                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
-                    fis
-                );
-                
-                // Process ALL records from the file
-                List<TshwaneRecord> records = excelProcessingService.processTshwaneFile(multipartFile);
-                
-                // Import all records
-                ImportResult result = importService.importTshwaneData(records);
-                return ResponseEntity.ok(result);
+
+            try (ImportAdmission.Permit permit = importAdmission.tryAdmit("tshwane", file.toPath())) {
+                if (permit == null) {
+                    return serverBusy();
+                }
+                return importTshwaneFile(fileInfo, file);
+            }
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error importing Tshwane data: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> importTshwaneFile(UploadedFile fileInfo, File file) {
+        try (ImportProfiler.Profiling profiling = importProfiler.begin("tshwane", "upsert", true)) {
+            // The preview upload usually parsed this content already
+            List<TshwaneRecord> records = parseResultCache.get("tshwane", fileInfo.getSha256());
+            if (records == null) {
+                // Process ALL records, reading only the readings sheet from the stored file
+                try (ImportProfiler.Span parse = ImportProfiler.stage("parse")) {
+                    records = excelProcessingService.processTshwaneFile(file.toPath());
+                }
+                profiling.profile().setBytesRead(file.length());
+            }
+
+            // Import all records
+            ImportResult result = importService.importTshwaneData(records);
+            result.setProfile(profiling.profile());
+            if (result.getErrorCount() == 0 && result.getRecordsSpooled() == 0) {
+                importLedger.recordImport(fileInfo.getSha256(), "tshwane", result);
             }
+            return ResponseEntity.ok(result);
             
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Error importing Tshwane data: " + e.getMessage());
@@ -247,6 +361,18 @@ public class ImportController {
         }
     }
 
+    private ResponseEntity<?> serverBusy() {
+        long retryAfter = importAdmission.getRetryAfterSeconds();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body("The server is busy with other imports. Please try again in " + retryAfter + " seconds.");
+    }
+
+    private LocalDateTime appendWatermark() {
+        LocalDateTime latest = databaseService.getLatestRecordTimestamps().getSolarman();
+        return latest != null ? latest.minus(appendOverlap) : null;
+    }
+
     @GetMapping("/error-logs")
     public ResponseEntity<List<String>> getErrorLogs() {
         try {
@@ -259,6 +385,12 @@ public class ImportController {
         }
     }
 
+    /** Stage timings of the most recent imports, newest first. */
+    @GetMapping("/history")
+    public ResponseEntity<List<ImportProfile>> getImportHistory() {
+        return ResponseEntity.ok(importProfiler.getHistory());
+    }
+
     @DeleteMapping("/error-logs")
     public ResponseEntity<?> clearErrorLogs() {
         try {
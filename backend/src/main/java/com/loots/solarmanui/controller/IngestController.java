@@ -0,0 +1,38 @@
+package com.loots.solarmanui.controller;
+
+import com.loots.solarmanui.service.IngestService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/ingest")
+@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:30080"})
+public class IngestController {
+
+    @Autowired
+    private IngestService ingestService;
+
+    /**
+     * Live SolarMan samples, one JSON object per line, using the same field names as
+     * the import endpoint. The response is NDJSON with one acknowledgement per flush,
+     * written while the request is still being read, so a logger can keep a single
+     * chunked request open and push samples as they are taken.
+     */
+    @PostMapping(value = "/solarman", consumes = {
+            MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.APPLICATION_JSON_VALUE,
+            MediaType.TEXT_PLAIN_VALUE})
+    public void ingestSolarMan(HttpServletRequest request, HttpServletResponse response) {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try {
+            ingestService.ingestSolarMan(request.getInputStream(), response.getOutputStream());
+        } catch (IOException e) {
+            System.err.println("Ingest stream ended early: " + e.getMessage());
+        }
+    }
+}
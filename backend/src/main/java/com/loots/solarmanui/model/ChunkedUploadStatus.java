@@ -0,0 +1,69 @@
+package com.loots.solarmanui.model;
+
+import java.util.List;
+
+public class ChunkedUploadStatus {
+    private final String uploadId;
+    private final String filename;
+    private final String fileType;
+    private final long totalSize;
+    private final long receivedBytes;
+    private final List<Range> missingRanges;
+
+    public ChunkedUploadStatus(String uploadId, String filename, String fileType, long totalSize,
+                               long receivedBytes, List<Range> missingRanges) {
+        this.uploadId = uploadId;
+        this.filename = filename;
+        this.fileType = fileType;
+        this.totalSize = totalSize;
+        this.receivedBytes = receivedBytes;
+        this.missingRanges = missingRanges;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public List<Range> getMissingRanges() {
+        return missingRanges;
+    }
+
+    public boolean isComplete() {
+        return receivedBytes == totalSize;
+    }
+
+    /** Half-open byte range {@code [start, end)}. */
+    public static class Range {
+        private final long start;
+        private final long end;
+
+        public Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.loots.solarmanui.model;
+
+import java.time.LocalDate;
+
+public class DayChecksum {
+    private final LocalDate day;
+    private final String checksum;
+    private final int rowCount;
+
+    public DayChecksum(LocalDate day, String checksum, int rowCount) {
+        this.day = day;
+        this.checksum = checksum;
+        this.rowCount = rowCount;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+}
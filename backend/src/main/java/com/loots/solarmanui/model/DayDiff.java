@@ -0,0 +1,48 @@
+package com.loots.solarmanui.model;
+
+import java.time.LocalDate;
+
+public class DayDiff {
+    private LocalDate day;
+    private int newRows;
+    private int changedRows;
+    private int identicalRows;
+
+    public DayDiff() {}
+
+    public DayDiff(LocalDate day) {
+        this.day = day;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public int getNewRows() {
+        return newRows;
+    }
+
+    public void setNewRows(int newRows) {
+        this.newRows = newRows;
+    }
+
+    public int getChangedRows() {
+        return changedRows;
+    }
+
+    public void setChangedRows(int changedRows) {
+        this.changedRows = changedRows;
+    }
+
+    public int getIdenticalRows() {
+        return identicalRows;
+    }
+
+    public void setIdenticalRows(int identicalRows) {
+        this.identicalRows = identicalRows;
+    }
+}
@@ -0,0 +1,60 @@
+package com.loots.solarmanui.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** How many errors of one kind an import hit, with the first few messages as samples. */
+public class ErrorCategory {
+    public static final int MAX_SAMPLES = 3;
+
+    private String category;
+    private int count;
+    private List<String> samples = new ArrayList<>();
+
+    public ErrorCategory() {}
+
+    public ErrorCategory(String category) {
+        this.category = category;
+    }
+
+    public void record(String error) {
+        count++;
+        if (samples.size() < MAX_SAMPLES) {
+            samples.add(error);
+        }
+    }
+
+    public void merge(ErrorCategory other) {
+        count += other.count;
+        for (String sample : other.samples) {
+            if (samples.size() >= MAX_SAMPLES) {
+                break;
+            }
+            samples.add(sample);
+        }
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public List<String> getSamples() {
+        return samples;
+    }
+
+    public void setSamples(List<String> samples) {
+        this.samples = samples != null ? samples : new ArrayList<>();
+    }
+}
@@ -0,0 +1,85 @@
+package com.loots.solarmanui.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportDiff {
+    private String fileType;
+    private int newRows;
+    private int changedRows;
+    private int identicalRows;
+    private LocalDateTime firstRecordDate;
+    private LocalDateTime lastRecordDate;
+    private List<DayDiff> days;
+
+    public ImportDiff() {
+        this.days = new ArrayList<>();
+    }
+
+    public ImportDiff(String fileType) {
+        this();
+        this.fileType = fileType;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+
+    public int getNewRows() {
+        return newRows;
+    }
+
+    public void setNewRows(int newRows) {
+        this.newRows = newRows;
+    }
+
+    public int getChangedRows() {
+        return changedRows;
+    }
+
+    public void setChangedRows(int changedRows) {
+        this.changedRows = changedRows;
+    }
+
+    public int getIdenticalRows() {
+        return identicalRows;
+    }
+
+    public void setIdenticalRows(int identicalRows) {
+        this.identicalRows = identicalRows;
+    }
+
+    public LocalDateTime getFirstRecordDate() {
+        return firstRecordDate;
+    }
+
+    public void setFirstRecordDate(LocalDateTime firstRecordDate) {
+        this.firstRecordDate = firstRecordDate;
+    }
+
+    public LocalDateTime getLastRecordDate() {
+        return lastRecordDate;
+    }
+
+    public void setLastRecordDate(LocalDateTime lastRecordDate) {
+        this.lastRecordDate = lastRecordDate;
+    }
+
+    public List<DayDiff> getDays() {
+        return days;
+    }
+
+    public void setDays(List<DayDiff> days) {
+        this.days = days;
+    }
+
+    /** True when importing would not change any stored row. */
+    public boolean isUnchanged() {
+        return newRows == 0 && changedRows == 0;
+    }
+}
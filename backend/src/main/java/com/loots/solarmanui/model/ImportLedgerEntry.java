@@ -0,0 +1,51 @@
+package com.loots.solarmanui.model;
+
+import java.time.LocalDateTime;
+
+public class ImportLedgerEntry {
+    private String sha256;
+    private String fileType;
+    private LocalDateTime importedAt;
+    private int recordsImported;
+
+    public ImportLedgerEntry() {}
+
+    public ImportLedgerEntry(String sha256, String fileType, LocalDateTime importedAt, int recordsImported) {
+        this.sha256 = sha256;
+        this.fileType = fileType;
+        this.importedAt = importedAt;
+        this.recordsImported = recordsImported;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+
+    public LocalDateTime getImportedAt() {
+        return importedAt;
+    }
+
+    public void setImportedAt(LocalDateTime importedAt) {
+        this.importedAt = importedAt;
+    }
+
+    public int getRecordsImported() {
+        return recordsImported;
+    }
+
+    public void setRecordsImported(int recordsImported) {
+        this.recordsImported = recordsImported;
+    }
+}
@@ -0,0 +1,24 @@
+package com.loots.solarmanui.model;
+
+/**
+ * How an import treats rows that may already be in the database.
+ */
+public enum ImportMode {
+    /** Every row in the file is inserted or updated. */
+    UPSERT,
+    /** Only rows newer than the latest stored record, minus an overlap window, are imported. */
+    APPEND,
+    /** Stored rows within the file's time range are deleted and the file's rows inserted in their place. */
+    REPLACE_RANGE;
+
+    public static ImportMode fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return UPSERT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown import mode: " + value);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.loots.solarmanui.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where one import spent its time: wall and CPU time per stage, in the order the
+ * stages were first entered, with the overall totals and throughput.
+ *
+ * <p>CPU time is that of the threads doing the work. Row conversion on the parse
+ * pool is recorded as its own stage, summed over the pool's threads, so when a
+ * sheet is parsed in parallel its "convert" time overlaps "read" and can exceed it.
+ */
+public class ImportProfile {
+    private String fileType;
+    private String mode;
+    private LocalDateTime startedAt;
+    private double wallMillis;
+    private double cpuMillis;
+    private long rows;
+    private double rowsPerSecond;
+    private int batches;
+    private long bytesRead;
+    private String parseEngine;
+    private String parseReason;
+    private final Map<String, StageTiming> stages = new LinkedHashMap<>();
+
+    public ImportProfile() {}
+
+    public ImportProfile(String fileType, String mode) {
+        this.fileType = fileType;
+        this.mode = mode;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    /** Called from parse pool threads as well as the importing thread. */
+    public synchronized void addStage(String stage, long wallNanos, long cpuNanos) {
+        stages.computeIfAbsent(stage, StageTiming::new).add(wallNanos, cpuNanos);
+    }
+
+    public synchronized void addBatches(int count) {
+        batches += count;
+    }
+
+    public synchronized void addRows(long count) {
+        rows += count;
+    }
+
+    /** Sets the totals once the import is over. */
+    public synchronized void finish(long wallNanos, long cpuNanos) {
+        wallMillis = wallNanos / 1_000_000.0;
+        cpuMillis = cpuNanos / 1_000_000.0;
+        rowsPerSecond = wallNanos > 0 ? rows * 1_000_000_000.0 / wallNanos : 0;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public synchronized double getWallMillis() {
+        return wallMillis;
+    }
+
+    public synchronized void setWallMillis(double wallMillis) {
+        this.wallMillis = wallMillis;
+    }
+
+    public synchronized double getCpuMillis() {
+        return cpuMillis;
+    }
+
+    public synchronized void setCpuMillis(double cpuMillis) {
+        this.cpuMillis = cpuMillis;
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    public synchronized void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public synchronized double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public synchronized void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public synchronized int getBatches() {
+        return batches;
+    }
+
+    public synchronized void setBatches(int batches) {
+        this.batches = batches;
+    }
+
+    public synchronized long getBytesRead() {
+        return bytesRead;
+    }
+
+    public synchronized void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    /** The engine the workbook was parsed with, or null when it came from the parse cache. */
+    public synchronized String getParseEngine() {
+        return parseEngine;
+    }
+
+    public synchronized void setParseEngine(String parseEngine) {
+        this.parseEngine = parseEngine;
+    }
+
+    public synchronized String getParseReason() {
+        return parseReason;
+    }
+
+    public synchronized void setParseReason(String parseReason) {
+        this.parseReason = parseReason;
+    }
+
+    public synchronized List<StageTiming> getStages() {
+        return new ArrayList<>(stages.values());
+    }
+
+    public synchronized void setStages(List<StageTiming> timings) {
+        stages.clear();
+        if (timings != null) {
+            timings.forEach(timing -> stages.put(timing.getStage(), timing));
+        }
+    }
+}
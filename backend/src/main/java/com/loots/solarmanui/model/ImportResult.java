@@ -1,16 +1,26 @@
 package com.loots.solarmanui.model;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 
 public class ImportResult {
+    /** Error messages kept verbatim; the rest are only counted, by category. */
+    public static final int MAX_ERRORS = 20;
+
     private int recordsInserted;
     private int recordsUpdated;
+    private int recordsSkipped;
+    private int daysSkipped;
+    private int recordsSpooled;
     private LocalDateTime firstRecordDate;
     private LocalDateTime lastRecordDate;
     private int errorCount;
     private List<String> errors;
+    private final Map<String, ErrorCategory> errorCategories = new LinkedHashMap<>();
+    private ImportProfile profile;
 
     public ImportResult() {
         this.errors = new ArrayList<>();
@@ -42,6 +52,30 @@ public class ImportResult {
         this.recordsUpdated = recordsUpdated;
     }
 
+    public int getRecordsSkipped() {
+        return recordsSkipped;
+    }
+
+    public void setRecordsSkipped(int recordsSkipped) {
+        this.recordsSkipped = recordsSkipped;
+    }
+
+    public int getDaysSkipped() {
+        return daysSkipped;
+    }
+
+    public void setDaysSkipped(int daysSkipped) {
+        this.daysSkipped = daysSkipped;
+    }
+
+    public int getRecordsSpooled() {
+        return recordsSpooled;
+    }
+
+    public void setRecordsSpooled(int recordsSpooled) {
+        this.recordsSpooled = recordsSpooled;
+    }
+
     public LocalDateTime getFirstRecordDate() {
         return firstRecordDate;
     }
@@ -74,11 +108,67 @@ public class ImportResult {
         this.errors = errors != null ? errors : new ArrayList<>();
     }
 
+    public List<ErrorCategory> getErrorCategories() {
+        return new ArrayList<>(errorCategories.values());
+    }
+
+    public void setErrorCategories(List<ErrorCategory> categories) {
+        errorCategories.clear();
+        if (categories != null) {
+            categories.forEach(category -> errorCategories.put(category.getCategory(), category));
+        }
+    }
+
     public void addError(String error) {
+        addError("other", error);
+    }
+
+    /**
+     * Counts the error under its category. Only the first {@link #MAX_ERRORS} messages
+     * are kept in {@link #getErrors()}, so a file failing on every row stays small.
+     */
+    public void addError(String category, String error) {
         if (this.errors == null) {
             this.errors = new ArrayList<>();
         }
-        this.errors.add(error);
-        this.errorCount = this.errors.size();
+        if (this.errors.size() < MAX_ERRORS) {
+            this.errors.add(error);
+        }
+        this.errorCount++;
+        errorCategories.computeIfAbsent(category, ErrorCategory::new).record(error);
+    }
+
+    /** Where the import spent its time; shared by every batch of the same import. */
+    public ImportProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(ImportProfile profile) {
+        this.profile = profile;
+    }
+
+    /** Adds the counts, range and errors of a result for another batch of the same import. */
+    public void merge(ImportResult other) {
+        recordsInserted += other.recordsInserted;
+        recordsUpdated += other.recordsUpdated;
+        recordsSkipped += other.recordsSkipped;
+        daysSkipped += other.daysSkipped;
+        recordsSpooled += other.recordsSpooled;
+        if (other.firstRecordDate != null && (firstRecordDate == null || other.firstRecordDate.isBefore(firstRecordDate))) {
+            firstRecordDate = other.firstRecordDate;
+        }
+        if (other.lastRecordDate != null && (lastRecordDate == null || other.lastRecordDate.isAfter(lastRecordDate))) {
+            lastRecordDate = other.lastRecordDate;
+        }
+        errorCount += other.errorCount;
+        for (String error : other.getErrors()) {
+            if (errors.size() >= MAX_ERRORS) {
+                break;
+            }
+            errors.add(error);
+        }
+        for (ErrorCategory category : other.errorCategories.values()) {
+            errorCategories.computeIfAbsent(category.getCategory(), ErrorCategory::new).merge(category);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.loots.solarmanui.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One line of the NDJSON response to a live ingest stream: the outcome of a single
+ * flush, or of a sample that was rejected before it reached a batch.
+ */
+public class IngestAck {
+    private long batch;
+    private int records;
+    private int recordsWritten;
+    private int recordsSpooled;
+    private LocalDateTime firstRecordDate;
+    private LocalDateTime lastRecordDate;
+    private List<String> errors = new ArrayList<>();
+
+    public IngestAck() {}
+
+    public IngestAck(long batch, int records, ImportResult result) {
+        this.batch = batch;
+        this.records = records;
+        this.recordsWritten = result.getRecordsInserted() + result.getRecordsUpdated();
+        this.recordsSpooled = result.getRecordsSpooled();
+        this.firstRecordDate = result.getFirstRecordDate();
+        this.lastRecordDate = result.getLastRecordDate();
+        this.errors = new ArrayList<>(result.getErrors());
+    }
+
+    public static IngestAck rejected(String error) {
+        IngestAck ack = new IngestAck();
+        ack.errors.add(error);
+        return ack;
+    }
+
+    public long getBatch() {
+        return batch;
+    }
+
+    public void setBatch(long batch) {
+        this.batch = batch;
+    }
+
+    public int getRecords() {
+        return records;
+    }
+
+    public void setRecords(int records) {
+        this.records = records;
+    }
+
+    public int getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    public void setRecordsWritten(int recordsWritten) {
+        this.recordsWritten = recordsWritten;
+    }
+
+    public int getRecordsSpooled() {
+        return recordsSpooled;
+    }
+
+    public void setRecordsSpooled(int recordsSpooled) {
+        this.recordsSpooled = recordsSpooled;
+    }
+
+    public LocalDateTime getFirstRecordDate() {
+        return firstRecordDate;
+    }
+
+    public void setFirstRecordDate(LocalDateTime firstRecordDate) {
+        this.firstRecordDate = firstRecordDate;
+    }
+
+    public LocalDateTime getLastRecordDate() {
+        return lastRecordDate;
+    }
+
+    public void setLastRecordDate(LocalDateTime lastRecordDate) {
+        this.lastRecordDate = lastRecordDate;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors != null ? errors : new ArrayList<>();
+    }
+}
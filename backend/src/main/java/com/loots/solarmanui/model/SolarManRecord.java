@@ -1,9 +1,11 @@
 package com.loots.solarmanui.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import jakarta.persistence.Id;
 import jakarta.persistence.Column;
+import jakarta.persistence.Transient;
 import java.time.LocalDateTime;
 
 @Entity
@@ -41,6 +43,11 @@ public class SolarManRecord {
     @Column(name = "soc")
     private Double soc;
 
+    // Why the row could not be read; such a record is reported as a row error and never written
+    @Transient
+    @JsonIgnore
+    private String parseError;
+
     public SolarManRecord() {}
 
     public SolarManRecord(LocalDateTime updated, Double productionPower, Double consumePower,
@@ -137,4 +144,12 @@ public class SolarManRecord {
     public void setSoc(Double soc) {
         this.soc = soc;
     }
+
+    public String getParseError() {
+        return parseError;
+    }
+
+    public void setParseError(String parseError) {
+        this.parseError = parseError;
+    }
 }
\ No newline at end of file
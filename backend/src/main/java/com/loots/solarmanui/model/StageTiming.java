@@ -0,0 +1,53 @@
+package com.loots.solarmanui.model;
+
+/** Time an import spent in one stage, summed over every time it entered the stage. */
+public class StageTiming {
+    private String stage;
+    private int calls;
+    private double wallMillis;
+    private double cpuMillis;
+
+    public StageTiming() {}
+
+    public StageTiming(String stage) {
+        this.stage = stage;
+    }
+
+    public void add(long wallNanos, long cpuNanos) {
+        calls++;
+        wallMillis += wallNanos / 1_000_000.0;
+        cpuMillis += cpuNanos / 1_000_000.0;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public int getCalls() {
+        return calls;
+    }
+
+    public void setCalls(int calls) {
+        this.calls = calls;
+    }
+
+    public double getWallMillis() {
+        return wallMillis;
+    }
+
+    public void setWallMillis(double wallMillis) {
+        this.wallMillis = wallMillis;
+    }
+
+    public double getCpuMillis() {
+        return cpuMillis;
+    }
+
+    public void setCpuMillis(double cpuMillis) {
+        this.cpuMillis = cpuMillis;
+    }
+}
@@ -0,0 +1,39 @@
+package com.loots.solarmanui.model;
+
+import java.nio.file.Path;
+
+public class StoredUpload {
+    private final String fileId;
+    private final Path path;
+    private final String originalFilename;
+    private final long size;
+    private final String sha256;
+
+    public StoredUpload(String fileId, Path path, String originalFilename, long size, String sha256) {
+        this.fileId = fileId;
+        this.path = path;
+        this.originalFilename = originalFilename;
+        this.size = size;
+        this.sha256 = sha256;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+}
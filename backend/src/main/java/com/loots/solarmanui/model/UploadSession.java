@@ -0,0 +1,154 @@
+package com.loots.solarmanui.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A chunked upload in progress: what is being uploaded, where its part file is and
+ * which byte ranges have been written to it. Kept in the upload registry so that
+ * any replica can take the next chunk and a restart does not lose the upload.
+ */
+public class UploadSession {
+    private String uploadId;
+    private String filename;
+    private String fileType;
+    private long totalSize;
+    private String partPath;
+    private long createdAt;
+    private long lastActivity;
+
+    // Received ranges keyed by start offset, kept merged
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+    public UploadSession() {}
+
+    public UploadSession(String uploadId, String filename, String fileType, long totalSize, String partPath) {
+        this.uploadId = uploadId;
+        this.filename = filename;
+        this.fileType = fileType;
+        this.totalSize = totalSize;
+        this.partPath = partPath;
+        this.createdAt = System.currentTimeMillis();
+        this.lastActivity = this.createdAt;
+    }
+
+    /** Marks {@code [start, end)} as written, merging it with the ranges it touches. */
+    public synchronized void addRange(long start, long end) {
+        Map.Entry<Long, Long> floor = ranges.floorEntry(start);
+        if (floor != null && floor.getValue() >= start) {
+            start = floor.getKey();
+            end = Math.max(end, floor.getValue());
+        }
+        Map.Entry<Long, Long> next;
+        while ((next = ranges.ceilingEntry(start)) != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            ranges.remove(next.getKey());
+        }
+        ranges.put(start, end);
+    }
+
+    public synchronized ChunkedUploadStatus status() {
+        List<ChunkedUploadStatus.Range> missing = new ArrayList<>();
+        long received = 0;
+        long cursor = 0;
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            if (range.getKey() > cursor) {
+                missing.add(new ChunkedUploadStatus.Range(cursor, range.getKey()));
+            }
+            received += range.getValue() - range.getKey();
+            cursor = range.getValue();
+        }
+        if (cursor < totalSize) {
+            missing.add(new ChunkedUploadStatus.Range(cursor, totalSize));
+        }
+        return new ChunkedUploadStatus(uploadId, filename, fileType, totalSize, received, missing);
+    }
+
+    @JsonIgnore
+    public boolean isComplete() {
+        return status().isComplete();
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public String getPartPath() {
+        return partPath;
+    }
+
+    public void setPartPath(String partPath) {
+        this.partPath = partPath;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public synchronized long getLastActivity() {
+        return lastActivity;
+    }
+
+    public synchronized void setLastActivity(long lastActivity) {
+        this.lastActivity = lastActivity;
+    }
+
+    /** The received ranges as {@code start-end} pairs separated by commas, as stored. */
+    public synchronized String getRanges() {
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            if (encoded.length() > 0) {
+                encoded.append(',');
+            }
+            encoded.append(range.getKey()).append('-').append(range.getValue());
+        }
+        return encoded.toString();
+    }
+
+    public synchronized void setRanges(String encoded) {
+        ranges.clear();
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String range : encoded.split(",")) {
+            int dash = range.indexOf('-');
+            addRange(Long.parseLong(range.substring(0, dash)), Long.parseLong(range.substring(dash + 1)));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.loots.solarmanui.model;
+
+public class UploadStoreStats {
+    private final int files;
+    private final long totalBytes;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+
+    public UploadStoreStats(int files, long totalBytes, long hits, long misses, long evictions, long expirations) {
+        this.files = files;
+        this.totalBytes = totalBytes;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getExpirations() {
+        return expirations;
+    }
+}
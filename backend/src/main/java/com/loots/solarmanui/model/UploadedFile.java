@@ -0,0 +1,89 @@
+package com.loots.solarmanui.model;
+
+public class UploadedFile {
+    private String fileId;
+    private String filePath;
+    private String fileType;
+    private int totalRecords;
+    private long size;
+    private String sha256;
+    private long createdAt;
+    private volatile long lastAccessed;
+
+    public UploadedFile() {}
+
+    public UploadedFile(String fileId, String filePath, String fileType, int totalRecords, long size, String sha256) {
+        this.fileId = fileId;
+        this.filePath = filePath;
+        this.fileType = fileType;
+        this.totalRecords = totalRecords;
+        this.size = size;
+        this.sha256 = sha256;
+        this.createdAt = System.currentTimeMillis();
+        this.lastAccessed = this.createdAt;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public void setFileId(String fileId) {
+        this.fileId = fileId;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+
+    public int getTotalRecords() {
+        return totalRecords;
+    }
+
+    public void setTotalRecords(int totalRecords) {
+        this.totalRecords = totalRecords;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getLastAccessed() {
+        return lastAccessed;
+    }
+
+    public void setLastAccessed(long lastAccessed) {
+        this.lastAccessed = lastAccessed;
+    }
+}
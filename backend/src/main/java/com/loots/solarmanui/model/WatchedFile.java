@@ -0,0 +1,76 @@
+package com.loots.solarmanui.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * What the watch folder last imported from one workbook: its size, modification
+ * time and hash to recognise it unchanged, and how many rows were imported up to
+ * which record, so that rows appended later are imported on their own.
+ */
+public class WatchedFile {
+    private String fileType;
+    private long size;
+    private long lastModified;
+    private String sha256;
+    private int rowsImported;
+    private LocalDateTime lastRecord;
+    private LocalDateTime importedAt;
+
+    public WatchedFile() {}
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public int getRowsImported() {
+        return rowsImported;
+    }
+
+    public void setRowsImported(int rowsImported) {
+        this.rowsImported = rowsImported;
+    }
+
+    public LocalDateTime getLastRecord() {
+        return lastRecord;
+    }
+
+    public void setLastRecord(LocalDateTime lastRecord) {
+        this.lastRecord = lastRecord;
+    }
+
+    public LocalDateTime getImportedAt() {
+        return importedAt;
+    }
+
+    public void setImportedAt(LocalDateTime importedAt) {
+        this.importedAt = importedAt;
+    }
+}
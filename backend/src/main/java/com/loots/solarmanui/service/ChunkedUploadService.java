@@ -0,0 +1,232 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.ChunkedUploadStatus;
+import com.loots.solarmanui.model.StoredUpload;
+import com.loots.solarmanui.model.UploadSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable chunked uploads. {@link #init} preallocates the target file, chunks
+ * are written at their offsets with positional channel writes, and
+ * {@link #complete} hands the finished file to the {@link UploadStore}.
+ * The received byte ranges are tracked so a client whose connection dropped
+ * can ask for the missing ranges and resend only those. Sessions are kept in the
+ * upload registry next to the part files, so with a shared registry and upload
+ * directory any replica can take any chunk, and a restart resumes them.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Value("${solarman.upload.chunked-session-ttl:PT24H}")
+    private Duration sessionTtl = Duration.ofHours(24);
+
+    // Chunks normally arrive in order, so the hash is computed over the contiguous
+    // prefix this replica wrote as it goes; anything else is read back on completion.
+    private final Map<String, PrefixHash> hashes = new ConcurrentHashMap<>();
+
+    public ChunkedUploadStatus init(String filename, String fileType, long totalSize) throws IOException {
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("totalSize must be greater than zero");
+        }
+        if (totalSize > uploadStore.getMaxFileSize()) {
+            throw new MaxUploadSizeExceededException(uploadStore.getMaxFileSize());
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Path partFile = uploadStore.getUploadDir().resolve(uploadId + ".part");
+        try (RandomAccessFile raf = new RandomAccessFile(partFile.toFile(), "rw")) {
+            raf.setLength(totalSize);
+        }
+
+        UploadSession session = new UploadSession(uploadId, filename, fileType, totalSize, partFile.toString());
+        try {
+            uploadStore.openSession(session);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+        hashes.put(uploadId, new PrefixHash());
+        return session.status();
+    }
+
+    public ChunkedUploadStatus writeChunk(String uploadId, long offset, InputStream in) throws IOException {
+        UploadSession session = getSession(uploadId);
+        long totalSize = session.getTotalSize();
+        if (offset < 0 || offset >= totalSize) {
+            throw new IllegalArgumentException("Offset " + offset + " is outside the upload of " + totalSize + " bytes");
+        }
+
+        PrefixHash hash = hashes.computeIfAbsent(uploadId, id -> new PrefixHash());
+        byte[] bytes = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = offset;
+        try (FileChannel channel = FileChannel.open(Paths.get(session.getPartPath()), StandardOpenOption.WRITE)) {
+            try {
+                int read;
+                while ((read = in.read(bytes)) != -1) {
+                    if (position + read > totalSize) {
+                        throw new IllegalArgumentException("Chunk extends past the declared size of " + totalSize + " bytes");
+                    }
+                    buffer.clear().limit(read);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, position + buffer.position());
+                    }
+                    hash.update(position, bytes, read);
+                    position += read;
+                }
+            } finally {
+                // Whatever was written before a dropped connection is kept, and only recorded once it is on disk
+                if (position > offset) {
+                    channel.force(false);
+                    session = uploadStore.recordChunk(uploadId, offset, position);
+                }
+            }
+        }
+
+        if (session == null) {
+            throw new IllegalArgumentException("Unknown or expired upload: " + uploadId);
+        }
+        return session.status();
+    }
+
+    public ChunkedUploadStatus getStatus(String uploadId) {
+        return getSession(uploadId).status();
+    }
+
+    public String getFileType(String uploadId) {
+        return getSession(uploadId).getFileType();
+    }
+
+    /** The file the chunks are written to, complete once the upload is. */
+    public Path getPartFile(String uploadId) {
+        return Paths.get(getSession(uploadId).getPartPath());
+    }
+
+    /**
+     * Finalizes a fully received upload and moves it into the upload store.
+     *
+     * @param expectedSha256 optional client-computed hash to verify against
+     */
+    public StoredUpload complete(String uploadId, String expectedSha256) throws IOException {
+        UploadSession session = getSession(uploadId);
+        ChunkedUploadStatus status = session.status();
+        if (!status.isComplete()) {
+            throw new IllegalStateException("Upload is incomplete: received " + status.getReceivedBytes()
+                    + " of " + status.getTotalSize() + " bytes");
+        }
+        // Only one replica gets to complete the upload
+        if (!uploadStore.removeSession(session)) {
+            throw new IllegalArgumentException("Unknown or expired upload: " + uploadId);
+        }
+
+        Path partFile = Paths.get(session.getPartPath());
+        PrefixHash hash = hashes.remove(uploadId);
+        String sha256 = (hash != null ? hash : new PrefixHash()).finish(partFile, session.getTotalSize());
+        if (expectedSha256 != null && !expectedSha256.isBlank() && !expectedSha256.equalsIgnoreCase(sha256)) {
+            Files.deleteIfExists(partFile);
+            throw new IllegalArgumentException("Content hash mismatch: expected " + expectedSha256 + " but received " + sha256);
+        }
+
+        return uploadStore.adopt(partFile, uploadId, session.getFilename(), session.getTotalSize(), sha256);
+    }
+
+    public void abort(String uploadId) {
+        UploadSession session = uploadStore.findSession(uploadId);
+        hashes.remove(uploadId);
+        if (session != null && uploadStore.removeSession(session)) {
+            deletePartFile(session);
+        }
+    }
+
+    /** Background cleanup: discards sessions that have received nothing within the session TTL. */
+    @Scheduled(fixedDelayString = "${solarman.upload.cleanup-interval:PT1M}")
+    public void expireStaleSessions() {
+        long cutoff = System.currentTimeMillis() - sessionTtl.toMillis();
+        Set<String> open = new HashSet<>();
+        for (UploadSession session : uploadStore.findSessions()) {
+            // With a shared registry every replica runs this; only the one whose delete succeeds removes the file
+            if (session.getLastActivity() <= cutoff && uploadStore.removeSession(session)) {
+                deletePartFile(session);
+            } else {
+                open.add(session.getUploadId());
+            }
+        }
+        // Drop prefix hashes of sessions completed, aborted or expired on other replicas
+        hashes.keySet().retainAll(open);
+    }
+
+    private UploadSession getSession(String uploadId) {
+        UploadSession session = uploadStore.findSession(uploadId);
+        if (session == null) {
+            throw new IllegalArgumentException("Unknown or expired upload: " + uploadId);
+        }
+        return session;
+    }
+
+    private void deletePartFile(UploadSession session) {
+        try {
+            Files.deleteIfExists(Paths.get(session.getPartPath()));
+        } catch (IOException e) {
+            System.err.println("Failed to delete partial upload: " + session.getPartPath());
+        }
+    }
+
+    private static final class PrefixHash {
+        private final MessageDigest digest = UploadStore.newSha256();
+        private long hashedUpTo;
+
+        synchronized void update(long start, byte[] bytes, int length) {
+            long end = start + length;
+            if (start <= hashedUpTo && end > hashedUpTo) {
+                int skip = (int) (hashedUpTo - start);
+                digest.update(bytes, skip, length - skip);
+                hashedUpTo = end;
+            }
+        }
+
+        synchronized String finish(Path partFile, long totalSize) throws IOException {
+            if (hashedUpTo < totalSize) {
+                try (FileChannel reader = FileChannel.open(partFile, StandardOpenOption.READ)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                    long position = hashedUpTo;
+                    int read;
+                    while ((read = reader.read(buffer, position)) > 0) {
+                        buffer.flip();
+                        digest.update(buffer);
+                        buffer.clear();
+                        position += read;
+                    }
+                }
+                hashedUpTo = totalSize;
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.loots.solarmanui.model.DatabaseStatus;
 import com.loots.solarmanui.model.LatestRecords;
 import com.loots.solarmanui.model.ProductionStat;
 import com.loots.solarmanui.model.TshwaneUsageStat;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -14,7 +17,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;import java.util.List;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class DatabaseService {
@@ -22,7 +26,14 @@ public class DatabaseService {
     @Autowired
     private DataSource dataSource;
 
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
     public DatabaseStatus checkDatabaseConnection() {
+        return queryTimer("connection-check").record(this::queryConnectionStatus);
+    }
+
+    private DatabaseStatus queryConnectionStatus() {
         LocalDateTime now = LocalDateTime.now();
 
         try (Connection connection = dataSource.getConnection()) {
@@ -39,6 +50,10 @@ public class DatabaseService {
     }
 
     public LatestRecords getLatestRecordTimestamps() {
+        return queryTimer("latest-records").record(this::queryLatestRecordTimestamps);
+    }
+
+    private LatestRecords queryLatestRecordTimestamps() {
         LocalDateTime latestSolarMan = null;
         LocalDateTime latestTshwane = null;
 
@@ -88,6 +103,10 @@ public class DatabaseService {
     }
 
     public List<ProductionStat> getProductionStats(int days) {
+        return queryTimer("production-stats").record(() -> queryProductionStats(days));
+    }
+
+    private List<ProductionStat> queryProductionStats(int days) {
         List<ProductionStat> stats = new ArrayList<>();
         
         // SQL query using time-weighted calculation from Grafana dashboard
@@ -137,6 +156,10 @@ public class DatabaseService {
     }
 
     public List<TshwaneUsageStat> getTshwaneUsageStats(int readings) {
+        return queryTimer("tshwane-usage").record(() -> queryTshwaneUsageStats(readings));
+    }
+
+    private List<TshwaneUsageStat> queryTshwaneUsageStats(int readings) {
         List<TshwaneUsageStat> stats = new ArrayList<>();
 
         String sql =
@@ -174,4 +197,11 @@ public class DatabaseService {
 
         return stats;
     }
+
+    private Timer queryTimer(String query) {
+        return Timer.builder("solarman.db.query")
+                .tag("query", query)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 }
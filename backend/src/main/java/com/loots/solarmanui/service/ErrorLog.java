@@ -0,0 +1,89 @@
+package com.loots.solarmanui.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The most recent errors, kept in a fixed-size ring that threads write to without
+ * locking, and echoed to stderr through a rate-limited background printer.
+ *
+ * <p>A file that fails on every row would otherwise allocate and print one line
+ * per row on the import thread. Here each error costs one slot write; at most
+ * {@link #LINES_PER_SECOND} lines a second reach stderr, off the calling thread,
+ * and the rest are summed into a single "suppressed" line.
+ */
+public final class ErrorLog {
+
+    static final int LINES_PER_SECOND = 20;
+
+    private static final AtomicLong WINDOW = new AtomicLong();
+    private static final AtomicInteger PRINTED_IN_WINDOW = new AtomicInteger();
+    private static final AtomicLong SUPPRESSED = new AtomicLong();
+
+    private static final ThreadPoolExecutor PRINTER = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(LINES_PER_SECOND * 10), runnable -> {
+                Thread thread = new Thread(runnable, "error-log");
+                thread.setDaemon(true);
+                return thread;
+            }, (task, executor) -> SUPPRESSED.incrementAndGet());
+
+    private record Entry(long sequence, String text) {}
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong clearedUpTo = new AtomicLong();
+
+    public ErrorLog(int capacity) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /** Records the entry and prints it, subject to the rate limit. */
+    public void add(String entry) {
+        long sequence = next.getAndIncrement();
+        slots.set((int) (sequence % slots.length()), new Entry(sequence, entry));
+        print(entry);
+    }
+
+    /** The retained entries, oldest first. */
+    public List<String> recent() {
+        long end = next.get();
+        long start = Math.max(clearedUpTo.get(), end - slots.length());
+        List<String> entries = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            Entry entry = slots.get((int) (sequence % slots.length()));
+            // A slot still being written, or already overwritten, holds another sequence
+            if (entry != null && entry.sequence() == sequence) {
+                entries.add(entry.text());
+            }
+        }
+        return entries;
+    }
+
+    public void clear() {
+        clearedUpTo.set(next.get());
+    }
+
+    /** Prints a line to stderr on the background printer, unless this second's quota is used up. */
+    public static void print(String line) {
+        long second = System.nanoTime() / 1_000_000_000L;
+        long window = WINDOW.get();
+        if (window != second && WINDOW.compareAndSet(window, second)) {
+            PRINTED_IN_WINDOW.set(0);
+            long suppressed = SUPPRESSED.getAndSet(0);
+            if (suppressed > 0) {
+                PRINTER.execute(() -> System.err.println("... " + suppressed + " more errors not printed"));
+            }
+        }
+        if (PRINTED_IN_WINDOW.incrementAndGet() > LINES_PER_SECOND) {
+            SUPPRESSED.incrementAndGet();
+            return;
+        }
+        PRINTER.execute(() -> System.err.println(line));
+    }
+}
@@ -1,172 +1,488 @@
 package com.loots.solarmanui.service;
 
+import com.loots.solarmanui.model.ImportProfile;
 import com.loots.solarmanui.model.SolarManRecord;
 import com.loots.solarmanui.model.TshwaneRecord;
-import org.apache.poi.ss.usermodel.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.usermodel.DateUtil;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 @Service
 public class ExcelProcessingService {
 
+    private static final String SOLARMAN = "solarman";
+    private static final String TSHWANE = "tshwane";
     private static final String TSHWANE_SHEET_NAME = "Elektrisiteit Lesings";
+    private static final LocalDateTime EARLIEST_RECORD = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    /** Threads converting SolarMan rows; 0 uses one per available processor, 1 parses serially. */
+    @Value("${solarman.parse.parallelism:0}")
+    private int parallelism = 0;
+
+    /** Rows per range handed to a parse thread. */
+    @Value("${solarman.parse.range-size:4096}")
+    private int rangeSize = 4096;
+
+    /** A workbook whose largest sheet is at most this much XML may be parsed through the DOM. */
+    @Value("${solarman.parse.dom-max-sheet-size:1MB}")
+    private DataSize domMaxSheetSize = DataSize.ofMegabytes(1);
+
+    /** Heap the DOM takes per byte of sheet and shared-string XML. */
+    @Value("${solarman.parse.dom-heap-per-xml-byte:12}")
+    private double domHeapPerXmlByte = 12;
+
+    /** Share of the currently free heap a DOM parse may take. */
+    @Value("${solarman.parse.dom-heap-share:0.1}")
+    private double domHeapShare = 0.1;
+
+    /** Sheets of at least this much XML, or .xls files of this size, have their rows converted in parallel. */
+    @Value("${solarman.parse.parallel-min-sheet-size:8MB}")
+    private DataSize parallelMinSheetSize = DataSize.ofMegabytes(8);
+
+    /** Inverter export layouts the first sheet of an inverter workbook is detected against. */
+    @Autowired(required = false)
+    private InverterFormatRegistry formats;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private ForkJoinPool parsePool;
 
     public List<SolarManRecord> processSolarManFile(MultipartFile file) throws IOException {
-        List<SolarManRecord> records = new ArrayList<>();
+        try (InputStream in = file.getInputStream()) {
+            return readSolarManWorkbook(openWorkbook(SOLARMAN, in), EARLIEST_RECORD);
+        }
+    }
+
+    /**
+     * Parses a SolarMan workbook already saved to disk. The workbook is opened
+     * read-only from the file; a small one is read through the DOM, a larger one
+     * streamed straight out of the zip, or out of the OLE2 container for a legacy
+     * .xls workbook.
+     */
+    public List<SolarManRecord> processSolarManFile(Path path) throws IOException {
+        return readSolarManFile(path, EARLIEST_RECORD);
+    }
 
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
+    /**
+     * Parses only the rows at or after {@code notBefore}. Older rows are dropped as
+     * soon as their timestamp is read, before any other cell is converted, so an
+     * append import costs in proportion to the new rows rather than the file.
+     */
+    public List<SolarManRecord> processSolarManFile(Path path, LocalDateTime notBefore) throws IOException {
+        LocalDateTime cutoff = notBefore != null && notBefore.isAfter(EARLIEST_RECORD) ? notBefore : EARLIEST_RECORD;
+        return readSolarManFile(path, cutoff);
+    }
 
-            boolean firstRow = true;
-            for (Row row : sheet) {
-                if (row == null) continue;
+    /** A stored CSV export, kept under its original extension, takes the CSV reader. */
+    private List<SolarManRecord> readSolarManFile(Path path, LocalDateTime notBefore) throws IOException {
+        if (validateCsvFileName(path.getFileName().toString())) {
+            Timer.Sample read = Timer.start(meterRegistry);
+            ImportProfiler.Span readSpan = ImportProfiler.stage("read");
+            List<SolarManRecord> records = SolarManCsvReader.read(path, notBefore);
+            recordParse(SOLARMAN, "csv", read, readSpan, records.size());
+            return records;
+        }
+        return readSolarManWorkbook(openWorkbook(SOLARMAN, path), notBefore);
+    }
 
-                if (firstRow) {
-                    if (!validateSolarManColumns(row)) {
+    public List<TshwaneRecord> processTshwaneFile(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return readTshwaneWorkbook(openWorkbook(TSHWANE, in));
+        }
+    }
+
+    /**
+     * Parses a Tshwane workbook already saved to disk. Only the readings sheet is
+     * inflated and streamed; the workbook's other sheets are never read.
+     */
+    public List<TshwaneRecord> processTshwaneFile(Path path) throws IOException {
+        return readTshwaneWorkbook(openWorkbook(TSHWANE, path));
+    }
+
+    private List<SolarManRecord> readSolarManWorkbook(WorkbookSource workbook, LocalDateTime notBefore) throws IOException {
+        RowRangeConverter[] converter = {null};
+        int threads = workbook.engine == ParseEngine.PARALLEL_STREAMING ? parallelism() : 1;
+        Timer.Sample read = Timer.start(meterRegistry);
+        ImportProfiler.Span readSpan = ImportProfiler.stage("read");
+
+        try (workbook) {
+            workbook.readSheet(null, (rowIndex, cells) -> {
+                if (converter[0] == null) {
+                    InverterFormat.RowMapper mapper = formats().detect(cells);
+                    if (mapper == null) {
                         throw new IllegalArgumentException("Invalid SolarMan Excel format - column headers do not match expected format");
                     }
-                    firstRow = false;
-                    continue;
+                    converter[0] = new RowRangeConverter(mapper, threads, notBefore);
+                    return;
                 }
 
-                SolarManRecord record = parseSolarManRow(row);
-                if (record != null) {
-                    records.add(record);
+                converter[0].add(cells);
+            });
+            List<SolarManRecord> records = converter[0] != null ? converter[0].finish() : new ArrayList<>();
+            recordParse(SOLARMAN, workbook.engineTag(), read, readSpan, records.size());
+            return records;
+        }
+    }
+
+    /**
+     * Converts the rows tokenized by the sheet reader into records. Rows are cut into
+     * contiguous ranges and each full range is converted on the parse pool while the
+     * reader carries on with the next, so date and number parsing, the bulk of the
+     * work, runs on every core. Ranges are joined in row order, which gives exactly
+     * the records, and the order, of a serial parse. Only a few ranges per thread
+     * are held at once, so a large sheet never has all its raw rows in memory.
+     */
+    private final class RowRangeConverter {
+        private final InverterFormat.RowMapper mapper;
+        private final int threads;
+        private final LocalDateTime notBefore;
+        private final ImportProfile profile = ImportProfiler.current();
+        private final Deque<ForkJoinTask<List<SolarManRecord>>> inFlight = new ArrayDeque<>();
+        private final List<SolarManRecord> records = new ArrayList<>();
+        private List<String[]> range = new ArrayList<>();
+
+        RowRangeConverter(InverterFormat.RowMapper mapper, int threads, LocalDateTime notBefore) {
+            this.mapper = mapper;
+            this.threads = threads;
+            this.notBefore = notBefore;
+        }
+
+        void add(String[] cells) {
+            range.add(cells);
+            if (range.size() >= rangeSize) {
+                submit(false);
+            }
+        }
+
+        List<SolarManRecord> finish() {
+            if (!range.isEmpty()) {
+                submit(true);
+            }
+            while (!inFlight.isEmpty()) {
+                records.addAll(inFlight.poll().join());
+            }
+            return records;
+        }
+
+        private void submit(boolean last) {
+            List<String[]> rows = range;
+            range = new ArrayList<>();
+            if (threads <= 1 || (last && inFlight.isEmpty())) {
+                // Nothing to overlap with: a small sheet is converted on the calling thread
+                records.addAll(convert(rows));
+                return;
+            }
+            inFlight.add(parsePool().submit(() -> convert(rows)));
+            while (inFlight.size() > threads * 2) {
+                records.addAll(inFlight.poll().join());
+            }
+        }
+
+        /** Timed into the import's profile from whichever thread runs it, so pool CPU time is counted too. */
+        private List<SolarManRecord> convert(List<String[]> rows) {
+            List<SolarManRecord> converted = new ArrayList<>(rows.size());
+            try (ImportProfiler.Span span = ImportProfiler.stage(profile, "convert")) {
+                for (String[] cells : rows) {
+                    SolarManRecord record = mapper.map(cells, notBefore);
+                    if (record != null) {
+                        converted.add(record);
+                    }
                 }
             }
+            return converted;
         }
+    }
 
-        return records;
+    private synchronized InverterFormatRegistry formats() {
+        if (formats == null) {
+            formats = InverterFormatRegistry.defaults();
+        }
+        return formats;
     }
 
-    public List<TshwaneRecord> processTshwaneFile(MultipartFile file) throws IOException {
-        List<TshwaneRecord> records = new ArrayList<>();
+    private int parallelism() {
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
 
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = findSheet(workbook, TSHWANE_SHEET_NAME);
-            if (sheet == null) {
-                throw new IllegalArgumentException("Sheet '" + TSHWANE_SHEET_NAME + "' not found in workbook");
-            }
+    private synchronized ForkJoinPool parsePool() {
+        if (parsePool == null) {
+            parsePool = new ForkJoinPool(parallelism(), pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("sheet-parse-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return parsePool;
+    }
 
-            boolean firstRow = true;
-            for (Row row : sheet) {
-                if (row == null) continue;
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (parsePool != null) {
+            parsePool.shutdownNow();
+        }
+    }
 
-                if (firstRow) {
-                    firstRow = false;
-                    continue;
+    private List<TshwaneRecord> readTshwaneWorkbook(WorkbookSource workbook) throws IOException {
+        List<TshwaneRecord> records = new ArrayList<>();
+        boolean[] firstRow = {true};
+        Timer.Sample read = Timer.start(meterRegistry);
+        ImportProfiler.Span readSpan = ImportProfiler.stage("read");
+
+        try (workbook) {
+            boolean found = workbook.readSheet(TSHWANE_SHEET_NAME, (rowIndex, cells) -> {
+                if (firstRow[0]) {
+                    firstRow[0] = false;
+                    return;
                 }
 
-                TshwaneRecord record = parseTshwaneRow(row);
+                TshwaneRecord record = parseTshwaneRow(cells);
                 if (record != null) {
                     records.add(record);
                 }
+            });
+            if (!found) {
+                throw new IllegalArgumentException("Sheet '" + TSHWANE_SHEET_NAME + "' not found in workbook");
             }
+            recordParse(TSHWANE, workbook.engineTag(), read, readSpan, records.size());
         }
 
         return records;
     }
 
-    private boolean validateSolarManColumns(Row headerRow) {
-        if (headerRow.getLastCellNum() < 12) {
-            return false;
+    /**
+     * An open .xlsx package or legacy .xls file system, whichever the file's magic
+     * bytes say it is, so both formats feed the same row handlers.
+     */
+    private static final class WorkbookSource implements Closeable {
+        private final OPCPackage pkg;
+        private final POIFSFileSystem fs;
+        private final ParseEngine engine;
+
+        WorkbookSource(OPCPackage pkg, ParseEngine engine) {
+            this.pkg = pkg;
+            this.fs = null;
+            this.engine = engine;
+        }
+
+        WorkbookSource(POIFSFileSystem fs, ParseEngine engine) {
+            this.pkg = null;
+            this.fs = fs;
+            this.engine = engine;
         }
 
-        String[] expectedHeaders = {
-            "Plant", "Updated", "Time", "Production", "Consumption", "Grid",
-            "Purchasing", "Feed-in", "Battery", "Charging", "Discharging", "SoC"
-        };
+        String engineTag() {
+            return pkg != null ? engine.name().toLowerCase(Locale.ROOT) : "xls";
+        }
 
-        for (int i = 0; i < expectedHeaders.length; i++) {
-            Cell cell = headerRow.getCell(i);
-            if (cell == null || cell.getCellType() != CellType.STRING) {
-                return false;
+        boolean readSheet(String sheetName, XlsxRowReader.RowHandler handler) throws IOException {
+            if (pkg == null) {
+                return XlsRowReader.readSheet(fs, sheetName, handler);
             }
+            return engine == ParseEngine.DOM
+                    ? XlsxDomRowReader.readSheet(pkg, sheetName, handler)
+                    : XlsxRowReader.readSheet(pkg, sheetName, handler);
+        }
 
-            String value = cell.getStringCellValue();
-            if (!value.startsWith(expectedHeaders[i])) {
-                return false;
+        @Override
+        public void close() throws IOException {
+            if (pkg != null) {
+                pkg.revert();
+            } else {
+                fs.close();
             }
         }
+    }
 
-        return true;
+    private WorkbookSource openWorkbook(String type, InputStream in) throws IOException {
+        Timer.Sample open = Timer.start(meterRegistry);
+        ImportProfiler.Span openSpan = ImportProfiler.stage("open");
+        InputStream stream = FileMagic.prepareToCheckMagic(in);
+        FileMagic magic = FileMagic.valueOf(stream);
+        // An upload stream has no central directory to size the sheets from
+        if (magic == FileMagic.OLE2) {
+            return opened(type, open, openSpan, new WorkbookSource(new POIFSFileSystem(stream), ParseEngine.PARALLEL_STREAMING));
+        }
+        if (magic != FileMagic.OOXML) {
+            throw new IllegalArgumentException("Not a valid Excel workbook: unrecognised file format " + magic);
+        }
+        try {
+            return opened(type, open, openSpan, new WorkbookSource(OPCPackage.open(stream), ParseEngine.PARALLEL_STREAMING));
+        } catch (InvalidFormatException e) {
+            throw new IllegalArgumentException("Not a valid Excel workbook: " + e.getMessage(), e);
+        }
     }
 
-    private SolarManRecord parseSolarManRow(Row row) {
+    private WorkbookSource openWorkbook(String type, Path path) throws IOException {
+        Timer.Sample open = Timer.start(meterRegistry);
+        ImportProfiler.Span openSpan = ImportProfiler.stage("open");
+        FileMagic magic = FileMagic.valueOf(path.toFile());
+        if (magic != FileMagic.OLE2 && magic != FileMagic.OOXML) {
+            throw new IllegalArgumentException("Not a valid Excel workbook: unrecognised file format " + magic);
+        }
+        ParsePlan plan = magic == FileMagic.OLE2 ? planLegacyParse(path) : planParse(path);
+        ImportProfile profile = ImportProfiler.current();
+        if (profile != null) {
+            profile.setParseEngine(plan.engine().name().toLowerCase(Locale.ROOT));
+            profile.setParseReason(plan.reason());
+        }
+        if (magic == FileMagic.OLE2) {
+            return opened(type, open, openSpan, new WorkbookSource(new POIFSFileSystem(path.toFile(), true), plan.engine()));
+        }
         try {
-            String updateTimeStr = getCellValueAsString(row.getCell(1), "");
-            if (updateTimeStr.isEmpty()) {
-                return null;
-            }
+            return opened(type, open, openSpan, new WorkbookSource(OPCPackage.open(path.toFile(), PackageAccess.READ), plan.engine()));
+        } catch (InvalidFormatException e) {
+            throw new IllegalArgumentException("Not a valid Excel workbook: " + e.getMessage(), e);
+        }
+    }
 
-            LocalDateTime updateTime = parseTimestamp(updateTimeStr);
-            if (updateTime == null) {
-                return null;
-            }
+    /** Opening covers sizing the workbook, choosing the engine and reading the package or file system. */
+    private WorkbookSource opened(String type, Timer.Sample open, ImportProfiler.Span openSpan, WorkbookSource workbook) {
+        open.stop(parseTimer(type, workbook.engineTag(), "open"));
+        openSpan.close();
+        return workbook;
+    }
 
-            // Filter records before 2020-01-01
-            if (updateTime.isBefore(LocalDateTime.of(2020, 1, 1, 0, 0))) {
-                return null;
+    private void recordParse(String type, String engine, Timer.Sample read, ImportProfiler.Span readSpan, int rows) {
+        read.stop(parseTimer(type, engine, "read"));
+        readSpan.close();
+        meterRegistry.counter("solarman.parse.rows", "type", type, "engine", engine).increment(rows);
+    }
+
+    private Timer parseTimer(String type, String engine, String stage) {
+        return meterRegistry.timer("solarman.parse.duration", "type", type, "engine", engine, "stage", stage);
+    }
+
+    enum ParseEngine { DOM, STREAMING, PARALLEL_STREAMING }
+
+    record ParsePlan(ParseEngine engine, String reason) {}
+
+    /**
+     * Picks the engine for an .xlsx workbook from the uncompressed part sizes in its
+     * zip central directory, which is read without inflating anything.
+     */
+    private ParsePlan planParse(Path path) {
+        long sheetBytes = 0;
+        long largestSheetBytes = 0;
+        long sharedStringsBytes = 0;
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                // Size is -1 when the directory does not record it; assume typical XML compression
+                long size = entry.getSize() >= 0 ? entry.getSize() : entry.getCompressedSize() * 10;
+                if (name.startsWith("xl/worksheets/") && name.endsWith(".xml")) {
+                    sheetBytes += size;
+                    largestSheetBytes = Math.max(largestSheetBytes, size);
+                } else if (name.equals("xl/sharedStrings.xml")) {
+                    sharedStringsBytes = size;
+                }
             }
+        } catch (IOException e) {
+            return new ParsePlan(ParseEngine.PARALLEL_STREAMING, "zip directory unreadable (" + e.getMessage() + ")");
+        }
+        return planParse(sheetBytes, largestSheetBytes, sharedStringsBytes, availableHeap());
+    }
 
-            SolarManRecord record = new SolarManRecord();
-            record.setUpdated(updateTime);
-            record.setProductionPower(getCellValueAsDouble(row.getCell(3), 0.0));
-            record.setConsumePower(getCellValueAsDouble(row.getCell(4), 0.0));
-            record.setGridPower(getCellValueAsDouble(row.getCell(5), 0.0));
-            record.setPurchasePower(getCellValueAsDouble(row.getCell(6), 0.0));
-            record.setFeedIn(getCellValueAsDouble(row.getCell(7), 0.0));
-            record.setBatteryPower(getCellValueAsDouble(row.getCell(8), 0.0));
-            record.setChargePower(getCellValueAsDouble(row.getCell(9), 0.0));
-            record.setDischargePower(getCellValueAsDouble(row.getCell(10), 0.0));
-            record.setSoc(getCellValueAsDouble(row.getCell(11), 0.0));
+    /**
+     * The DOM inflates every sheet and the shared strings together, so it is only
+     * used when the largest sheet is small and the whole workbook fits a share of
+     * the free heap. Otherwise the sheet is streamed, with rows converted in parallel
+     * once the sheet is large enough to keep the parse pool busy.
+     */
+    ParsePlan planParse(long sheetBytes, long largestSheetBytes, long sharedStringsBytes, long availableHeap) {
+        String sizes = kb(largestSheetBytes) + " largest sheet, " + kb(sheetBytes) + " all sheets, "
+                + kb(sharedStringsBytes) + " shared strings";
+        long domHeap = (long) ((sheetBytes + sharedStringsBytes) * domHeapPerXmlByte);
+        long domBudget = (long) (availableHeap * domHeapShare);
+        if (largestSheetBytes <= domMaxSheetSize.toBytes() && domHeap <= domBudget) {
+            return new ParsePlan(ParseEngine.DOM, sizes + "; DOM needs ~" + kb(domHeap) + " of " + kb(domBudget) + " allowed");
+        }
+        String reason = largestSheetBytes > domMaxSheetSize.toBytes()
+                ? sizes + "; over DOM limit of " + kb(domMaxSheetSize.toBytes())
+                : sizes + "; DOM would need ~" + kb(domHeap) + " of " + kb(domBudget) + " allowed";
+        return planStreaming(largestSheetBytes, reason);
+    }
 
-            return record;
-        } catch (Exception e) {
-            System.err.println("Error parsing SolarMan row: " + e.getMessage());
-            return null;
+    /** A legacy .xls workbook is always streamed; its file size stands in for the sheet size. */
+    private ParsePlan planLegacyParse(Path path) {
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (IOException e) {
+            size = 0;
         }
+        return planStreaming(size, kb(size) + " .xls workbook, no DOM for legacy files");
     }
 
-    private TshwaneRecord parseTshwaneRow(Row row) {
+    private ParsePlan planStreaming(long sheetBytes, String reason) {
+        int threads = parallelism();
+        if (threads > 1 && sheetBytes >= parallelMinSheetSize.toBytes()) {
+            return new ParsePlan(ParseEngine.PARALLEL_STREAMING, reason + "; " + threads + " parse threads");
+        }
+        return new ParsePlan(ParseEngine.STREAMING, threads > 1
+                ? reason + "; under parallel threshold of " + kb(parallelMinSheetSize.toBytes())
+                : reason + "; parallel parsing disabled");
+    }
+
+    private static long availableHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    private static String kb(long bytes) {
+        return (bytes / 1024) + " KB";
+    }
+
+    private TshwaneRecord parseTshwaneRow(String[] cells) {
         try {
-            // Col A (index 0) = reading date — may be a native date cell or a string
-            Cell dateCell = row.getCell(0);
-            if (dateCell == null) return null;
-
-            LocalDateTime readingDate;
-            if (dateCell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(dateCell)) {
-                readingDate = dateCell.getDateCellValue()
-                        .toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-            } else {
-                String readingDateStr = getCellValueAsString(dateCell, "");
-                if (readingDateStr.isEmpty()) return null;
-                readingDate = parseDate(readingDateStr);
-            }
+            // Col A (index 0) = reading date — an Excel date serial or a string
+            String readingDateStr = cellAsString(cells, 0);
+            if (readingDateStr.isEmpty()) return null;
 
+            LocalDateTime readingDate = parseDate(readingDateStr);
             if (readingDate == null) return null;
 
             // Col C (index 2) = Cumulative Electricity used; skip rows where it is null/empty
-            Cell cumulativeCell = row.getCell(2);
-            if (cumulativeCell == null || cumulativeCell.getCellType() == CellType.BLANK) {
+            if (cellAsString(cells, 2).isEmpty()) {
                 return null;
             }
-            double cumulativeValue = getCellValueAsDouble(cumulativeCell, -1.0);
+            double cumulativeValue = cellAsDouble(cells, 2, -1.0);
             if (cumulativeValue < 0) {
                 return null;
             }
 
             // Col O (index 14) = sparse milestone notes
-            String notes = getCellValueAsString(row.getCell(14), "");
+            String notes = cellAsString(cells, 14);
 
             TshwaneRecord record = new TshwaneRecord();
             record.setReadingDate(readingDate);
@@ -175,81 +491,22 @@ public class ExcelProcessingService {
 
             return record;
         } catch (Exception e) {
-            System.err.println("Error parsing Tshwane row: " + e.getMessage());
+            ErrorLog.print("Error parsing Tshwane row: " + e.getMessage());
             return null;
         }
     }
 
-    private Sheet findSheet(Workbook workbook, String sheetName) {
-        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-            if (sheetName.equalsIgnoreCase(workbook.getSheetName(i))) {
-                return workbook.getSheetAt(i);
-            }
-        }
-        return null;
-    }
-
-    private String getCellValueAsString(Cell cell, String defaultValue) {
-        if (cell == null) return defaultValue;
-        switch (cell.getCellType()) {
-            case STRING:
-                String value = cell.getStringCellValue();
-                return value.isEmpty() ? defaultValue : value;
-            case NUMERIC:
-                return String.valueOf(cell.getNumericCellValue());
-            default:
-                return defaultValue;
-        }
-    }
-
-    private double getCellValueAsDouble(Cell cell, double defaultValue) {
-        if (cell == null) return defaultValue;
-        CellType cellType = cell.getCellType();
-        // For formula cells, use the cached computed result type
-        if (cellType == CellType.FORMULA) {
-            cellType = cell.getCachedFormulaResultType();
-        }
-        switch (cellType) {
-            case STRING:
-                String value = cell.getStringCellValue();
-                try {
-                    return value.isEmpty() ? defaultValue : Double.parseDouble(value);
-                } catch (NumberFormatException e) {
-                    return defaultValue;
-                }
-            case NUMERIC:
-                return cell.getNumericCellValue();
-            default:
-                return defaultValue;
-        }
+    private String cellAsString(String[] cells, int index) {
+        if (index >= cells.length || cells[index] == null) return "";
+        return cells[index];
     }
 
-    private LocalDateTime parseTimestamp(String value) {
-        if (value == null || value.isEmpty()) {
-            return null;
-        }
-
+    private double cellAsDouble(String[] cells, int index, double defaultValue) {
+        String value = cellAsString(cells, index);
         try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy/MM/dd HH:mm");
-            sdf.setLenient(false);
-            Date date = sdf.parse(value);
-            return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        } catch (ParseException e) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-                sdf.setLenient(false);
-                Date date = sdf.parse(value);
-                return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-            } catch (ParseException e2) {
-                try {
-                    SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy HH:mm");
-                    sdf.setLenient(false);
-                    Date date = sdf.parse(value);
-                    return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-                } catch (ParseException e3) {
-                    return null;
-                }
-            }
+            return value.isEmpty() ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
         }
     }
 
@@ -281,12 +538,8 @@ public class ExcelProcessingService {
     }
 
     private LocalDateTime convertExcelDateToLocalDateTime(double excelDate) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(1899, Calendar.DECEMBER, 30, 0, 0, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long baseTime = calendar.getTimeInMillis();
-        long timeInMillis = baseTime + (long) (excelDate * 24 * 60 * 60 * 1000);
-        return new Date(timeInMillis).toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+        // Rounded to the millisecond as POI does for date-formatted cells
+        return DateUtil.getLocalDateTime(excelDate);
     }
 
     public boolean validateFileFormat(MultipartFile file, String expectedType) {
@@ -294,11 +547,19 @@ public class ExcelProcessingService {
             return false;
         }
 
-        String originalFilename = file.getOriginalFilename();
+        return validateFileName(file.getOriginalFilename());
+    }
+
+    public boolean validateFileName(String originalFilename) {
         if (originalFilename == null) {
             return false;
         }
 
         return originalFilename.toLowerCase().endsWith(".xlsx") || originalFilename.toLowerCase().endsWith(".xls");
     }
+
+    /** SolarMan exports can also be uploaded as CSV, with {@code ?format=csv}. */
+    public boolean validateCsvFileName(String originalFilename) {
+        return originalFilename != null && originalFilename.toLowerCase().endsWith(".csv");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.loots.solarmanui.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loots.solarmanui.model.UploadSession;
+import com.loots.solarmanui.model.UploadedFile;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single-replica registry: entries live in memory and are persisted to a JSON
+ * index in the upload directory so file IDs survive a restart. Chunked upload
+ * sessions are persisted the same way, to their own index.
+ */
+@Component
+@ConditionalOnProperty(name = "solarman.upload.registry", havingValue = "file", matchIfMissing = true)
+public class FileUploadRegistry implements UploadRegistry {
+
+    static final String INDEX_FILE = "uploads-index.json";
+    static final String SESSIONS_FILE = "upload-sessions.json";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, UploadedFile> index = new ConcurrentHashMap<>();
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean sessionsDirty = new AtomicBoolean();
+    private final Object writeLock = new Object();
+    private Path indexFile;
+    private Path sessionsFile;
+
+    @Override
+    public void open(Path uploadDir) {
+        indexFile = uploadDir.resolve(INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            try {
+                List<UploadedFile> entries = objectMapper.readValue(indexFile.toFile(), new TypeReference<List<UploadedFile>>() {});
+                entries.forEach(entry -> index.put(entry.getFileId(), entry));
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable upload index: " + e.getMessage());
+            }
+        }
+        sessionsFile = uploadDir.resolve(SESSIONS_FILE);
+        if (Files.exists(sessionsFile)) {
+            try {
+                List<UploadSession> entries = objectMapper.readValue(sessionsFile.toFile(), new TypeReference<List<UploadSession>>() {});
+                entries.forEach(entry -> sessions.put(entry.getUploadId(), entry));
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable upload session index: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Whether the file is one of the registry's own indexes rather than an upload. */
+    static boolean isIndexFile(String fileName) {
+        return fileName.startsWith(INDEX_FILE) || fileName.startsWith(SESSIONS_FILE);
+    }
+
+    @Override
+    public void save(UploadedFile uploadedFile) {
+        index.put(uploadedFile.getFileId(), uploadedFile);
+        dirty.set(true);
+    }
+
+    @Override
+    public UploadedFile find(String fileId) {
+        return index.get(fileId);
+    }
+
+    @Override
+    public UploadedFile findByHash(String sha256, String fileType) {
+        return index.values().stream()
+                .filter(entry -> sha256.equals(entry.getSha256()) && fileType.equals(entry.getFileType()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public boolean delete(String fileId) {
+        if (index.remove(fileId) != null) {
+            dirty.set(true);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Collection<UploadedFile> findAll() {
+        return new ArrayList<>(index.values());
+    }
+
+    @Override
+    public void touch(String fileId, long lastAccessed) {
+        UploadedFile uploadedFile = index.get(fileId);
+        if (uploadedFile != null) {
+            // Access times only drive eviction order, so they are persisted with the next structural change
+            uploadedFile.setLastAccessed(lastAccessed);
+        }
+    }
+
+    @Override
+    public void saveSession(UploadSession session) {
+        sessions.put(session.getUploadId(), session);
+        sessionsDirty.set(true);
+    }
+
+    @Override
+    public UploadSession findSession(String uploadId) {
+        return sessions.get(uploadId);
+    }
+
+    @Override
+    public UploadSession recordChunk(String uploadId, long start, long end, long now) {
+        UploadSession session = sessions.get(uploadId);
+        if (session != null) {
+            session.addRange(start, end);
+            session.setLastActivity(now);
+            sessionsDirty.set(true);
+        }
+        return session;
+    }
+
+    @Override
+    public boolean deleteSession(String uploadId) {
+        if (sessions.remove(uploadId) != null) {
+            sessionsDirty.set(true);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Collection<UploadSession> findAllSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    @Override
+    public void flush() {
+        if (indexFile == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (dirty.getAndSet(false) && !write(indexFile, new ArrayList<>(index.values()))) {
+                dirty.set(true);
+            }
+            if (sessionsDirty.getAndSet(false) && !write(sessionsFile, new ArrayList<>(sessions.values()))) {
+                sessionsDirty.set(true);
+            }
+        }
+    }
+
+    private boolean write(Path file, List<?> entries) {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            objectMapper.writeValue(tempFile.toFile(), entries);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to write " + file.getFileName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+}
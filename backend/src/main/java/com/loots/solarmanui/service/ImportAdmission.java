@@ -0,0 +1,210 @@
+package com.loots.solarmanui.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Admission control for workbook parses and file imports.
+ *
+ * <p>Each job's heap use is estimated up front from the uncompressed size of the
+ * sheet and shared-string parts in the workbook's zip directory, and a job only
+ * starts while the running jobs stay within a global memory and concurrency
+ * budget. Jobs run in two lanes: Tshwane files and small SolarMan files in the
+ * interactive lane, large SolarMan backfills in the bulk lane. The bulk lane is
+ * capped below the global budget and yields to waiting interactive jobs, so a
+ * small import never queues behind a large one. A job that cannot start within
+ * the configured wait is refused, and the caller answers 429 with Retry-After.
+ */
+@Service
+public class ImportAdmission {
+
+    public enum Lane { INTERACTIVE, BULK }
+
+    @Value("${solarman.admission.heap-share:0.5}")
+    private double heapShare = 0.5;
+
+    @Value("${solarman.admission.max-concurrent:4}")
+    private int maxConcurrent = 4;
+
+    @Value("${solarman.admission.bulk-max-concurrent:2}")
+    private int bulkMaxConcurrent = 2;
+
+    @Value("${solarman.admission.bulk-heap-share:0.75}")
+    private double bulkHeapShare = 0.75;
+
+    @Value("${solarman.admission.small-job-size:32MB}")
+    private DataSize smallJobSize = DataSize.ofMegabytes(32);
+
+    @Value("${solarman.admission.heap-per-xml-byte:3}")
+    private double heapPerXmlByte = 3;
+
+    @Value("${solarman.admission.max-wait:PT2S}")
+    private Duration maxWait = Duration.ofSeconds(2);
+
+    @Value("${solarman.admission.retry-after:PT10S}")
+    private Duration retryAfter = Duration.ofSeconds(10);
+
+    private int running;
+    private int bulkRunning;
+    private long memoryInUse;
+    private long bulkMemoryInUse;
+    private int interactiveWaiting;
+
+    /** A running job's share of the budget, returned when it is closed. */
+    public final class Permit implements AutoCloseable {
+        private final Lane lane;
+        private final long memory;
+        private boolean released;
+
+        private Permit(Lane lane, long memory) {
+            this.lane = lane;
+            this.memory = memory;
+        }
+
+        public Lane getLane() {
+            return lane;
+        }
+
+        public long getMemory() {
+            return memory;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    /**
+     * Admits a parse or import of the workbook, waiting up to the configured time
+     * for room. Returns null if the budget is still exhausted by then.
+     */
+    public Permit tryAdmit(String fileType, Path workbook) {
+        long estimate = estimateMemory(workbook);
+        return tryAdmit(laneFor(fileType, estimate), estimate);
+    }
+
+    public Permit tryAdmit(Lane lane, long estimate) {
+        // A job larger than its lane's budget still runs, but only on its own
+        long memory = Math.min(estimate, laneBudget(lane));
+        long deadline = System.nanoTime() + maxWait.toNanos();
+
+        synchronized (this) {
+            if (lane == Lane.INTERACTIVE) {
+                interactiveWaiting++;
+            }
+            try {
+                while (!fits(lane, memory)) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    wait(Math.max(1, remaining / 1_000_000));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } finally {
+                if (lane == Lane.INTERACTIVE) {
+                    interactiveWaiting--;
+                }
+            }
+
+            running++;
+            memoryInUse += memory;
+            if (lane == Lane.BULK) {
+                bulkRunning++;
+                bulkMemoryInUse += memory;
+            }
+            return new Permit(lane, memory);
+        }
+    }
+
+    public Lane laneFor(String fileType, long estimate) {
+        return "tshwane".equals(fileType) || estimate <= smallJobSize.toBytes() ? Lane.INTERACTIVE : Lane.BULK;
+    }
+
+    /**
+     * Heap estimate for parsing the workbook: the declared uncompressed size of its
+     * worksheet and shared-string parts, scaled by the heap used per byte of XML.
+     * A file that is not a zip (legacy .xls) is counted at its own size.
+     */
+    public long estimateMemory(Path workbook) {
+        long xmlBytes = 0;
+        try (ZipFile zip = new ZipFile(workbook.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (name.startsWith("xl/worksheets/") || name.equals("xl/sharedStrings.xml")) {
+                    // Size is -1 when the directory does not record it; assume typical XML compression
+                    xmlBytes += entry.getSize() >= 0 ? entry.getSize() : entry.getCompressedSize() * 10;
+                }
+            }
+        } catch (IOException e) {
+            try {
+                xmlBytes = Files.size(workbook);
+            } catch (IOException sizeUnknown) {
+                xmlBytes = 0;
+            }
+        }
+        return (long) (xmlBytes * heapPerXmlByte);
+    }
+
+    public long getRetryAfterSeconds() {
+        return Math.max(1, retryAfter.toSeconds());
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public synchronized long getMemoryInUse() {
+        return memoryInUse;
+    }
+
+    private boolean fits(Lane lane, long memory) {
+        if (running >= maxConcurrent || memoryInUse + memory > budget()) {
+            return running == 0; // a lone job always runs
+        }
+        if (lane == Lane.BULK) {
+            if (interactiveWaiting > 0) {
+                return false;
+            }
+            return bulkRunning == 0
+                    || (bulkRunning < bulkMaxConcurrent && bulkMemoryInUse + memory <= laneBudget(Lane.BULK));
+        }
+        return true;
+    }
+
+    private synchronized void release(Permit permit) {
+        if (permit.released) {
+            return;
+        }
+        permit.released = true;
+        running--;
+        memoryInUse -= permit.memory;
+        if (permit.lane == Lane.BULK) {
+            bulkRunning--;
+            bulkMemoryInUse -= permit.memory;
+        }
+        notifyAll();
+    }
+
+    private long laneBudget(Lane lane) {
+        return lane == Lane.BULK ? (long) (budget() * bulkHeapShare) : budget();
+    }
+
+    private long budget() {
+        return (long) (Runtime.getRuntime().maxMemory() * heapShare);
+    }
+}
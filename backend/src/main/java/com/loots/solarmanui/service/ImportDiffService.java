@@ -0,0 +1,155 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.DayDiff;
+import com.loots.solarmanui.model.ImportDiff;
+import com.loots.solarmanui.model.SolarManRecord;
+import com.loots.solarmanui.model.TshwaneRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Works out what an import would change without writing anything.
+ *
+ * <p>The parsed rows are sorted by timestamp and merge-joined against a single
+ * ordered range query over the file's time span, so the database is read once,
+ * sequentially, instead of being probed per row. A timestamp repeated in the file
+ * is compared once, using its last row, which is the one the import keeps.
+ */
+@Service
+public class ImportDiffService {
+
+    private static final int FETCH_SIZE = 5000;
+    private static final double TOLERANCE = 1e-9;
+
+    @Autowired
+    private DataSource dataSource;
+
+    public ImportDiff diffSolarMan(List<SolarManRecord> records) throws SQLException {
+        TreeMap<LocalDateTime, DiffRow> rows = new TreeMap<>();
+        for (SolarManRecord record : records) {
+            // Unreadable rows are reported by the import and never written, so they change nothing
+            if (record.getUpdated() != null && record.getParseError() == null) {
+                rows.put(record.getUpdated(), new DiffRow(record.getUpdated(), new double[]{
+                        valueOrZero(record.getProductionPower()), valueOrZero(record.getConsumePower()),
+                        valueOrZero(record.getGridPower()), valueOrZero(record.getPurchasePower()),
+                        valueOrZero(record.getFeedIn()), valueOrZero(record.getBatteryPower()),
+                        valueOrZero(record.getChargePower()), valueOrZero(record.getDischargePower()),
+                        valueOrZero(record.getSoc())}, null));
+            }
+        }
+
+        String sql = "SELECT updated, production_power, consume_power, grid_power, purchase_power, feed_in, " +
+                "battery_power, charge_power, discharge_power, soc FROM public.loots_inverter " +
+                "WHERE updated BETWEEN ? AND ? ORDER BY updated";
+        return mergeJoin("solarman", rows, sql, 9, false);
+    }
+
+    public ImportDiff diffTshwane(List<TshwaneRecord> records) throws SQLException {
+        TreeMap<LocalDateTime, DiffRow> rows = new TreeMap<>();
+        for (TshwaneRecord record : records) {
+            if (record.getReadingDate() != null) {
+                rows.put(record.getReadingDate(), new DiffRow(record.getReadingDate(),
+                        new double[]{valueOrZero(record.getCumulativeElectricityUsed())},
+                        record.getReadingNotes() != null ? record.getReadingNotes() : ""));
+            }
+        }
+
+        String sql = "SELECT reading_date, cumulative_electricity_used, reading_notes FROM public.tshwane_electricity " +
+                "WHERE reading_date BETWEEN ? AND ? ORDER BY reading_date";
+        return mergeJoin("tshwane", rows, sql, 1, true);
+    }
+
+    private ImportDiff mergeJoin(String fileType, TreeMap<LocalDateTime, DiffRow> fileRows, String sql, int numericColumns,
+                                 boolean hasText) throws SQLException {
+        ImportDiff diff = new ImportDiff(fileType);
+        if (fileRows.isEmpty()) {
+            return diff;
+        }
+        LocalDateTime first = fileRows.firstKey();
+        LocalDateTime last = fileRows.lastKey();
+        diff.setFirstRecordDate(first);
+        diff.setLastRecordDate(last);
+
+        TreeMap<LocalDate, DayDiff> days = new TreeMap<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            // PostgreSQL only streams with a cursor inside a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                stmt.setTimestamp(1, Timestamp.valueOf(first));
+                stmt.setTimestamp(2, Timestamp.valueOf(last));
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    DiffRow stored = nextRow(rs, numericColumns, hasText);
+                    for (DiffRow row : fileRows.values()) {
+                        while (stored != null && stored.key().isBefore(row.key())) {
+                            stored = nextRow(rs, numericColumns, hasText);
+                        }
+
+                        DayDiff day = days.computeIfAbsent(row.key().toLocalDate(), DayDiff::new);
+                        if (stored == null || !stored.key().equals(row.key())) {
+                            day.setNewRows(day.getNewRows() + 1);
+                        } else if (row.sameValues(stored)) {
+                            day.setIdenticalRows(day.getIdenticalRows() + 1);
+                        } else {
+                            day.setChangedRows(day.getChangedRows() + 1);
+                        }
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+
+        for (DayDiff day : days.values()) {
+            diff.setNewRows(diff.getNewRows() + day.getNewRows());
+            diff.setChangedRows(diff.getChangedRows() + day.getChangedRows());
+            diff.setIdenticalRows(diff.getIdenticalRows() + day.getIdenticalRows());
+        }
+        diff.setDays(new ArrayList<>(days.values()));
+        return diff;
+    }
+
+    private DiffRow nextRow(ResultSet rs, int numericColumns, boolean hasText) throws SQLException {
+        if (!rs.next()) {
+            return null;
+        }
+        double[] values = new double[numericColumns];
+        for (int i = 0; i < numericColumns; i++) {
+            values[i] = rs.getDouble(i + 2);
+        }
+        String text = hasText ? Objects.toString(rs.getString(numericColumns + 2), "") : null;
+        return new DiffRow(rs.getTimestamp(1).toLocalDateTime(), values, text);
+    }
+
+    private static double valueOrZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    private record DiffRow(LocalDateTime key, double[] values, String text) {
+
+        boolean sameValues(DiffRow other) {
+            for (int i = 0; i < values.length; i++) {
+                if (Math.abs(values[i] - other.values[i]) > TOLERANCE) {
+                    return false;
+                }
+            }
+            return Objects.equals(text, other.text);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.DayChecksum;
+import com.loots.solarmanui.model.ImportLedgerEntry;
+import com.loots.solarmanui.model.ImportResult;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Audit trail of imports and the per-day content checksums behind incremental re-imports.
+ *
+ * <p>{@code import_ledger} gets one row per import of a workbook: its hash, the time
+ * range it covered and how many rows were written or skipped. {@code import_day_checksum}
+ * holds, per file type and day, a checksum of the rows last written for that day, so
+ * {@link ImportService} can skip days whose content has not changed.
+ *
+ * <p>The ledger is advisory: failures are logged and never fail an upload or import.
+ */
+@Service
+public class ImportLedger {
+
+    private static final String CREATE_TABLES_SQL = """
+            CREATE TABLE IF NOT EXISTS public.import_ledger (
+                id BIGSERIAL PRIMARY KEY,
+                sha256 CHAR(64) NOT NULL,
+                file_type VARCHAR(20) NOT NULL,
+                imported_at TIMESTAMP NOT NULL,
+                first_record TIMESTAMP,
+                last_record TIMESTAMP,
+                records_imported INTEGER NOT NULL,
+                records_skipped INTEGER NOT NULL DEFAULT 0
+            );
+            CREATE INDEX IF NOT EXISTS import_ledger_sha256_idx ON public.import_ledger (sha256, file_type);
+            CREATE TABLE IF NOT EXISTS public.import_day_checksum (
+                file_type VARCHAR(20) NOT NULL,
+                day DATE NOT NULL,
+                checksum CHAR(64) NOT NULL,
+                row_count INTEGER NOT NULL,
+                updated_at TIMESTAMP NOT NULL,
+                PRIMARY KEY (file_type, day)
+            )""";
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Creates the tables once per start, off the startup thread since the backend
+     * starts without a database. If it is unreachable then, the tables must come from
+     * the DDL in the changelog; imports never retry it.
+     */
+    @PostConstruct
+    public void init() {
+        Thread thread = new Thread(this::createTables, "import-ledger-ddl");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public ImportLedgerEntry findImport(String sha256, String fileType) {
+        if (sha256 == null) {
+            return null;
+        }
+        String sql = "SELECT imported_at, records_imported FROM public.import_ledger " +
+                "WHERE sha256 = ? AND file_type = ? ORDER BY imported_at DESC LIMIT 1";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, sha256);
+            stmt.setString(2, fileType);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new ImportLedgerEntry(sha256, fileType,
+                            rs.getTimestamp("imported_at").toLocalDateTime(), rs.getInt("records_imported"));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading import ledger: " + e.getMessage());
+        }
+        return null;
+    }
+
+    public void recordImport(String sha256, String fileType, ImportResult result) {
+        if (sha256 == null) {
+            return;
+        }
+        String sql = "INSERT INTO public.import_ledger (sha256, file_type, imported_at, first_record, last_record, " +
+                "records_imported, records_skipped) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, sha256);
+            stmt.setString(2, fileType);
+            stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.setTimestamp(4, result.getFirstRecordDate() != null ? Timestamp.valueOf(result.getFirstRecordDate()) : null);
+            stmt.setTimestamp(5, result.getLastRecordDate() != null ? Timestamp.valueOf(result.getLastRecordDate()) : null);
+            stmt.setInt(6, result.getRecordsInserted() + result.getRecordsUpdated());
+            stmt.setInt(7, result.getRecordsSkipped());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error writing import ledger: " + e.getMessage());
+        }
+    }
+
+    /** Checksums of the days already written for this file type, within one range query. */
+    public Map<LocalDate, String> findDayChecksums(String fileType, LocalDate from, LocalDate to) {
+        Map<LocalDate, String> checksums = new HashMap<>();
+        if (from == null) {
+            return checksums;
+        }
+        String sql = "SELECT day, checksum FROM public.import_day_checksum WHERE file_type = ? AND day BETWEEN ? AND ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, fileType);
+            stmt.setDate(2, Date.valueOf(from));
+            stmt.setDate(3, Date.valueOf(to));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    checksums.put(rs.getDate("day").toLocalDate(), rs.getString("checksum"));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading day checksums: " + e.getMessage());
+        }
+        return checksums;
+    }
+
+    public void saveDayChecksums(String fileType, Collection<DayChecksum> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO public.import_day_checksum (file_type, day, checksum, row_count, updated_at) VALUES (?, ?, ?, ?, ?) " +
+                "ON CONFLICT (file_type, day) DO UPDATE SET checksum = EXCLUDED.checksum, row_count = EXCLUDED.row_count, " +
+                "updated_at = EXCLUDED.updated_at";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (DayChecksum day : days) {
+                stmt.setString(1, fileType);
+                stmt.setDate(2, Date.valueOf(day.getDay()));
+                stmt.setString(3, day.getChecksum());
+                stmt.setInt(4, day.getRowCount());
+                stmt.setTimestamp(5, now);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            System.err.println("Error writing day checksums: " + e.getMessage());
+        }
+    }
+
+    /** Forgets the checksums of a range of days, e.g. after the range was replaced wholesale. */
+    public void deleteDayChecksums(String fileType, LocalDate from, LocalDate to) {
+        String sql = "DELETE FROM public.import_day_checksum WHERE file_type = ? AND day BETWEEN ? AND ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, fileType);
+            stmt.setDate(2, Date.valueOf(from));
+            stmt.setDate(3, Date.valueOf(to));
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error deleting day checksums: " + e.getMessage());
+        }
+    }
+
+    private void createTables() {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute(CREATE_TABLES_SQL);
+        } catch (SQLException e) {
+            System.err.println("Import ledger tables not created, apply the DDL from the changelog: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.ImportProfile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Records an {@link ImportProfile} for each import and keeps the most recent ones.
+ *
+ * <p>The profile of the import running on a thread is held in a thread local, so the
+ * parser and {@link ImportService} record their stages without it being passed
+ * through every call. Stage spans outside an import cost nothing.
+ */
+@Service
+public class ImportProfiler {
+
+    private static final ThreadLocal<ImportProfile> CURRENT = new ThreadLocal<>();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+    private static final Span NONE = new Span(null, null);
+
+    @Value("${solarman.import.history-size:50}")
+    private int historySize = 50;
+
+    private final Deque<ImportProfile> history = new ArrayDeque<>();
+
+    /** The profile being recorded; closing it finishes the profile and, if kept, adds it to the history. */
+    public final class Profiling implements AutoCloseable {
+        private final ImportProfile profile;
+        private final boolean owner;
+        private final boolean keep;
+        private final long startNanos = System.nanoTime();
+        private final long startCpu = cpuTime();
+
+        private Profiling(ImportProfile profile, boolean owner, boolean keep) {
+            this.profile = profile;
+            this.owner = owner;
+            this.keep = keep;
+        }
+
+        public ImportProfile profile() {
+            return profile;
+        }
+
+        @Override
+        public void close() {
+            if (!owner) {
+                return;
+            }
+            CURRENT.remove();
+            profile.finish(System.nanoTime() - startNanos, cpuTime() - startCpu);
+            if (keep) {
+                remember(profile);
+            }
+        }
+    }
+
+    /** Time spent in one stage, recorded when closed. */
+    public static final class Span implements AutoCloseable {
+        private final ImportProfile profile;
+        private final String stage;
+        private final long startNanos;
+        private final long startCpu;
+
+        private Span(ImportProfile profile, String stage) {
+            this.profile = profile;
+            this.stage = stage;
+            this.startNanos = profile != null ? System.nanoTime() : 0;
+            this.startCpu = profile != null ? cpuTime() : 0;
+        }
+
+        @Override
+        public void close() {
+            if (profile != null) {
+                profile.addStage(stage, System.nanoTime() - startNanos, cpuTime() - startCpu);
+            }
+        }
+    }
+
+    /**
+     * Time spent in one stage over many short steps, such as binding each row of a
+     * batch. Steps are timed with {@link System#nanoTime} alone and the total is
+     * recorded once when closed, so a step costs no CPU time lookup and no lock. The
+     * steps do not block, so their wall time is recorded as CPU time as well.
+     */
+    public static final class StageTotal implements AutoCloseable {
+        private final ImportProfile profile;
+        private final String stage;
+        private long nanos;
+        private long started;
+
+        private StageTotal(ImportProfile profile, String stage) {
+            this.profile = profile;
+            this.stage = stage;
+        }
+
+        public void start() {
+            if (profile != null) {
+                started = System.nanoTime();
+            }
+        }
+
+        public void stop() {
+            if (profile != null) {
+                nanos += System.nanoTime() - started;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (profile != null && nanos > 0) {
+                profile.addStage(stage, nanos, nanos);
+            }
+        }
+    }
+
+    /**
+     * Starts profiling an import on this thread. An import started within another,
+     * such as each batch of a streamed request, records into the outer profile.
+     *
+     * @param keep whether the finished profile goes into the history
+     */
+    public Profiling begin(String fileType, String mode, boolean keep) {
+        ImportProfile current = CURRENT.get();
+        if (current != null) {
+            return new Profiling(current, false, false);
+        }
+        ImportProfile profile = new ImportProfile(fileType, mode);
+        CURRENT.set(profile);
+        return new Profiling(profile, true, keep);
+    }
+
+    /** The profile of the import running on this thread, or null. */
+    public static ImportProfile current() {
+        return CURRENT.get();
+    }
+
+    public static Span stage(String stage) {
+        return stage(CURRENT.get(), stage);
+    }
+
+    /** A span recorded into the given profile, for work an import hands to another thread. */
+    public static Span stage(ImportProfile profile, String stage) {
+        return profile != null ? new Span(profile, stage) : NONE;
+    }
+
+    /** A stage timed over many steps and recorded once; see {@link StageTotal}. */
+    public static StageTotal total(String stage) {
+        return new StageTotal(CURRENT.get(), stage);
+    }
+
+    /** Counts statements or JDBC batches sent to the database. */
+    public static void countBatches(int count) {
+        ImportProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.addBatches(count);
+        }
+    }
+
+    /** The kept profiles, most recent first. */
+    public synchronized List<ImportProfile> getHistory() {
+        return new ArrayList<>(history);
+    }
+
+    private synchronized void remember(ImportProfile profile) {
+        history.addFirst(profile);
+        while (history.size() > historySize) {
+            history.removeLast();
+        }
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+}
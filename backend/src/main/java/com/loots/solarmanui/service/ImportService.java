@@ -1,64 +1,154 @@
 package com.loots.solarmanui.service;
 
+import com.loots.solarmanui.model.DayChecksum;
 import com.loots.solarmanui.model.ImportResult;
 import com.loots.solarmanui.model.SolarManRecord;
 import com.loots.solarmanui.model.TshwaneRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class ImportService {
 
+    private static final int REPLACE_BATCH_SIZE = 1000;
+    private static final String MISSING_TIMESTAMP = "missing timestamp";
+    private static final String MALFORMED_ROW = "malformed row";
+    static final String CONNECTION = "connection";
+
+    private static final String SOLARMAN_UPSERT_SQL = "INSERT INTO public.loots_inverter (updated, production_power, " +
+            "consume_power, grid_power, purchase_power, feed_in, battery_power, charge_power, discharge_power, soc) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (updated) DO UPDATE SET " +
+            "production_power = EXCLUDED.production_power, " +
+            "consume_power = EXCLUDED.consume_power, " +
+            "grid_power = EXCLUDED.grid_power, " +
+            "purchase_power = EXCLUDED.purchase_power, " +
+            "feed_in = EXCLUDED.feed_in, " +
+            "battery_power = EXCLUDED.battery_power, " +
+            "charge_power = EXCLUDED.charge_power, " +
+            "discharge_power = EXCLUDED.discharge_power, " +
+            "soc = EXCLUDED.soc";
+
     @Autowired
     private DataSource dataSource;
 
-    private final List<String> errorLogs = new ArrayList<>();
+    @Autowired
+    private ImportLedger importLedger;
+
+    @Autowired
+    private ImportSpool importSpool;
+
+    @Value("${solarman.import.skip-unchanged-days:true}")
+    private boolean skipUnchangedDays = true;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    @Autowired(required = false)
+    private ImportProfiler importProfiler = new ImportProfiler();
+
+    private final ErrorLog errorLogs = new ErrorLog(100);
+
+    // Meters are looked up once per type and mode, not rebuilt on every batch
+    private final Map<String, Timer> batchTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rowCounters = new ConcurrentHashMap<>();
 
     public ImportResult importSolarManData(List<SolarManRecord> records) {
+        return timedImport("solarman", "upsert", records.size(), () -> upsertSolarManRows(records, true));
+    }
+
+    /**
+     * Imports rows replayed from the spool. They are never spooled again: if the
+     * database is unreachable the result carries a {@link #CONNECTION} error and the
+     * replayer keeps the segment they came from.
+     */
+    public ImportResult replaySolarManData(List<SolarManRecord> records) {
+        return timedImport("solarman", "replay", records.size(), () -> upsertSolarManRows(records, false));
+    }
+
+    private ImportResult upsertSolarManRows(List<SolarManRecord> records, boolean spool) {
         ImportResult result = new ImportResult();
         LocalDateTime firstDate = null;
         LocalDateTime lastDate = null;
         int inserted = 0;
         int updated = 0;
 
-        String sql = "INSERT INTO public.loots_inverter (updated, production_power, consume_power, grid_power, " +
-                "purchase_power, feed_in, battery_power, charge_power, discharge_power, soc) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
-                "ON CONFLICT (updated) DO UPDATE SET " +
-                "production_power = EXCLUDED.production_power, " +
-                "consume_power = EXCLUDED.consume_power, " +
-                "grid_power = EXCLUDED.grid_power, " +
-                "purchase_power = EXCLUDED.purchase_power, " +
-                "feed_in = EXCLUDED.feed_in, " +
-                "battery_power = EXCLUDED.battery_power, " +
-                "charge_power = EXCLUDED.charge_power, " +
-                "discharge_power = EXCLUDED.discharge_power, " +
-                "soc = EXCLUDED.soc";
-
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = SOLARMAN_UPSERT_SQL;
+
+        // Days whose content matches what was last written are not written again
+        Map<LocalDate, DayChecksum> dayChecksums = solarManDayChecksums(records);
+        Set<LocalDate> unchangedDays = Collections.emptySet();
+        Set<LocalDate> failedDays = new HashSet<>();
+        int skipped = 0;
+        boolean connected = false;
+
+        try (Connection connection = connect();
+             PreparedStatement pstmt = connection.prepareStatement(sql);
+             ImportProfiler.StageTotal bind = ImportProfiler.total("bind")) {
 
             connection.setAutoCommit(true);
+            connected = true;
+            // Looked up only once the database is known to be reachable, so an outage spools straight away
+            unchangedDays = findUnchangedDays("solarman", dayChecksums);
 
             for (SolarManRecord record : records) {
                 try {
                     // Check for null updated field
                     if (record.getUpdated() == null) {
                         String errorMessage = "Record has null updated field, skipping";
-                        result.addError(errorMessage);
-                        logError(errorMessage, new IllegalArgumentException("Null updated field"));
+                        result.addError(MISSING_TIMESTAMP, errorMessage);
+                        logError(errorMessage);
+                        continue;
+                    }
+
+                    if (record.getParseError() != null) {
+                        // The day is left out of the ledger so a corrected file writes it again
+                        reportMalformedRow(result, record);
+                        failedDays.add(record.getUpdated().toLocalDate());
+                        continue;
+                    }
+
+                    if (unchangedDays.contains(record.getUpdated().toLocalDate())) {
+                        skipped++;
+                        if (firstDate == null || record.getUpdated().isBefore(firstDate)) {
+                            firstDate = record.getUpdated();
+                        }
+                        if (lastDate == null || record.getUpdated().isAfter(lastDate)) {
+                            lastDate = record.getUpdated();
+                        }
                         continue;
                     }
                     
+                    bind.start();
                     pstmt.setTimestamp(1, Timestamp.valueOf(record.getUpdated()));
                     pstmt.setDouble(2, record.getProductionPower() != null ? record.getProductionPower() : 0.0);
                     pstmt.setDouble(3, record.getConsumePower() != null ? record.getConsumePower() : 0.0);
@@ -69,8 +159,9 @@ public class ImportService {
                     pstmt.setDouble(8, record.getChargePower() != null ? record.getChargePower() : 0.0);
                     pstmt.setDouble(9, record.getDischargePower() != null ? record.getDischargePower() : 0.0);
                     pstmt.setDouble(10, record.getSoc() != null ? record.getSoc() : 0.0);
+                    bind.stop();
 
-                    int rowsAffected = pstmt.executeUpdate();
+                    int rowsAffected = executeUpdate(pstmt);
                     if (rowsAffected > 0) {
                         inserted++;
                     }
@@ -87,26 +178,318 @@ public class ImportService {
 
                 } catch (SQLException e) {
                     String errorMessage = "Error importing SolarMan record at " + record.getUpdated() + ": " + e.getMessage();
-                    result.addError(errorMessage);
-                    logError(errorMessage, e);
+                    result.addError(errorCategory(e), errorMessage);
+                    logError(errorMessage);
+                    failedDays.add(record.getUpdated().toLocalDate());
                 }
             }
 
         } catch (SQLException e) {
+            ImportResult spooled = !connected && spool ? spoolSolarManRows(records) : null;
+            if (spooled != null) {
+                // Nothing was written; the spool replays the rows once the database is back
+                return spooled;
+            }
             String errorMessage = "Database connection error during SolarMan import: " + e.getMessage();
-            result.addError(errorMessage);
-            logError(errorMessage, e);
+            result.addError(CONNECTION, errorMessage);
+            logError(errorMessage);
+            connected = false;
+        }
+
+        if (connected) {
+            saveWrittenDays("solarman", dayChecksums, unchangedDays, failedDays);
         }
 
         result.setRecordsInserted(inserted);
         result.setRecordsUpdated(updated);
+        result.setRecordsSkipped(skipped);
+        result.setDaysSkipped(unchangedDays.size());
         result.setFirstRecordDate(firstDate);
         result.setLastRecordDate(lastDate);
 
         return result;
     }
 
+    /**
+     * Upserts the records as one JDBC batch in a single transaction, for small batches
+     * arriving continuously (live ingest). Either the whole batch is written or none
+     * of it. Day checksums for the days touched are dropped, since those days no
+     * longer match what an earlier file import recorded.
+     */
+    public ImportResult upsertSolarManBatch(List<SolarManRecord> records) {
+        return timedImport("solarman", "batch", records.size(), () -> upsertSolarManInTransaction(records));
+    }
+
+    private ImportResult upsertSolarManInTransaction(List<SolarManRecord> records) {
+        ImportResult result = new ImportResult();
+        LocalDateTime firstDate = null;
+        LocalDateTime lastDate = null;
+        int batched = 0;
+
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(SOLARMAN_UPSERT_SQL);
+                 ImportProfiler.StageTotal bind = ImportProfiler.total("bind")) {
+                for (SolarManRecord record : records) {
+                    if (record.getUpdated() == null) {
+                        continue;
+                    }
+                    bind.start();
+                    pstmt.setTimestamp(1, Timestamp.valueOf(record.getUpdated()));
+                    pstmt.setDouble(2, valueOrZero(record.getProductionPower()));
+                    pstmt.setDouble(3, valueOrZero(record.getConsumePower()));
+                    pstmt.setDouble(4, valueOrZero(record.getGridPower()));
+                    pstmt.setDouble(5, valueOrZero(record.getPurchasePower()));
+                    pstmt.setDouble(6, valueOrZero(record.getFeedIn()));
+                    pstmt.setDouble(7, valueOrZero(record.getBatteryPower()));
+                    pstmt.setDouble(8, valueOrZero(record.getChargePower()));
+                    pstmt.setDouble(9, valueOrZero(record.getDischargePower()));
+                    pstmt.setDouble(10, valueOrZero(record.getSoc()));
+                    pstmt.addBatch();
+                    bind.stop();
+                    batched++;
+
+                    if (firstDate == null || record.getUpdated().isBefore(firstDate)) {
+                        firstDate = record.getUpdated();
+                    }
+                    if (lastDate == null || record.getUpdated().isAfter(lastDate)) {
+                        lastDate = record.getUpdated();
+                    }
+                }
+                executeBatch(pstmt);
+                commit(connection);
+            } catch (SQLException e) {
+                // A dead connection fails the rollback too; keep the original failure
+                try {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            }
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            // The transaction was rolled back as a whole, so the whole batch can be spooled
+            if (isConnectionFailure(e) && importSpool.appendSolarMan(records)) {
+                return spooledResult(records, SolarManRecord::getUpdated);
+            }
+            String errorMessage = "Error upserting SolarMan batch of " + records.size() + " records: " + e.getMessage();
+            result.addError(errorCategory(e), errorMessage);
+            logError(errorMessage);
+            return result;
+        }
+
+        if (firstDate != null) {
+            try (ImportProfiler.Span ledger = ImportProfiler.stage("ledger")) {
+                importLedger.deleteDayChecksums("solarman", firstDate.toLocalDate(), lastDate.toLocalDate());
+            }
+        }
+        result.setRecordsInserted(batched);
+        result.setFirstRecordDate(firstDate);
+        result.setLastRecordDate(lastDate);
+        return result;
+    }
+
+    /**
+     * Replaces everything stored between the first and last timestamp of the records
+     * with the records themselves, in one transaction: a single range delete followed
+     * by batched plain inserts in timestamp order. Cheaper than upserting a full
+     * re-export row by row, and leaves no dead row versions behind from updates.
+     * Stored rows inside the range that are missing from the file are removed.
+     */
+    public ImportResult replaceSolarManRange(List<SolarManRecord> records) {
+        return timedImport("solarman", "replace", records.size(), () -> replaceSolarManRows(records));
+    }
+
+    private ImportResult replaceSolarManRows(List<SolarManRecord> records) {
+        ImportResult result = new ImportResult();
+
+        // Sorted by timestamp; a repeated timestamp keeps its last row, as the upsert would
+        TreeMap<LocalDateTime, SolarManRecord> rows = new TreeMap<>();
+        for (SolarManRecord record : records) {
+            if (record.getUpdated() == null) {
+                String errorMessage = "Record has null updated field, skipping";
+                result.addError(MISSING_TIMESTAMP, errorMessage);
+                logError(errorMessage);
+                continue;
+            }
+            if (record.getParseError() != null) {
+                reportMalformedRow(result, record);
+                continue;
+            }
+            rows.put(record.getUpdated(), record);
+        }
+        if (rows.isEmpty() || result.getErrorCategories().stream().anyMatch(c -> MALFORMED_ROW.equals(c.getCategory()))) {
+            // The range delete would also remove the stored rows the unreadable ones should have replaced
+            return result;
+        }
+        LocalDateTime firstDate = rows.firstKey();
+        LocalDateTime lastDate = rows.lastKey();
+
+        String deleteSql = "DELETE FROM public.loots_inverter WHERE updated BETWEEN ? AND ?";
+        String insertSql = "INSERT INTO public.loots_inverter (updated, production_power, consume_power, grid_power, " +
+                "purchase_power, feed_in, battery_power, charge_power, discharge_power, soc) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement deleteStmt = connection.prepareStatement(deleteSql);
+                 PreparedStatement insertStmt = connection.prepareStatement(insertSql);
+                 ImportProfiler.StageTotal bind = ImportProfiler.total("bind")) {
+                deleteStmt.setTimestamp(1, Timestamp.valueOf(firstDate));
+                deleteStmt.setTimestamp(2, Timestamp.valueOf(lastDate));
+                executeUpdate(deleteStmt);
+
+                int batched = 0;
+                for (SolarManRecord record : rows.values()) {
+                    bind.start();
+                    insertStmt.setTimestamp(1, Timestamp.valueOf(record.getUpdated()));
+                    insertStmt.setDouble(2, valueOrZero(record.getProductionPower()));
+                    insertStmt.setDouble(3, valueOrZero(record.getConsumePower()));
+                    insertStmt.setDouble(4, valueOrZero(record.getGridPower()));
+                    insertStmt.setDouble(5, valueOrZero(record.getPurchasePower()));
+                    insertStmt.setDouble(6, valueOrZero(record.getFeedIn()));
+                    insertStmt.setDouble(7, valueOrZero(record.getBatteryPower()));
+                    insertStmt.setDouble(8, valueOrZero(record.getChargePower()));
+                    insertStmt.setDouble(9, valueOrZero(record.getDischargePower()));
+                    insertStmt.setDouble(10, valueOrZero(record.getSoc()));
+                    insertStmt.addBatch();
+                    bind.stop();
+                    if (++batched % REPLACE_BATCH_SIZE == 0) {
+                        executeBatch(insertStmt);
+                    }
+                }
+                executeBatch(insertStmt);
+                commit(connection);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            // Nothing was changed: the delete and the inserts are rolled back together
+            String errorMessage = "Error replacing SolarMan range " + firstDate + " to " + lastDate + ": " + e.getMessage();
+            result.addError(errorCategory(e), errorMessage);
+            logError(errorMessage);
+            return result;
+        }
+
+        // Every day in the range now holds exactly the file's rows
+        Map<LocalDate, DayChecksum> dayChecksums = solarManDayChecksums(new ArrayList<>(rows.values()));
+        try (ImportProfiler.Span ledger = ImportProfiler.stage("ledger")) {
+            importLedger.deleteDayChecksums("solarman", firstDate.toLocalDate(), lastDate.toLocalDate());
+            if (!dayChecksums.isEmpty()) {
+                importLedger.saveDayChecksums("solarman", dayChecksums.values());
+            }
+        }
+
+        // Like the upsert, every written row counts as inserted
+        result.setRecordsInserted(rows.size());
+        result.setFirstRecordDate(firstDate);
+        result.setLastRecordDate(lastDate);
+        return result;
+    }
+
+    /**
+     * Merges the rows {@link StagingService} loaded into a staging table into
+     * {@code loots_inverter} in one statement. Days whose checksum matches the ledger
+     * are left out, as in the row-by-row import, and rows whose values are unchanged
+     * are not rewritten. A failed merge is reported as an error, in the
+     * {@link #CONNECTION} category if the database was unreachable; nothing is
+     * spooled, since the staged rows only exist in the database.
+     */
+    ImportResult mergeStagedSolarMan(String stagingTable, StagingService.StagedUpload upload) {
+        return timedImport("solarman", "staged", upload.distinctRows(), () -> mergeStagedRows(stagingTable, upload));
+    }
+
+    private ImportResult mergeStagedRows(String stagingTable, StagingService.StagedUpload upload) {
+        ImportResult result = new ImportResult();
+        Map<LocalDate, DayChecksum> dayChecksums = upload.dayChecksums();
+        Set<LocalDate> unchangedDays;
+        int written;
+        boolean connected = false;
+
+        try (Connection connection = connect()) {
+            connected = true;
+            unchangedDays = findUnchangedDays("solarman", dayChecksums);
+            try (PreparedStatement stmt = connection.prepareStatement(stagedMergeSql(stagingTable))) {
+                Date[] skippedDays = unchangedDays.stream().map(Date::valueOf).toArray(Date[]::new);
+                stmt.setArray(1, connection.createArrayOf("date", skippedDays));
+                written = executeUpdate(stmt);
+            }
+        } catch (SQLException e) {
+            String errorMessage = "Staged merge failed: " + e.getMessage();
+            result.addError(!connected || isConnectionFailure(e) ? CONNECTION : errorCategory(e), errorMessage);
+            logError(errorMessage);
+            return result;
+        }
+
+        saveWrittenDays("solarman", dayChecksums, unchangedDays, Collections.emptySet());
+        result.setRecordsInserted(written);
+        result.setRecordsSkipped(Math.max(0, upload.distinctRows() - written));
+        result.setDaysSkipped(unchangedDays.size());
+        result.setFirstRecordDate(upload.first());
+        result.setLastRecordDate(upload.last());
+        return result;
+    }
+
+    /**
+     * DISTINCT ON keeps the last occurrence of a repeated timestamp, as the row-by-row
+     * import would. Rows whose values are unchanged are left alone by the WHERE clause.
+     */
+    private static String stagedMergeSql(String stagingTable) {
+        String columns = "updated, production_power, consume_power, grid_power, purchase_power, " +
+                "feed_in, battery_power, charge_power, discharge_power, soc";
+        return "INSERT INTO public.loots_inverter (" + columns + ") " +
+                "SELECT DISTINCT ON (updated) " + columns + " FROM public." + stagingTable +
+                " WHERE NOT (CAST(updated AS DATE) = ANY (?)) ORDER BY updated, seq DESC " +
+                "ON CONFLICT (updated) DO UPDATE SET " +
+                "production_power = EXCLUDED.production_power, consume_power = EXCLUDED.consume_power, " +
+                "grid_power = EXCLUDED.grid_power, purchase_power = EXCLUDED.purchase_power, " +
+                "feed_in = EXCLUDED.feed_in, battery_power = EXCLUDED.battery_power, " +
+                "charge_power = EXCLUDED.charge_power, discharge_power = EXCLUDED.discharge_power, soc = EXCLUDED.soc " +
+                "WHERE (loots_inverter.production_power, loots_inverter.consume_power, loots_inverter.grid_power, " +
+                "loots_inverter.purchase_power, loots_inverter.feed_in, loots_inverter.battery_power, " +
+                "loots_inverter.charge_power, loots_inverter.discharge_power, loots_inverter.soc) IS DISTINCT FROM " +
+                "(EXCLUDED.production_power, EXCLUDED.consume_power, EXCLUDED.grid_power, EXCLUDED.purchase_power, " +
+                "EXCLUDED.feed_in, EXCLUDED.battery_power, EXCLUDED.charge_power, EXCLUDED.discharge_power, EXCLUDED.soc)";
+    }
+
+    /**
+     * Spools the rows without trying the database, for an import that has just found
+     * it unreachable, so the caller does not wait out a second connection attempt.
+     */
+    public ImportResult spoolSolarManData(List<SolarManRecord> records) {
+        return timedImport("solarman", "spool", records.size(), () -> {
+            ImportResult spooled = spoolSolarManRows(records);
+            if (spooled != null) {
+                return spooled;
+            }
+            ImportResult result = new ImportResult();
+            String errorMessage = "Database connection error during SolarMan import: the database is unreachable and the spool is unavailable";
+            result.addError(CONNECTION, errorMessage);
+            logError(errorMessage);
+            return result;
+        });
+    }
+
+    /** Whether the import could not reach the database, as opposed to failing on rows. */
+    public static boolean lostConnection(ImportResult result) {
+        return result.getErrorCategories().stream().anyMatch(category -> CONNECTION.equals(category.getCategory()));
+    }
+
     public ImportResult importTshwaneData(List<TshwaneRecord> records) {
+        return timedImport("tshwane", "upsert", records.size(), () -> upsertTshwaneRows(records, true));
+    }
+
+    /** Imports rows replayed from the spool, without spooling them again; see {@link #replaySolarManData}. */
+    public ImportResult replayTshwaneData(List<TshwaneRecord> records) {
+        return timedImport("tshwane", "replay", records.size(), () -> upsertTshwaneRows(records, false));
+    }
+
+    private ImportResult upsertTshwaneRows(List<TshwaneRecord> records, boolean spool) {
         ImportResult result = new ImportResult();
         LocalDateTime firstDate = null;
         LocalDateTime lastDate = null;
@@ -119,18 +502,40 @@ public class ImportService {
                 "cumulative_electricity_used = EXCLUDED.cumulative_electricity_used, " +
                 "reading_notes = EXCLUDED.reading_notes";
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        Map<LocalDate, DayChecksum> dayChecksums = computeDayChecksums(records, TshwaneRecord::getReadingDate, this::canonicalRow);
+        Set<LocalDate> unchangedDays = Collections.emptySet();
+        Set<LocalDate> failedDays = new HashSet<>();
+        int skipped = 0;
+        boolean connected = false;
+
+        try (Connection connection = connect();
+             PreparedStatement pstmt = connection.prepareStatement(sql);
+             ImportProfiler.StageTotal bind = ImportProfiler.total("bind")) {
 
             connection.setAutoCommit(true);
+            connected = true;
+            unchangedDays = findUnchangedDays("tshwane", dayChecksums);
 
             for (TshwaneRecord record : records) {
                 try {
+                    if (record.getReadingDate() != null && unchangedDays.contains(record.getReadingDate().toLocalDate())) {
+                        skipped++;
+                        if (firstDate == null || record.getReadingDate().isBefore(firstDate)) {
+                            firstDate = record.getReadingDate();
+                        }
+                        if (lastDate == null || record.getReadingDate().isAfter(lastDate)) {
+                            lastDate = record.getReadingDate();
+                        }
+                        continue;
+                    }
+
+                    bind.start();
                     pstmt.setTimestamp(1, Timestamp.valueOf(record.getReadingDate()));
                     pstmt.setDouble(2, record.getCumulativeElectricityUsed() != null ? record.getCumulativeElectricityUsed() : 0.0);
                     pstmt.setString(3, record.getReadingNotes() != null ? record.getReadingNotes() : "");
+                    bind.stop();
 
-                    int rowsAffected = pstmt.executeUpdate();
+                    int rowsAffected = executeUpdate(pstmt);
                     if (rowsAffected > 0) {
                         inserted++;
                     }
@@ -145,38 +550,263 @@ public class ImportService {
 
                 } catch (SQLException e) {
                     String errorMessage = "Error importing Tshwane record at " + record.getReadingDate() + ": " + e.getMessage();
-                    result.addError(errorMessage);
-                    logError(errorMessage, e);
+                    result.addError(errorCategory(e), errorMessage);
+                    logError(errorMessage);
+                    failedDays.add(record.getReadingDate().toLocalDate());
                 }
             }
 
         } catch (SQLException e) {
+            if (!connected && spool && importSpool.appendTshwane(records)) {
+                return spooledResult(records, TshwaneRecord::getReadingDate);
+            }
             String errorMessage = "Database connection error during Tshwane import: " + e.getMessage();
-            result.addError(errorMessage);
-            logError(errorMessage, e);
+            result.addError(CONNECTION, errorMessage);
+            logError(errorMessage);
+            connected = false;
+        }
+
+        if (connected) {
+            saveWrittenDays("tshwane", dayChecksums, unchangedDays, failedDays);
         }
 
         result.setRecordsInserted(inserted);
         result.setRecordsUpdated(updated);
+        result.setRecordsSkipped(skipped);
+        result.setDaysSkipped(unchangedDays.size());
         result.setFirstRecordDate(firstDate);
         result.setLastRecordDate(lastDate);
 
         return result;
     }
 
-    private void logError(String message, Exception e) {
-        String logEntry = LocalDateTime.now() + ": " + message;
-        errorLogs.add(logEntry);
-        System.err.println(logEntry);
+    /**
+     * Times one import call, whatever its size, and counts its rows by outcome. The
+     * call is profiled into the caller's import profile, or into its own if there is
+     * none; live ingest batches and spool replays are kept out of the import history.
+     */
+    private ImportResult timedImport(String type, String mode, int rows, Supplier<ImportResult> importer) {
+        Timer timer = batchTimers.computeIfAbsent(type + "/" + mode, key -> Timer.builder("solarman.import.batch")
+                .tags("type", type, "mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        ImportResult result;
+        boolean keep = !"batch".equals(mode) && !"replay".equals(mode);
+        try (ImportProfiler.Profiling profiling = importProfiler.begin(type, mode, keep)) {
+            result = timer.record(importer);
+            profiling.profile().addRows(rows);
+            result.setProfile(profiling.profile());
+        }
+        countRows(type, "inserted", result.getRecordsInserted());
+        countRows(type, "updated", result.getRecordsUpdated());
+        countRows(type, "skipped", result.getRecordsSkipped());
+        countRows(type, "spooled", result.getRecordsSpooled());
+        countRows(type, "failed", result.getErrorCount());
+        return result;
+    }
+
+    /** Waiting for a pooled connection, or for a new one when the pool is empty. */
+    private Connection connect() throws SQLException {
+        try (ImportProfiler.Span span = ImportProfiler.stage("connect")) {
+            return dataSource.getConnection();
+        }
+    }
+
+    /** One round trip: sending the statement, executing it and, under auto-commit, committing it. */
+    private static int executeUpdate(PreparedStatement statement) throws SQLException {
+        ImportProfiler.countBatches(1);
+        try (ImportProfiler.Span span = ImportProfiler.stage("execute")) {
+            return statement.executeUpdate();
+        }
+    }
+
+    private static void executeBatch(PreparedStatement statement) throws SQLException {
+        ImportProfiler.countBatches(1);
+        try (ImportProfiler.Span span = ImportProfiler.stage("execute")) {
+            statement.executeBatch();
+        }
+    }
+
+    private static void commit(Connection connection) throws SQLException {
+        try (ImportProfiler.Span span = ImportProfiler.stage("commit")) {
+            connection.commit();
+        }
+    }
+
+    private void countRows(String type, String outcome, int rows) {
+        rowCounters.computeIfAbsent(type + "/" + outcome,
+                key -> meterRegistry.counter("solarman.import.rows", "type", type, "outcome", outcome)).increment(rows);
+    }
 
-        // Keep only last 100 error logs to prevent memory issues
-        if (errorLogs.size() > 100) {
-            errorLogs.remove(0);
+    /**
+     * Spools the rows that were read; unreadable ones are reported as row errors, as
+     * the direct import would. Returns null if the spool cannot take them.
+     */
+    private ImportResult spoolSolarManRows(List<SolarManRecord> records) {
+        List<SolarManRecord> readable = new ArrayList<>(records.size());
+        for (SolarManRecord record : records) {
+            if (record.getParseError() == null) {
+                readable.add(record);
+            }
+        }
+        if (!importSpool.appendSolarMan(readable)) {
+            return null;
+        }
+        ImportResult result = spooledResult(readable, SolarManRecord::getUpdated);
+        if (readable.size() < records.size()) {
+            for (SolarManRecord record : records) {
+                if (record.getParseError() != null) {
+                    reportMalformedRow(result, record);
+                }
+            }
         }
+        return result;
+    }
+
+    private void reportMalformedRow(ImportResult result, SolarManRecord record) {
+        String errorMessage = "Skipping SolarMan record at " + record.getUpdated() + ": " + record.getParseError();
+        result.addError(MALFORMED_ROW, errorMessage);
+        logError(errorMessage);
+    }
+
+    private <T> ImportResult spooledResult(List<T> records, Function<T, LocalDateTime> timestamp) {
+        ImportResult result = new ImportResult();
+        result.setRecordsSpooled(records.size());
+        for (T record : records) {
+            LocalDateTime time = timestamp.apply(record);
+            if (time != null) {
+                if (result.getFirstRecordDate() == null || time.isBefore(result.getFirstRecordDate())) {
+                    result.setFirstRecordDate(time);
+                }
+                if (result.getLastRecordDate() == null || time.isAfter(result.getLastRecordDate())) {
+                    result.setLastRecordDate(time);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * SQLSTATE class 08 is a connection exception. A failed batch carries it on its
+     * next exception and a pool timeout on its cause, so both chains are searched.
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException || t instanceof SocketException) {
+                return true;
+            }
+            if (t instanceof SQLException sql) {
+                for (SQLException next = sql; next != null; next = next.getNextException()) {
+                    if (next.getSQLState() != null && next.getSQLState().startsWith("08")) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Per-day checksums of SolarMan rows, as recorded in the ledger after they are written. */
+    public Map<LocalDate, DayChecksum> solarManDayChecksums(List<SolarManRecord> records) {
+        return computeDayChecksums(records, SolarManRecord::getUpdated, this::canonicalRow);
+    }
+
+    /**
+     * Groups records by day and hashes each day's rows in timestamp order, so a day
+     * re-exported with identical values produces the same checksum.
+     */
+    private <T> Map<LocalDate, DayChecksum> computeDayChecksums(List<T> records, Function<T, LocalDateTime> timestamp,
+                                                                Function<T, String> canonical) {
+        if (!skipUnchangedDays) {
+            return Collections.emptyMap();
+        }
+        ImportProfiler.Span span = ImportProfiler.stage("checksums");
+        Map<LocalDate, List<String>> rowsByDay = new TreeMap<>();
+        for (T record : records) {
+            LocalDateTime time = timestamp.apply(record);
+            if (time != null) {
+                rowsByDay.computeIfAbsent(time.toLocalDate(), day -> new ArrayList<>()).add(canonical.apply(record));
+            }
+        }
+
+        Map<LocalDate, DayChecksum> checksums = new TreeMap<>();
+        for (Map.Entry<LocalDate, List<String>> day : rowsByDay.entrySet()) {
+            List<String> rows = day.getValue();
+            Collections.sort(rows);
+            MessageDigest digest = UploadStore.newSha256();
+            for (String row : rows) {
+                digest.update(row.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            checksums.put(day.getKey(), new DayChecksum(day.getKey(), HexFormat.of().formatHex(digest.digest()), rows.size()));
+        }
+        span.close();
+        return checksums;
+    }
+
+    private Set<LocalDate> findUnchangedDays(String fileType, Map<LocalDate, DayChecksum> dayChecksums) {
+        if (dayChecksums.isEmpty()) {
+            return Collections.emptySet();
+        }
+        TreeMap<LocalDate, DayChecksum> days = new TreeMap<>(dayChecksums);
+        Map<LocalDate, String> known;
+        try (ImportProfiler.Span ledger = ImportProfiler.stage("ledger")) {
+            known = importLedger.findDayChecksums(fileType, days.firstKey(), days.lastKey());
+        }
+
+        Set<LocalDate> unchanged = new HashSet<>();
+        for (DayChecksum day : days.values()) {
+            if (day.getChecksum().equals(known.get(day.getDay()))) {
+                unchanged.add(day.getDay());
+            }
+        }
+        return unchanged;
+    }
+
+    private void saveWrittenDays(String fileType, Map<LocalDate, DayChecksum> dayChecksums,
+                                 Set<LocalDate> unchangedDays, Set<LocalDate> failedDays) {
+        // Days with a failed row are left out so the next import writes them again
+        List<DayChecksum> written = new ArrayList<>();
+        for (DayChecksum day : dayChecksums.values()) {
+            if (!unchangedDays.contains(day.getDay()) && !failedDays.contains(day.getDay())) {
+                written.add(day);
+            }
+        }
+        if (!written.isEmpty()) {
+            try (ImportProfiler.Span ledger = ImportProfiler.stage("ledger")) {
+                importLedger.saveDayChecksums(fileType, written);
+            }
+        }
+    }
+
+    private String canonicalRow(SolarManRecord record) {
+        return record.getUpdated() + "|" + valueOrZero(record.getProductionPower()) + "|" + valueOrZero(record.getConsumePower()) +
+                "|" + valueOrZero(record.getGridPower()) + "|" + valueOrZero(record.getPurchasePower()) +
+                "|" + valueOrZero(record.getFeedIn()) + "|" + valueOrZero(record.getBatteryPower()) +
+                "|" + valueOrZero(record.getChargePower()) + "|" + valueOrZero(record.getDischargePower()) +
+                "|" + valueOrZero(record.getSoc());
+    }
+
+    private String canonicalRow(TshwaneRecord record) {
+        return record.getReadingDate() + "|" + valueOrZero(record.getCumulativeElectricityUsed()) +
+                "|" + (record.getReadingNotes() != null ? record.getReadingNotes() : "");
+    }
+
+    private static double valueOrZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    /** Row failures are grouped by SQLSTATE, so one constraint violation repeated on every row is one category. */
+    private static String errorCategory(SQLException e) {
+        return e.getSQLState() != null ? "SQLSTATE " + e.getSQLState() : "database error";
+    }
+
+    private void logError(String message) {
+        errorLogs.add(LocalDateTime.now() + ": " + message);
     }
 
     public List<String> getErrorLogs() {
-        return new ArrayList<>(errorLogs);
+        return errorLogs.recent();
     }
 
     public void clearErrorLogs() {
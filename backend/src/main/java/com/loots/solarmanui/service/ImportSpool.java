@@ -0,0 +1,371 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.SolarManRecord;
+import com.loots.solarmanui.model.TshwaneRecord;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Local write-ahead spool for imports that arrive while PostgreSQL is unreachable.
+ *
+ * <p>Record batches are appended to a segment file as frames of
+ * {@code magic | length | CRC32C | payload} and fsynced before the append returns,
+ * so an import can be acknowledged as soon as its rows are on disk.
+ * {@link SpoolReplayer} seals the segment and writes it to the database once the
+ * connection is healthy again. A frame cut short by a crash fails its length or
+ * checksum and ends the segment there; every complete frame before it is replayed.
+ *
+ * <p>Each replica writes its own segment, named after its host, so the spool can
+ * live on a volume shared by the replicas. Active segments of hosts that have been
+ * silent for a while, such as a rescheduled pod, are sealed and replayed as well.
+ * A host that turns out to be alive after all notices that its segment file was
+ * renamed from under its open channel, and writes the batch again to a new segment.
+ */
+@Service
+public class ImportSpool {
+
+    private static final int MAGIC = 0x53504f4c; // "SPOL"
+    private static final byte SOLARMAN = 1;
+    private static final byte TSHWANE = 2;
+    private static final String ACTIVE_SUFFIX = ".spool";
+    private static final String READY_SUFFIX = ".ready";
+
+    /** Receives the batches read back from a segment. */
+    public interface BatchHandler {
+        void solarMan(List<SolarManRecord> records);
+
+        void tshwane(List<TshwaneRecord> records);
+    }
+
+    @Value("${solarman.spool.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${solarman.spool.dir:${java.io.tmpdir}/solarman-spool}")
+    private String spoolDir;
+
+    @Value("${solarman.spool.max-size:1GB}")
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+
+    @Value("${solarman.spool.orphan-age:PT10M}")
+    private Duration orphanAge = Duration.ofMinutes(10);
+
+    private final String host = hostName();
+    private FileChannel active;
+    private Object activeKey;
+
+    @PreDestroy
+    public synchronized void close() {
+        closeActive();
+    }
+
+    public boolean appendSolarMan(List<SolarManRecord> records) {
+        return enabled && append(SOLARMAN, records.size(), out -> {
+            for (SolarManRecord record : records) {
+                writeTimestamp(out, record.getUpdated());
+                writeDouble(out, record.getProductionPower());
+                writeDouble(out, record.getConsumePower());
+                writeDouble(out, record.getGridPower());
+                writeDouble(out, record.getPurchasePower());
+                writeDouble(out, record.getFeedIn());
+                writeDouble(out, record.getBatteryPower());
+                writeDouble(out, record.getChargePower());
+                writeDouble(out, record.getDischargePower());
+                writeDouble(out, record.getSoc());
+            }
+        });
+    }
+
+    public boolean appendTshwane(List<TshwaneRecord> records) {
+        return enabled && append(TSHWANE, records.size(), out -> {
+            for (TshwaneRecord record : records) {
+                writeTimestamp(out, record.getReadingDate());
+                writeDouble(out, record.getCumulativeElectricityUsed());
+                out.writeBoolean(record.getReadingNotes() != null);
+                if (record.getReadingNotes() != null) {
+                    out.writeUTF(record.getReadingNotes());
+                }
+            }
+        });
+    }
+
+    /** Whether anything is waiting to be replayed. */
+    public boolean hasPending() {
+        if (!enabled) {
+            return false;
+        }
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(spoolPath())) {
+            for (Path segment : segments) {
+                if (Files.size(segment) > 0) {
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            // No spool directory yet
+        }
+        return false;
+    }
+
+    /**
+     * Closes this host's active segment and any long-silent one of another host for
+     * replay, and returns every segment ready for replay, oldest first.
+     */
+    public synchronized List<Path> sealForReplay() throws IOException {
+        Path dir = spoolPath();
+        Files.createDirectories(dir);
+        long orphanCutoff = System.currentTimeMillis() - orphanAge.toMillis();
+
+        List<Path> ready = new ArrayList<>();
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(dir)) {
+            for (Path segment : segments) {
+                String name = segment.getFileName().toString();
+                if (name.endsWith(READY_SUFFIX)) {
+                    ready.add(segment);
+                } else if (name.endsWith(ACTIVE_SUFFIX) && Files.size(segment) > 0) {
+                    boolean own = name.equals(host + ACTIVE_SUFFIX);
+                    if (own) {
+                        closeActive();
+                    } else if (Files.getLastModifiedTime(segment).toMillis() > orphanCutoff) {
+                        continue; // another replica is still writing it
+                    }
+                    String base = name.substring(0, name.length() - ACTIVE_SUFFIX.length());
+                    Path sealed = dir.resolve(base + "-" + System.currentTimeMillis() + READY_SUFFIX);
+                    Files.move(segment, sealed, StandardCopyOption.ATOMIC_MOVE);
+                    ready.add(sealed);
+                }
+            }
+        }
+        ready.sort((a, b) -> Long.compare(sealedAt(a), sealedAt(b)));
+        return ready;
+    }
+
+    /** Reads a sealed segment back, handing each complete batch to the handler in order. */
+    public void replay(Path segment, BatchHandler handler) throws IOException {
+        try (InputStream file = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    if (in.readInt() != MAGIC) {
+                        break;
+                    }
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 0 || length > maxSize.toBytes()) {
+                        break;
+                    }
+                    payload = in.readNBytes(length);
+                    if (payload.length < length || crc(payload) != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                decode(payload, handler);
+            }
+        }
+    }
+
+    public void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private synchronized boolean append(byte kind, int count, PayloadWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(bytes);
+            payload.writeByte(kind);
+            payload.writeInt(count);
+            writer.write(payload);
+            byte[] body = bytes.toByteArray();
+
+            ByteBuffer frame = ByteBuffer.allocate(body.length + 12);
+            frame.putInt(MAGIC).putInt(body.length).putInt(crc(body)).put(body).flip();
+
+            for (int attempt = 0; attempt < 3; attempt++) {
+                FileChannel channel = activeChannel();
+                if (channel.size() + body.length + 12 > maxSize.toBytes()) {
+                    System.err.println("Import spool is full; batch of " + count + " records not spooled");
+                    return false;
+                }
+                frame.rewind();
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+                // Acknowledged only once the batch is durable
+                channel.force(false);
+                // If another replica sealed the segment meanwhile, it may have replayed it without
+                // this frame; the frame goes to a fresh segment, and replaying it twice is harmless
+                if (ownsActivePath()) {
+                    return true;
+                }
+                closeActive();
+            }
+            System.err.println("Import spool segment keeps being sealed by another replica; batch of " + count +
+                    " records not spooled");
+            return false;
+        } catch (IOException e) {
+            System.err.println("Failed to spool import batch: " + e.getMessage());
+            closeActive();
+            return false;
+        }
+    }
+
+    private FileChannel activeChannel() throws IOException {
+        if (active != null && active.isOpen() && !ownsActivePath()) {
+            // Sealed as an orphan by another replica: the open channel now writes into its sealed file
+            closeActive();
+        }
+        if (active == null || !active.isOpen()) {
+            Path path = activePath();
+            Files.createDirectories(spoolPath());
+            active = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            activeKey = fileKey(path);
+        }
+        return active;
+    }
+
+    /** Whether this host's segment name still refers to the file the active channel writes to. */
+    private boolean ownsActivePath() {
+        Object key = fileKey(activePath());
+        return key != null && key.equals(activeKey);
+    }
+
+    private static Object fileKey(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Path activePath() {
+        return spoolPath().resolve(host + ACTIVE_SUFFIX);
+    }
+
+    private void closeActive() {
+        if (active != null) {
+            try {
+                active.close();
+            } catch (IOException e) {
+                // Everything written was already forced
+            }
+            active = null;
+            activeKey = null;
+        }
+    }
+
+    private void decode(byte[] payload, BatchHandler handler) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte kind = in.readByte();
+        int count = in.readInt();
+        if (kind == SOLARMAN) {
+            List<SolarManRecord> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                SolarManRecord record = new SolarManRecord();
+                record.setUpdated(readTimestamp(in));
+                record.setProductionPower(readDouble(in));
+                record.setConsumePower(readDouble(in));
+                record.setGridPower(readDouble(in));
+                record.setPurchasePower(readDouble(in));
+                record.setFeedIn(readDouble(in));
+                record.setBatteryPower(readDouble(in));
+                record.setChargePower(readDouble(in));
+                record.setDischargePower(readDouble(in));
+                record.setSoc(readDouble(in));
+                records.add(record);
+            }
+            handler.solarMan(records);
+        } else if (kind == TSHWANE) {
+            List<TshwaneRecord> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                TshwaneRecord record = new TshwaneRecord();
+                record.setReadingDate(readTimestamp(in));
+                record.setCumulativeElectricityUsed(readDouble(in));
+                record.setReadingNotes(in.readBoolean() ? in.readUTF() : null);
+                records.add(record);
+            }
+            handler.tshwane(records);
+        }
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeDouble(DataOutputStream out, Double value) throws IOException {
+        // NaN stands for a missing value
+        out.writeDouble(value != null ? value : Double.NaN);
+    }
+
+    private static Double readDouble(DataInputStream in) throws IOException {
+        double value = in.readDouble();
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static long sealedAt(Path segment) {
+        String name = segment.getFileName().toString();
+        String stamp = name.substring(name.lastIndexOf('-') + 1, name.length() - READY_SUFFIX.length());
+        try {
+            return Long.parseLong(stamp);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Path spoolPath() {
+        return Paths.get(spoolDir);
+    }
+
+    private static String hostName() {
+        String host = System.getenv("HOSTNAME");
+        // No '-' in the host part: it separates the seal time in sealed segment names
+        return host != null && !host.isBlank() ? host.replaceAll("[^A-Za-z0-9_.]", "_") : "local";
+    }
+}
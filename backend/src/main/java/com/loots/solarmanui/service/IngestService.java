@@ -0,0 +1,223 @@
+package com.loots.solarmanui.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loots.solarmanui.model.ImportResult;
+import com.loots.solarmanui.model.IngestAck;
+import com.loots.solarmanui.model.SolarManRecord;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Live ingest of inverter samples pushed by a local logger.
+ *
+ * <p>Samples arrive as newline-delimited JSON, either as a single request or as a
+ * long-lived chunked stream, and are collected by a micro-batcher per stream. A batch
+ * is written through {@link ImportService#upsertSolarManBatch} when it reaches the
+ * configured size or when its oldest sample has waited for the configured latency,
+ * so samples never cost a transaction each. Every flush is acknowledged with one
+ * NDJSON line on the response.
+ *
+ * <p>One scheduler thread checks the deadlines of all streams; a due batch is written
+ * by a flush worker, so a slow write on one stream does not delay the others.
+ */
+@Service
+public class IngestService {
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private SolarManJsonReader solarManJsonReader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${solarman.ingest.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${solarman.ingest.max-latency:PT1S}")
+    private Duration maxLatency = Duration.ofSeconds(1);
+
+    private final ScheduledExecutorService deadlineScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ingest-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Each stream has at most one deadline flush queued, so this grows with the number of open streams
+    private final ExecutorService flushExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ingest-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        deadlineScheduler.shutdownNow();
+        flushExecutor.shutdownNow();
+    }
+
+    /**
+     * Reads samples until the client ends the stream, writing an acknowledgement per
+     * flush to {@code acks}. A rejected sample is acknowledged with its error and the
+     * stream carries on; malformed JSON ends the stream after the pending batch is
+     * flushed. Returns the number of samples accepted.
+     *
+     * @throws IOException if the client went away
+     */
+    public long ingestSolarMan(InputStream samples, OutputStream acks) throws IOException {
+        MicroBatcher batcher = new MicroBatcher(acks);
+        long period = Math.max(10, maxLatency.toMillis() / 4);
+        ScheduledFuture<?> deadline = deadlineScheduler.scheduleAtFixedRate(batcher::flushIfDue, period, period,
+                TimeUnit.MILLISECONDS);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(samples)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    batcher.reject("Expected one JSON object per line");
+                    continue;
+                }
+                try {
+                    batcher.add(solarManJsonReader.readRecord(parser));
+                } catch (IllegalArgumentException e) {
+                    batcher.reject(e.getMessage());
+                }
+            }
+        } catch (JsonProcessingException e) {
+            batcher.reject("Invalid JSON: " + e.getOriginalMessage());
+        } finally {
+            deadline.cancel(false);
+            batcher.flush();
+        }
+
+        if (batcher.writeFailure != null) {
+            throw batcher.writeFailure;
+        }
+        return batcher.accepted;
+    }
+
+    /**
+     * Pending samples are guarded by the batcher's monitor, which is only held briefly.
+     * Database writes and acknowledgements happen under {@code writeLock}, so batches
+     * are written and acknowledged in order without blocking the reader while they run.
+     */
+    private final class MicroBatcher {
+
+        private final OutputStream acks;
+        private final Object writeLock = new Object();
+        private final AtomicBoolean flushQueued = new AtomicBoolean();
+        private List<SolarManRecord> pending = new ArrayList<>();
+        private long oldestPendingNanos;
+        private long batches;
+        private long accepted;
+        private volatile IOException writeFailure;
+
+        MicroBatcher(OutputStream acks) {
+            this.acks = acks;
+        }
+
+        void add(SolarManRecord record) throws IOException {
+            boolean full;
+            synchronized (this) {
+                if (writeFailure != null) {
+                    throw writeFailure;
+                }
+                if (pending.isEmpty()) {
+                    oldestPendingNanos = System.nanoTime();
+                }
+                pending.add(record);
+                accepted++;
+                full = pending.size() >= batchSize;
+            }
+            if (full) {
+                flush();
+            }
+        }
+
+        /** Runs on the scheduler: hands a batch that has waited long enough to a flush worker, even if the stream is idle. */
+        void flushIfDue() {
+            try {
+                if (isDue() && flushQueued.compareAndSet(false, true)) {
+                    flushExecutor.execute(() -> {
+                        flushQueued.set(false);
+                        try {
+                            flush();
+                        } catch (RuntimeException e) {
+                            System.err.println("Ingest deadline flush failed: " + e.getMessage());
+                        }
+                    });
+                }
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the stream's own final flush still runs
+                flushQueued.set(false);
+            } catch (RuntimeException e) {
+                // A throwing task would never be scheduled again
+                System.err.println("Ingest deadline check failed: " + e.getMessage());
+            }
+        }
+
+        private synchronized boolean isDue() {
+            return !pending.isEmpty() && System.nanoTime() - oldestPendingNanos >= maxLatency.toNanos();
+        }
+
+        private synchronized List<SolarManRecord> takePending() {
+            List<SolarManRecord> batch = pending;
+            if (!batch.isEmpty()) {
+                pending = new ArrayList<>(Math.min(batchSize, 1024));
+            }
+            return batch;
+        }
+
+        void flush() {
+            synchronized (writeLock) {
+                List<SolarManRecord> batch = takePending();
+                if (batch.isEmpty()) {
+                    return;
+                }
+                ImportResult result = importService.upsertSolarManBatch(batch);
+                write(new IngestAck(++batches, batch.size(), result));
+            }
+        }
+
+        void reject(String error) {
+            synchronized (writeLock) {
+                write(IngestAck.rejected(error));
+            }
+        }
+
+        private void write(IngestAck ack) {
+            if (writeFailure != null) {
+                return;
+            }
+            try {
+                acks.write(objectMapper.writeValueAsBytes(ack));
+                acks.write('\n');
+                acks.flush();
+            } catch (IOException e) {
+                // The batch is already written; the reader stops at the next sample
+                writeFailure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.SolarManRecord;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * An inverter vendor's export layout. Every format writes into the same
+ * {@code loots_inverter} rows, so supporting a new vendor means adding one
+ * implementation as a Spring bean; {@link InverterFormatRegistry} picks it up and
+ * the workbook is streamed through the usual sheet readers.
+ */
+public interface InverterFormat {
+
+    /** Short name used in logs, such as "solarman". */
+    String getName();
+
+    /**
+     * Header keys that identify this format, as produced by
+     * {@link InverterFormatRegistry#headerKey(String)}. A sheet is considered this
+     * format when its first row contains all of them, in any order.
+     */
+    Set<String> getSignature();
+
+    /**
+     * Resolves this format's fields against the header row.
+     *
+     * @return the mapper for rows under this header, or null if a required field has no column
+     */
+    RowMapper compile(String[] headers);
+
+    /** Converts data rows for one header layout; called from several parse threads at once. */
+    @FunctionalInterface
+    interface RowMapper {
+
+        /** The row as a record, or null if it has no usable timestamp or is before {@code notBefore}. */
+        SolarManRecord map(String[] cells, LocalDateTime notBefore);
+    }
+}
@@ -0,0 +1,88 @@
+package com.loots.solarmanui.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Detects which {@link InverterFormat} a sheet is from its header row.
+ *
+ * <p>Every signature key is indexed in a hash map, so detection hashes each header
+ * cell once and counts hits per format instead of trying each format in turn. Of
+ * the formats whose whole signature is present, the most specific one wins.
+ */
+@Component
+public class InverterFormatRegistry {
+
+    private final List<InverterFormat> formats;
+    private final Map<String, List<Integer>> formatsByKey = new HashMap<>();
+
+    @Autowired
+    public InverterFormatRegistry(List<InverterFormat> formats) {
+        this.formats = List.copyOf(formats);
+        for (int i = 0; i < this.formats.size(); i++) {
+            for (String key : this.formats.get(i).getSignature()) {
+                formatsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+        }
+    }
+
+    /** The built-in formats, for callers created outside Spring. */
+    public static InverterFormatRegistry defaults() {
+        return new InverterFormatRegistry(List.of(new SolarManFormat()));
+    }
+
+    /**
+     * Compiles the row mapper of the format the header row belongs to.
+     *
+     * @return null if no registered format matches the header
+     */
+    public InverterFormat.RowMapper detect(String[] headers) {
+        int[] hits = new int[formats.size()];
+        for (String header : headers) {
+            List<Integer> matches = formatsByKey.get(headerKey(header));
+            if (matches != null) {
+                for (int format : matches) {
+                    hits[format]++;
+                }
+            }
+        }
+
+        InverterFormat.RowMapper best = null;
+        int bestSize = 0;
+        for (int i = 0; i < formats.size(); i++) {
+            InverterFormat format = formats.get(i);
+            int size = format.getSignature().size();
+            if (size > bestSize && hits[i] >= size) {
+                InverterFormat.RowMapper mapper = format.compile(headers);
+                if (mapper != null) {
+                    best = mapper;
+                    bestSize = size;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The part of a header cell that names it: its first word, lower-cased, without
+     * any unit suffix, so "Feed-in Power(W)" and "SoC(%)" become "feed-in" and "soc".
+     */
+    public static String headerKey(String header) {
+        if (header == null) {
+            return "";
+        }
+        String trimmed = header.trim();
+        int end = 0;
+        while (end < trimmed.length() && !Character.isWhitespace(trimmed.charAt(end))
+                && trimmed.charAt(end) != '(' && trimmed.charAt(end) != '[') {
+            end++;
+        }
+        return trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+}
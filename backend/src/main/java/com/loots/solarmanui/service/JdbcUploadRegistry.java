@@ -0,0 +1,350 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.UploadSession;
+import com.loots.solarmanui.model.UploadedFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Multi-replica registry: entries are kept in {@code public.upload_registry} so that
+ * an import for a file ID can be served by any backend pod, and chunked uploads in
+ * {@code public.upload_session} so that any pod can take the next chunk. The files
+ * themselves must be on a volume mounted at the same upload directory in every pod.
+ *
+ * <p>An upload registered while the database is unreachable is kept in memory and
+ * served by the replica that took it, so the upload still gets a file ID and its
+ * import can be spooled; {@link #flush} writes it to the table once the database is
+ * back. Chunked uploads do need the database: a session that cannot be recorded
+ * fails with a {@link DataAccessResourceFailureException}.
+ */
+@Component
+@ConditionalOnProperty(name = "solarman.upload.registry", havingValue = "jdbc")
+public class JdbcUploadRegistry implements UploadRegistry {
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS public.upload_registry (
+                file_id VARCHAR(36) PRIMARY KEY,
+                file_path TEXT NOT NULL,
+                file_type VARCHAR(20),
+                total_records INTEGER,
+                size BIGINT,
+                sha256 CHAR(64),
+                created_at TIMESTAMP NOT NULL,
+                last_accessed TIMESTAMP NOT NULL
+            );
+            CREATE INDEX IF NOT EXISTS upload_registry_sha256_idx ON public.upload_registry (sha256);
+            CREATE TABLE IF NOT EXISTS public.upload_session (
+                upload_id VARCHAR(36) PRIMARY KEY,
+                filename TEXT,
+                file_type VARCHAR(20),
+                total_size BIGINT NOT NULL,
+                part_path TEXT NOT NULL,
+                received_ranges TEXT NOT NULL DEFAULT '',
+                created_at TIMESTAMP NOT NULL,
+                last_activity TIMESTAMP NOT NULL
+            )""";
+
+    private static final String SELECT_COLUMNS =
+            "SELECT file_id, file_path, file_type, total_records, size, sha256, created_at, last_accessed FROM public.upload_registry";
+
+    private static final String SELECT_SESSION_COLUMNS =
+            "SELECT upload_id, filename, file_type, total_size, part_path, received_ranges, created_at, last_activity FROM public.upload_session";
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final Map<String, UploadedFile> pending = new ConcurrentHashMap<>();
+
+    /** Creates the tables once at startup; without a database then, they must come from the documented DDL. */
+    @Override
+    public void open(Path uploadDir) {
+        createTables();
+    }
+
+    @Override
+    public void save(UploadedFile uploadedFile) {
+        try {
+            insert(uploadedFile);
+            pending.remove(uploadedFile.getFileId());
+        } catch (SQLException e) {
+            System.err.println("Keeping upload " + uploadedFile.getFileId() + " on this replica until the database is back: " + e.getMessage());
+            pending.put(uploadedFile.getFileId(), uploadedFile);
+        }
+    }
+
+    private void insert(UploadedFile uploadedFile) throws SQLException {
+        String sql = "INSERT INTO public.upload_registry (file_id, file_path, file_type, total_records, size, sha256, created_at, last_accessed) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (file_id) DO UPDATE SET file_path = EXCLUDED.file_path, file_type = EXCLUDED.file_type, " +
+                "total_records = EXCLUDED.total_records, size = EXCLUDED.size, sha256 = EXCLUDED.sha256, " +
+                "last_accessed = EXCLUDED.last_accessed";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, uploadedFile.getFileId());
+            stmt.setString(2, uploadedFile.getFilePath());
+            stmt.setString(3, uploadedFile.getFileType());
+            stmt.setInt(4, uploadedFile.getTotalRecords());
+            stmt.setLong(5, uploadedFile.getSize());
+            stmt.setString(6, uploadedFile.getSha256());
+            stmt.setTimestamp(7, new Timestamp(uploadedFile.getCreatedAt()));
+            stmt.setTimestamp(8, new Timestamp(uploadedFile.getLastAccessed()));
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public UploadedFile find(String fileId) {
+        UploadedFile local = pending.get(fileId);
+        if (local != null) {
+            return local;
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_COLUMNS + " WHERE file_id = ?")) {
+            stmt.setString(1, fileId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapRow(rs) : null;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error looking up upload " + fileId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public UploadedFile findByHash(String sha256, String fileType) {
+        for (UploadedFile local : pending.values()) {
+            if (sha256.equals(local.getSha256()) && fileType.equals(local.getFileType())) {
+                return local;
+            }
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_COLUMNS + " WHERE sha256 = ? AND file_type = ? LIMIT 1")) {
+            stmt.setString(1, sha256);
+            stmt.setString(2, fileType);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapRow(rs) : null;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error looking up upload by hash: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean delete(String fileId) {
+        // A flush may have written the entry already, so the row goes as well
+        boolean local = pending.remove(fileId) != null;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement("DELETE FROM public.upload_registry WHERE file_id = ?")) {
+            stmt.setString(1, fileId);
+            return stmt.executeUpdate() > 0 || local;
+        } catch (SQLException e) {
+            System.err.println("Error removing upload " + fileId + ": " + e.getMessage());
+            return local;
+        }
+    }
+
+    @Override
+    public Collection<UploadedFile> findAll() {
+        Map<String, UploadedFile> entries = new LinkedHashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_COLUMNS);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                UploadedFile entry = mapRow(rs);
+                entries.put(entry.getFileId(), entry);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error listing uploads: " + e.getMessage());
+        }
+        entries.putAll(pending);
+        return new ArrayList<>(entries.values());
+    }
+
+    @Override
+    public void touch(String fileId, long lastAccessed) {
+        UploadedFile local = pending.get(fileId);
+        if (local != null) {
+            local.setLastAccessed(lastAccessed);
+            return;
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(
+                     "UPDATE public.upload_registry SET last_accessed = ? WHERE file_id = ?")) {
+            stmt.setTimestamp(1, new Timestamp(lastAccessed));
+            stmt.setString(2, fileId);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error touching upload " + fileId + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void saveSession(UploadSession session) {
+        String sql = "INSERT INTO public.upload_session (upload_id, filename, file_type, total_size, part_path, received_ranges, created_at, last_activity) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, session.getUploadId());
+            stmt.setString(2, session.getFilename());
+            stmt.setString(3, session.getFileType());
+            stmt.setLong(4, session.getTotalSize());
+            stmt.setString(5, session.getPartPath());
+            stmt.setString(6, session.getRanges());
+            stmt.setTimestamp(7, new Timestamp(session.getCreatedAt()));
+            stmt.setTimestamp(8, new Timestamp(session.getLastActivity()));
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Failed to register upload session: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public UploadSession findSession(String uploadId) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_SESSION_COLUMNS + " WHERE upload_id = ?")) {
+            stmt.setString(1, uploadId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapSession(rs) : null;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error looking up upload session " + uploadId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public UploadSession recordChunk(String uploadId, long start, long end, long now) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                UploadSession session;
+                // The row lock serialises replicas merging ranges into the same session
+                try (PreparedStatement select = connection.prepareStatement(SELECT_SESSION_COLUMNS + " WHERE upload_id = ? FOR UPDATE")) {
+                    select.setString(1, uploadId);
+                    try (ResultSet rs = select.executeQuery()) {
+                        session = rs.next() ? mapSession(rs) : null;
+                    }
+                }
+                if (session == null) {
+                    connection.rollback();
+                    return null;
+                }
+                session.addRange(start, end);
+                session.setLastActivity(now);
+                try (PreparedStatement update = connection.prepareStatement(
+                        "UPDATE public.upload_session SET received_ranges = ?, last_activity = ? WHERE upload_id = ?")) {
+                    update.setString(1, session.getRanges());
+                    update.setTimestamp(2, new Timestamp(now));
+                    update.setString(3, uploadId);
+                    update.executeUpdate();
+                }
+                connection.commit();
+                return session;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Failed to record chunk of upload " + uploadId + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean deleteSession(String uploadId) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement("DELETE FROM public.upload_session WHERE upload_id = ?")) {
+            stmt.setString(1, uploadId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Error removing upload session " + uploadId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public Collection<UploadSession> findAllSessions() {
+        List<UploadSession> sessions = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_SESSION_COLUMNS);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                sessions.add(mapSession(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error listing upload sessions: " + e.getMessage());
+        }
+        return sessions;
+    }
+
+    /** Writes uploads registered during an outage to the table; every other change is written through. */
+    @Override
+    public void flush() {
+        for (UploadedFile entry : pending.values()) {
+            try {
+                insert(entry);
+                pending.remove(entry.getFileId(), entry);
+            } catch (SQLException e) {
+                // Still unreachable; the next flush tries again
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    private void createTables() {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute(CREATE_TABLE_SQL);
+        } catch (SQLException e) {
+            System.err.println("Upload registry tables not created, apply the DDL from the changelog: " + e.getMessage());
+        }
+    }
+
+    private UploadedFile mapRow(ResultSet rs) throws SQLException {
+        UploadedFile uploadedFile = new UploadedFile();
+        uploadedFile.setFileId(rs.getString("file_id"));
+        uploadedFile.setFilePath(rs.getString("file_path"));
+        uploadedFile.setFileType(rs.getString("file_type"));
+        uploadedFile.setTotalRecords(rs.getInt("total_records"));
+        uploadedFile.setSize(rs.getLong("size"));
+        uploadedFile.setSha256(rs.getString("sha256"));
+        uploadedFile.setCreatedAt(rs.getTimestamp("created_at").getTime());
+        uploadedFile.setLastAccessed(rs.getTimestamp("last_accessed").getTime());
+        return uploadedFile;
+    }
+
+    private UploadSession mapSession(ResultSet rs) throws SQLException {
+        UploadSession session = new UploadSession();
+        session.setUploadId(rs.getString("upload_id"));
+        session.setFilename(rs.getString("filename"));
+        session.setFileType(rs.getString("file_type"));
+        session.setTotalSize(rs.getLong("total_size"));
+        session.setPartPath(rs.getString("part_path"));
+        session.setRanges(rs.getString("received_ranges"));
+        session.setCreatedAt(rs.getTimestamp("created_at").getTime());
+        session.setLastActivity(rs.getTimestamp("last_activity").getTime());
+        return session;
+    }
+}
@@ -0,0 +1,57 @@
+package com.loots.solarmanui.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed records keyed by file type and content hash, so re-uploading or importing
+ * a workbook that was already parsed skips the parse. Bounded by the total number
+ * of cached records; the least recently used results are dropped first.
+ */
+@Service
+public class ParseResultCache {
+
+    @Value("${solarman.upload.parse-cache-max-records:200000}")
+    private int maxRecords = 200_000;
+
+    private final LinkedHashMap<String, List<?>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRecords;
+
+    @SuppressWarnings("unchecked")
+    public synchronized <T> List<T> get(String fileType, String sha256) {
+        if (sha256 == null) {
+            return null;
+        }
+        return (List<T>) entries.get(key(fileType, sha256));
+    }
+
+    public synchronized void put(String fileType, String sha256, List<?> records) {
+        if (sha256 == null || records.size() > maxRecords) {
+            return;
+        }
+        List<?> previous = entries.put(key(fileType, sha256), List.copyOf(records));
+        if (previous != null) {
+            cachedRecords -= previous.size();
+        }
+        cachedRecords += records.size();
+
+        Iterator<Map.Entry<String, List<?>>> eldest = entries.entrySet().iterator();
+        while (cachedRecords > maxRecords && eldest.hasNext()) {
+            cachedRecords -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static String key(String fileType, String sha256) {
+        return fileType + ":" + sha256;
+    }
+}
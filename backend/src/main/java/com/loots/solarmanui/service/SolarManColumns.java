@@ -0,0 +1,76 @@
+package com.loots.solarmanui.service;
+
+import java.util.Arrays;
+
+/**
+ * Where each SolarMan field sits in a particular export, resolved once from its
+ * header row.
+ *
+ * <p>SolarMan has shipped layouts with extra and reordered columns, so fields are
+ * found by header name rather than position: each field takes the first column
+ * whose header starts with the field's name, ignoring case. The result is a plain
+ * index per field that the row loop reads cells through, so a file's layout costs
+ * nothing per row. Columns that map to no field, such as Plant or Time, are ignored.
+ */
+public final class SolarManColumns {
+
+    public static final int UPDATED = 0;
+    public static final int PRODUCTION = 1;
+    public static final int CONSUMPTION = 2;
+    public static final int GRID = 3;
+    public static final int PURCHASING = 4;
+    public static final int FEED_IN = 5;
+    public static final int BATTERY = 6;
+    public static final int CHARGING = 7;
+    public static final int DISCHARGING = 8;
+    public static final int SOC = 9;
+
+    private static final String[] FIELD_NAMES = {
+        "Updated", "Production", "Consumption", "Grid", "Purchasing",
+        "Feed-in", "Battery", "Charging", "Discharging", "SoC"
+    };
+
+    private final int[] columns;
+
+    private SolarManColumns(int[] columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Resolves every field from the header row.
+     *
+     * @return null if any field has no matching column
+     */
+    public static SolarManColumns resolve(String[] headers) {
+        int[] columns = new int[FIELD_NAMES.length];
+        boolean[] taken = new boolean[headers.length];
+        for (int field = 0; field < FIELD_NAMES.length; field++) {
+            columns[field] = find(headers, taken, FIELD_NAMES[field]);
+            if (columns[field] < 0) {
+                return null;
+            }
+            taken[columns[field]] = true;
+        }
+        return new SolarManColumns(columns);
+    }
+
+    private static int find(String[] headers, boolean[] taken, String name) {
+        for (int i = 0; i < headers.length; i++) {
+            String header = headers[i];
+            if (!taken[i] && header != null && header.trim().regionMatches(true, 0, name, 0, name.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** The column index holding {@code field}, one of the constants above. */
+    public int column(int field) {
+        return columns[field];
+    }
+
+    @Override
+    public String toString() {
+        return "SolarManColumns" + Arrays.toString(columns);
+    }
+}
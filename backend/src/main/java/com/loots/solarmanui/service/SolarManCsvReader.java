@@ -0,0 +1,380 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.SolarManRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads SolarMan CSV exports at the byte level.
+ *
+ * <p>The file is read through a channel into one reusable buffer and each row is
+ * tokenized in place into field offsets. Timestamps and numbers are parsed straight
+ * from those bytes, so apart from the header no String is created per row or cell.
+ * Rows are converted as workbook rows are: same column mapping, same timestamp
+ * formats, rows before the cutoff dropped and empty cells read as zero. A number
+ * that cannot be read is not turned into zero: the record carries a
+ * {@linkplain SolarManRecord#getParseError() parse error} and the import reports
+ * it as a row error instead of writing it.
+ *
+ * <p>Quoted fields, with doubled quotes and embedded separators or line breaks,
+ * CRLF line ends, a UTF-8 byte order mark and ';' as separator are handled. Exports
+ * separated by ';' come from locales that write a decimal comma, so there ',' is
+ * read as the decimal point as well.
+ */
+public final class SolarManCsvReader {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] TIMESTAMP_DELIMITERS = {'/', '/', ' ', ':'};
+
+    // Exactly representable, so mantissa / 10^scale is correctly rounded
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private SolarManCsvReader() {}
+
+    public static List<SolarManRecord> read(Path path, LocalDateTime notBefore) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel, notBefore);
+        }
+    }
+
+    /**
+     * Reads every record from the channel.
+     *
+     * @throws IllegalArgumentException if a SolarMan field has no column in the header row
+     */
+    public static List<SolarManRecord> read(ReadableByteChannel channel, LocalDateTime notBefore) throws IOException {
+        return new Parser(channel, notBefore).parse();
+    }
+
+    private static final class Parser {
+        private final ReadableByteChannel channel;
+        private final LocalDateTime notBefore;
+        private final List<SolarManRecord> records = new ArrayList<>();
+
+        private byte[] buf = new byte[BUFFER_SIZE];
+        private int pos;
+        private int limit;
+        private boolean eof;
+
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int fields;
+
+        private final int[] groups = new int[5];
+        private byte separator;
+        private SolarManColumns columns;
+        private String rowError;
+
+        Parser(ReadableByteChannel channel, LocalDateTime notBefore) {
+            this.channel = channel;
+            this.notBefore = notBefore;
+        }
+
+        List<SolarManRecord> parse() throws IOException {
+            fill();
+            if (limit >= 3 && buf[0] == (byte) 0xEF && buf[1] == (byte) 0xBB && buf[2] == (byte) 0xBF) {
+                pos = 3;
+            }
+            separator = detectSeparator();
+
+            while (true) {
+                if (pos >= limit) {
+                    if (eof) {
+                        break;
+                    }
+                    fill();
+                    continue;
+                }
+                int next = tokenize(pos);
+                if (next < 0) {
+                    // The row runs past the buffer; it is tokenized again after the next read
+                    fill();
+                    continue;
+                }
+                handleRow();
+                pos = next;
+            }
+            return records;
+        }
+
+        /** Moves the unread bytes to the front of the buffer and reads more after them. */
+        private void fill() throws IOException {
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            }
+            if (limit == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            int read;
+            do {
+                read = channel.read(ByteBuffer.wrap(buf, limit, buf.length - limit));
+            } while (read == 0);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+
+        private byte detectSeparator() {
+            int commas = 0;
+            int semicolons = 0;
+            for (int i = pos; i < limit && buf[i] != '\n'; i++) {
+                if (buf[i] == ',') {
+                    commas++;
+                } else if (buf[i] == ';') {
+                    semicolons++;
+                }
+            }
+            return semicolons > commas ? (byte) ';' : (byte) ',';
+        }
+
+        /**
+         * Splits the row starting at {@code from} into field offsets. Returns the
+         * offset after the row, or -1 if the buffer ends before the row does.
+         */
+        private int tokenize(int from) {
+            fields = 0;
+            int i = from;
+            while (true) {
+                int start;
+                int end;
+                if (i < limit && buf[i] == '"') {
+                    start = i + 1;
+                    int j = start;
+                    boolean closed = false;
+                    while (j < limit) {
+                        if (buf[j] == '"') {
+                            if (j + 1 >= limit && !eof) {
+                                return -1; // cannot tell a closing quote from a doubled one yet
+                            }
+                            if (j + 1 < limit && buf[j + 1] == '"') {
+                                j += 2;
+                                continue;
+                            }
+                            closed = true;
+                            break;
+                        }
+                        j++;
+                    }
+                    if (!closed && !eof) {
+                        return -1;
+                    }
+                    end = j;
+                    i = closed ? j + 1 : j;
+                    while (i < limit && buf[i] != separator && buf[i] != '\n') {
+                        i++;
+                    }
+                } else {
+                    start = i;
+                    while (i < limit && buf[i] != separator && buf[i] != '\n') {
+                        i++;
+                    }
+                    end = i;
+                }
+                if (i >= limit && !eof) {
+                    return -1;
+                }
+
+                if (end > start && buf[end - 1] == '\r') {
+                    end--;
+                }
+                addField(start, end);
+
+                if (i >= limit) {
+                    return limit; // last row without a line break
+                }
+                if (buf[i] == '\n') {
+                    return i + 1;
+                }
+                i++;
+            }
+        }
+
+        private void addField(int start, int end) {
+            if (fields == starts.length) {
+                starts = Arrays.copyOf(starts, fields * 2);
+                ends = Arrays.copyOf(ends, fields * 2);
+            }
+            starts[fields] = start;
+            ends[fields] = end;
+            fields++;
+        }
+
+        private void handleRow() {
+            if (fields == 1 && starts[0] == ends[0]) {
+                return; // blank line
+            }
+
+            if (columns == null) {
+                String[] headers = new String[fields];
+                for (int f = 0; f < fields; f++) {
+                    headers[f] = new String(buf, starts[f], ends[f] - starts[f], StandardCharsets.UTF_8)
+                            .replace("\"\"", "\"").trim();
+                }
+                columns = SolarManColumns.resolve(headers);
+                if (columns == null) {
+                    throw new IllegalArgumentException("Invalid SolarMan CSV format - column headers do not match expected format");
+                }
+                return;
+            }
+
+            int updatedField = columns.column(SolarManColumns.UPDATED);
+            if (updatedField >= fields) {
+                return;
+            }
+            LocalDateTime updated = parseTimestamp(starts[updatedField], ends[updatedField]);
+            // Filter records before 2020-01-01, or before the append watermark
+            if (updated == null || updated.isBefore(notBefore)) {
+                return;
+            }
+
+            SolarManRecord record = new SolarManRecord();
+            record.setUpdated(updated);
+            rowError = null;
+            record.setProductionPower(number(SolarManColumns.PRODUCTION));
+            record.setConsumePower(number(SolarManColumns.CONSUMPTION));
+            record.setGridPower(number(SolarManColumns.GRID));
+            record.setPurchasePower(number(SolarManColumns.PURCHASING));
+            record.setFeedIn(number(SolarManColumns.FEED_IN));
+            record.setBatteryPower(number(SolarManColumns.BATTERY));
+            record.setChargePower(number(SolarManColumns.CHARGING));
+            record.setDischargePower(number(SolarManColumns.DISCHARGING));
+            record.setSoc(number(SolarManColumns.SOC));
+            record.setParseError(rowError);
+            records.add(record);
+        }
+
+        /** The cell's number, or null with {@code rowError} set if it is not a number. */
+        private Double number(int field) {
+            int column = columns.column(field);
+            if (column >= fields) {
+                return 0.0;
+            }
+            try {
+                return parseNumber(starts[column], ends[column]);
+            } catch (NumberFormatException e) {
+                if (rowError == null) {
+                    String value = new String(buf, starts[column], ends[column] - starts[column], StandardCharsets.UTF_8);
+                    rowError = "Unreadable number '" + value.trim() + "' in column " + (column + 1);
+                }
+                return null;
+            }
+        }
+
+        /**
+         * Plain decimals of up to 15 digits are assembled from the digits and scaled by
+         * one exact division, which rounds the same as {@link Double#parseDouble}. Any
+         * other form, such as an exponent, falls back to it.
+         *
+         * @throws NumberFormatException if the cell is not a number
+         */
+        private double parseNumber(int start, int end) {
+            while (start < end && buf[start] == ' ') {
+                start++;
+            }
+            while (end > start && buf[end - 1] == ' ') {
+                end--;
+            }
+            if (start == end) {
+                return 0.0;
+            }
+
+            int i = start;
+            boolean negative = buf[i] == '-';
+            if (negative || buf[i] == '+') {
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            while (i < end && isDigit(buf[i])) {
+                mantissa = mantissa * 10 + (buf[i++] - '0');
+                digits++;
+            }
+            if (i < end && isDecimalPoint(buf[i])) {
+                i++;
+                while (i < end && isDigit(buf[i])) {
+                    mantissa = mantissa * 10 + (buf[i++] - '0');
+                    digits++;
+                    scale++;
+                }
+            }
+            if (i != end || digits == 0 || digits > 15) {
+                return parseNumberSlowly(start, end);
+            }
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+
+        private double parseNumberSlowly(int start, int end) {
+            String value = new String(buf, start, end - start, StandardCharsets.ISO_8859_1);
+            return Double.parseDouble(separator == ';' ? value.replace(',', '.') : value);
+        }
+
+        private boolean isDecimalPoint(byte b) {
+            return b == '.' || (b == ',' && separator == ';');
+        }
+
+        /**
+         * Reads {@code yyyy/MM/dd HH:mm} or {@code MM/dd/yyyy HH:mm}. As with the
+         * workbook parser, anything after the minutes, such as seconds, is ignored.
+         */
+        private LocalDateTime parseTimestamp(int start, int end) {
+            while (start < end && buf[start] == ' ') {
+                start++;
+            }
+            int firstGroupDigits = 0;
+            int i = start;
+            for (int g = 0; g < groups.length; g++) {
+                if (g > 0) {
+                    if (i >= end || buf[i] != TIMESTAMP_DELIMITERS[g - 1]) {
+                        return null;
+                    }
+                    i++;
+                }
+                int value = 0;
+                int digits = 0;
+                while (i < end && isDigit(buf[i]) && digits < 9) {
+                    value = value * 10 + (buf[i++] - '0');
+                    digits++;
+                }
+                if (digits == 0) {
+                    return null;
+                }
+                if (g == 0) {
+                    firstGroupDigits = digits;
+                }
+                groups[g] = value;
+            }
+
+            try {
+                return firstGroupDigits >= 3
+                        ? LocalDateTime.of(groups[0], groups[1], groups[2], groups[3], groups[4])
+                        : LocalDateTime.of(groups[2], groups[0], groups[1], groups[3], groups[4]);
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+
+        private static boolean isDigit(byte b) {
+            return b >= '0' && b <= '9';
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.SolarManRecord;
+import org.springframework.stereotype.Component;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * SolarMan plant exports. Columns are found by header name through
+ * {@link SolarManColumns}, so layouts with extra or reordered columns are read too.
+ */
+@Component
+public class SolarManFormat implements InverterFormat {
+
+    private static final Set<String> SIGNATURE = Set.of(
+            "updated", "production", "consumption", "grid", "purchasing",
+            "feed-in", "battery", "charging", "discharging", "soc");
+
+    @Override
+    public String getName() {
+        return "solarman";
+    }
+
+    @Override
+    public Set<String> getSignature() {
+        return SIGNATURE;
+    }
+
+    @Override
+    public RowMapper compile(String[] headers) {
+        SolarManColumns columns = SolarManColumns.resolve(headers);
+        return columns != null ? (cells, notBefore) -> parseRow(cells, columns, notBefore) : null;
+    }
+
+    private static SolarManRecord parseRow(String[] cells, SolarManColumns columns, LocalDateTime notBefore) {
+        try {
+            String updateTimeStr = cellAsString(cells, columns.column(SolarManColumns.UPDATED));
+            if (updateTimeStr.isEmpty()) {
+                return null;
+            }
+
+            LocalDateTime updateTime = parseTimestamp(updateTimeStr);
+            if (updateTime == null) {
+                return null;
+            }
+
+            // Filter records before 2020-01-01, or before the append watermark
+            if (updateTime.isBefore(notBefore)) {
+                return null;
+            }
+
+            SolarManRecord record = new SolarManRecord();
+            record.setUpdated(updateTime);
+            record.setProductionPower(cellAsDouble(cells, columns.column(SolarManColumns.PRODUCTION)));
+            record.setConsumePower(cellAsDouble(cells, columns.column(SolarManColumns.CONSUMPTION)));
+            record.setGridPower(cellAsDouble(cells, columns.column(SolarManColumns.GRID)));
+            record.setPurchasePower(cellAsDouble(cells, columns.column(SolarManColumns.PURCHASING)));
+            record.setFeedIn(cellAsDouble(cells, columns.column(SolarManColumns.FEED_IN)));
+            record.setBatteryPower(cellAsDouble(cells, columns.column(SolarManColumns.BATTERY)));
+            record.setChargePower(cellAsDouble(cells, columns.column(SolarManColumns.CHARGING)));
+            record.setDischargePower(cellAsDouble(cells, columns.column(SolarManColumns.DISCHARGING)));
+            record.setSoc(cellAsDouble(cells, columns.column(SolarManColumns.SOC)));
+
+            return record;
+        } catch (Exception e) {
+            ErrorLog.print("Error parsing SolarMan row: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String cellAsString(String[] cells, int index) {
+        if (index >= cells.length || cells[index] == null) return "";
+        return cells[index];
+    }
+
+    private static double cellAsDouble(String[] cells, int index) {
+        String value = cellAsString(cells, index);
+        try {
+            return value.isEmpty() ? 0.0 : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    private static LocalDateTime parseTimestamp(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy/MM/dd HH:mm");
+            sdf.setLenient(false);
+            Date date = sdf.parse(value);
+            return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+        } catch (ParseException e) {
+            try {
+                SimpleDateFormat sdf = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
+                sdf.setLenient(false);
+                Date date = sdf.parse(value);
+                return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+            } catch (ParseException e2) {
+                try {
+                    SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy HH:mm");
+                    sdf.setLenient(false);
+                    Date date = sdf.parse(value);
+                    return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+                } catch (ParseException e3) {
+                    return null;
+                }
+            }
+        }
+    }
+}
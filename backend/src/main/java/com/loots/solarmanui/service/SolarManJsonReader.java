@@ -0,0 +1,134 @@
+package com.loots.solarmanui.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.loots.solarmanui.model.SolarManRecord;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the {@code data} array of a legacy SolarMan import request token by token.
+ *
+ * <p>Records are built straight from the parser and handed over in batches, so the
+ * request is never bound to a tree of maps and only one batch is held at a time.
+ * A batch is only closed where the day changes, which keeps each day whole for the
+ * importer's per-day checksums when rows arrive in time order.
+ */
+@Service
+public class SolarManJsonReader {
+
+    public static final int DEFAULT_BATCH_SIZE = 5000;
+
+    /**
+     * Reads the array the parser is positioned on and passes its records to the sink.
+     * Returns the number of records read.
+     *
+     * @throws IllegalArgumentException if a record has a missing or unparseable timestamp
+     */
+    public int readRecords(JsonParser parser, int batchSize, Consumer<List<SolarManRecord>> sink) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("'data' must be an array of records");
+        }
+
+        List<SolarManRecord> batch = new ArrayList<>(batchSize);
+        int count = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            SolarManRecord record = readRecord(parser);
+            if (batch.size() >= batchSize
+                    && !record.getUpdated().toLocalDate().equals(batch.get(batch.size() - 1).getUpdated().toLocalDate())) {
+                sink.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+            batch.add(record);
+            count++;
+        }
+        if (parser.currentToken() != JsonToken.END_ARRAY) {
+            throw new IllegalArgumentException("'data' must be an array of records");
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+        return count;
+    }
+
+    /**
+     * Reads the object the parser is positioned on. The parser is left on the object's
+     * end, also when the record is rejected, so a stream of objects can carry on.
+     *
+     * @throws IllegalArgumentException if the record has a missing or unparseable timestamp
+     */
+    public SolarManRecord readRecord(JsonParser parser) throws IOException {
+        SolarManRecord record = new SolarManRecord();
+        // Absent numeric fields are stored as zero, as the importer would
+        record.setProductionPower(0.0);
+        record.setConsumePower(0.0);
+        record.setGridPower(0.0);
+        record.setPurchasePower(0.0);
+        record.setFeedIn(0.0);
+        record.setBatteryPower(0.0);
+        record.setChargePower(0.0);
+        record.setDischargePower(0.0);
+        record.setSoc(0.0);
+
+        String updated = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            // Both the preview's display names and the camelCase property names are accepted
+            switch (field) {
+                case "Updated", "updated" -> updated = parser.currentToken() == JsonToken.VALUE_STRING ? parser.getText() : null;
+                case "Production Power", "productionPower" -> record.setProductionPower(readDouble(parser));
+                case "Consumption Power", "consumePower" -> record.setConsumePower(readDouble(parser));
+                case "Grid Power", "gridPower" -> record.setGridPower(readDouble(parser));
+                case "Purchasing Power", "purchasePower" -> record.setPurchasePower(readDouble(parser));
+                case "Feed-in", "feedIn" -> record.setFeedIn(readDouble(parser));
+                case "Battery Power", "batteryPower" -> record.setBatteryPower(readDouble(parser));
+                case "Charging Power", "chargePower" -> record.setChargePower(readDouble(parser));
+                case "Discharging Power", "dischargePower" -> record.setDischargePower(readDouble(parser));
+                case "SoC", "soc" -> record.setSoc(readDouble(parser));
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (updated == null || updated.isBlank()) {
+            throw new IllegalArgumentException("Missing or empty 'Updated' field in record");
+        }
+        try {
+            // ISO_LOCAL_DATE_TIME already treats the seconds as optional
+            record.setUpdated(LocalDateTime.parse(updated.trim(), DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date format: " + updated + " - " + e.getMessage());
+        }
+        return record;
+    }
+
+    private static double readDouble(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
+                return parser.getDoubleValue();
+            }
+            case VALUE_STRING -> {
+                String text = parser.getText().trim();
+                if (text.isEmpty()) {
+                    return 0.0;
+                }
+                try {
+                    return Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    return 0.0;
+                }
+            }
+            default -> {
+                parser.skipChildren();
+                return 0.0;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.ImportResult;
+import com.loots.solarmanui.model.SolarManRecord;
+import com.loots.solarmanui.model.TshwaneRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Drains the {@link ImportSpool} into PostgreSQL once the database is reachable again.
+ *
+ * <p>Batches go through the {@link ImportService} replay imports, which are upserts,
+ * so replaying a batch twice is harmless, and which never spool. If the database drops
+ * again mid-replay the segment is kept, as it is, for the next round.
+ * Replicas sharing the spool directory replay one at a time under an advisory lock.
+ */
+@Service
+public class SpoolReplayer {
+
+    private static final long REPLAY_LOCK_ID = 0x53504f4f4c524550L; // "SPOOLREP"
+
+    @Autowired
+    private ImportSpool importSpool;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Scheduled(fixedDelayString = "${solarman.spool.replay-interval:PT10S}")
+    public void replay() {
+        if (!importSpool.hasPending() || !databaseService.checkDatabaseConnection().isConnected()) {
+            return;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            if (!tryLock(connection)) {
+                return;
+            }
+            try {
+                for (Path segment : importSpool.sealForReplay()) {
+                    if (!replaySegment(segment)) {
+                        break;
+                    }
+                }
+            } finally {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("SELECT pg_advisory_unlock(" + REPLAY_LOCK_ID + ")");
+                }
+            }
+        } catch (SQLException | IOException e) {
+            System.err.println("Spool replay failed: " + e.getMessage());
+        }
+    }
+
+    /** Replays one segment and deletes it, unless the database went away meanwhile. */
+    private boolean replaySegment(Path segment) throws IOException {
+        int[] batchesWithErrors = {0};
+        boolean[] disconnected = {false};
+        importSpool.replay(segment, new ImportSpool.BatchHandler() {
+            @Override
+            public void solarMan(List<SolarManRecord> records) {
+                count(importService.replaySolarManData(records));
+            }
+
+            @Override
+            public void tshwane(List<TshwaneRecord> records) {
+                count(importService.replayTshwaneData(records));
+            }
+
+            private void count(ImportResult result) {
+                if (result.getErrorCount() > 0) {
+                    batchesWithErrors[0]++;
+                }
+                disconnected[0] |= ImportService.lostConnection(result);
+            }
+        });
+
+        if (disconnected[0] || (batchesWithErrors[0] > 0 && !databaseService.checkDatabaseConnection().isConnected())) {
+            return false;
+        }
+        // Errors with the database up are row errors, logged by the import like any other
+        importSpool.delete(segment);
+        return true;
+    }
+
+    private boolean tryLock(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT pg_try_advisory_lock(" + REPLAY_LOCK_ID + ")")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.DayChecksum;
+import com.loots.solarmanui.model.ImportResult;
+import com.loots.solarmanui.model.SolarManRecord;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Speculatively loads parsed SolarMan rows into a per-upload staging table while
+ * the user is still looking at the preview, so that confirming the import is a
+ * single set-based merge into {@code loots_inverter}.
+ *
+ * <p>Staging tables are unlogged and dropped after the merge, when loading fails,
+ * when the upload is cancelled, or when the upload store evicts or expires the file
+ * ID. If staging is unavailable, failed or is still loading after
+ * {@code solarman.import.staging.wait}, {@link #mergeSolarMan} returns {@code null}
+ * and the caller falls back to the regular row-by-row import. Files below
+ * {@code solarman.import.staging.min-rows} are not staged; the row import handles
+ * them quickly enough. The merge itself runs through
+ * {@link ImportService#mergeStagedSolarMan}.
+ */
+@Service
+public class StagingService {
+
+    private static final Pattern FILE_ID = Pattern.compile("[0-9a-fA-F-]{36}");
+    private static final String TABLE_PREFIX = "import_staging_";
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String COLUMNS = "updated, production_power, consume_power, grid_power, purchase_power, " +
+            "feed_in, battery_power, charge_power, discharge_power, soc";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Value("${solarman.import.staging.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${solarman.import.staging.min-rows:5000}")
+    private int minRows = 5000;
+
+    @Value("${solarman.import.staging.wait:PT30S}")
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    private final Map<String, Future<StagedUpload>> staged = new ConcurrentHashMap<>();
+    private final ExecutorService stagingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "import-staging");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        uploadStore.addRemovalListener(this::drop);
+        if (enabled) {
+            stagingExecutor.execute(this::dropOrphanedTables);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stagingExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts loading the records into a staging table in the background. A file with
+     * unreadable rows is not staged; the merge has no way to report them per row.
+     */
+    public void stageSolarMan(String fileId, List<SolarManRecord> records) {
+        if (!enabled || records.size() < minRows || !FILE_ID.matcher(fileId).matches()) {
+            return;
+        }
+        if (records.stream().anyMatch(record -> record.getParseError() != null)) {
+            return;
+        }
+        staged.computeIfAbsent(fileId, id -> stagingExecutor.submit(() -> load(id, records)));
+    }
+
+    /**
+     * Merges the staged rows into {@code loots_inverter} and drops the staging table.
+     * Waits for staging that is still running, up to the configured wait; staging
+     * that takes longer is cancelled. Returns {@code null} if nothing usable was
+     * staged for this file ID in time.
+     */
+    public ImportResult mergeSolarMan(String fileId) {
+        Future<StagedUpload> future = staged.remove(fileId);
+        if (future == null) {
+            return null;
+        }
+
+        StagedUpload upload;
+        try {
+            upload = future.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // The row import is quicker than waiting out a slow load; the drop runs after the cancelled load
+            System.err.println("Staging for " + fileId + " still running after " + maxWait + ", importing row by row");
+            future.cancel(true);
+            stagingExecutor.execute(() -> dropTable(fileId));
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stagingExecutor.execute(() -> dropTable(fileId));
+            return null;
+        } catch (ExecutionException e) {
+            // A failed load has dropped its table already
+            System.err.println("Staging failed for " + fileId + ": " + e.getCause().getMessage());
+            return null;
+        }
+
+        ImportResult result = null;
+        try {
+            result = importService.mergeStagedSolarMan(tableName(fileId), upload);
+            return result;
+        } finally {
+            // With the database unreachable the drop would only wait out another connection
+            // timeout; the table goes when the file ID is removed or at the next startup
+            if (result == null || !ImportService.lostConnection(result)) {
+                dropTable(fileId);
+            }
+        }
+    }
+
+    /** Cancels any staging for the file ID and drops its table, which may have been staged by another replica. */
+    public void drop(String fileId) {
+        Future<StagedUpload> future = staged.remove(fileId);
+        if (future != null) {
+            future.cancel(true);
+        }
+        if (enabled && FILE_ID.matcher(fileId).matches()) {
+            stagingExecutor.execute(() -> dropTable(fileId));
+        }
+    }
+
+    public boolean isStaged(String fileId) {
+        return staged.containsKey(fileId);
+    }
+
+    private StagedUpload load(String fileId, List<SolarManRecord> records) throws SQLException {
+        String table = tableName(fileId);
+        String createSql = "CREATE UNLOGGED TABLE IF NOT EXISTS public." + table + " (" +
+                "seq INTEGER NOT NULL, updated TIMESTAMP NOT NULL, production_power DOUBLE PRECISION, " +
+                "consume_power DOUBLE PRECISION, grid_power DOUBLE PRECISION, purchase_power DOUBLE PRECISION, " +
+                "feed_in DOUBLE PRECISION, battery_power DOUBLE PRECISION, charge_power DOUBLE PRECISION, " +
+                "discharge_power DOUBLE PRECISION, soc DOUBLE PRECISION)";
+        String insertSql = "INSERT INTO public." + table + " (seq, " + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+        List<LocalDateTime> timestamps = new ArrayList<>(records.size());
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(createSql);
+            }
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(insertSql)) {
+                int seq = 0;
+                for (SolarManRecord record : records) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        connection.rollback();
+                        throw new SQLException("Staging cancelled");
+                    }
+                    if (record.getUpdated() == null) {
+                        continue;
+                    }
+                    pstmt.setInt(1, seq++);
+                    pstmt.setTimestamp(2, Timestamp.valueOf(record.getUpdated()));
+                    pstmt.setDouble(3, valueOrZero(record.getProductionPower()));
+                    pstmt.setDouble(4, valueOrZero(record.getConsumePower()));
+                    pstmt.setDouble(5, valueOrZero(record.getGridPower()));
+                    pstmt.setDouble(6, valueOrZero(record.getPurchasePower()));
+                    pstmt.setDouble(7, valueOrZero(record.getFeedIn()));
+                    pstmt.setDouble(8, valueOrZero(record.getBatteryPower()));
+                    pstmt.setDouble(9, valueOrZero(record.getChargePower()));
+                    pstmt.setDouble(10, valueOrZero(record.getDischargePower()));
+                    pstmt.setDouble(11, valueOrZero(record.getSoc()));
+                    pstmt.addBatch();
+                    if (seq % BATCH_SIZE == 0) {
+                        pstmt.executeBatch();
+                    }
+
+                    timestamps.add(record.getUpdated());
+                    if (first == null || record.getUpdated().isBefore(first)) {
+                        first = record.getUpdated();
+                    }
+                    if (last == null || record.getUpdated().isAfter(last)) {
+                        last = record.getUpdated();
+                    }
+                }
+                pstmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // No half-loaded table is left behind
+            dropTable(fileId);
+            throw e;
+        }
+
+        int distinctRows = (int) timestamps.stream().distinct().count();
+        Map<LocalDate, DayChecksum> dayChecksums = importService.solarManDayChecksums(records);
+        return new StagedUpload(distinctRows, first, last, dayChecksums);
+    }
+
+    private void dropTable(String fileId) {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS public." + tableName(fileId));
+        } catch (SQLException e) {
+            System.err.println("Failed to drop staging table for " + fileId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops staging tables left behind by a previous run. With a local registry
+     * nothing is staged yet in this process, so all of them are orphans; with a
+     * shared registry only those whose file ID is no longer registered are, since
+     * another replica may be staging or merging the rest.
+     */
+    private void dropOrphanedTables() {
+        String sql = "SELECT tablename FROM pg_tables WHERE schemaname = 'public' AND tablename LIKE '" + TABLE_PREFIX + "%'";
+        List<String> tables = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    tables.add(rs.getString(1));
+                }
+            }
+            try (Statement stmt = connection.createStatement()) {
+                for (String table : tables) {
+                    if (!uploadStore.isSharedRegistry() || !uploadStore.isRegistered(fileId(table))) {
+                        stmt.execute("DROP TABLE IF EXISTS public." + table);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Skipping staging table cleanup: " + e.getMessage());
+        }
+    }
+
+    private static String tableName(String fileId) {
+        if (!FILE_ID.matcher(fileId).matches()) {
+            throw new IllegalArgumentException("Invalid file ID: " + fileId);
+        }
+        return TABLE_PREFIX + fileId.toLowerCase().replace('-', '_');
+    }
+
+    private static String fileId(String table) {
+        return table.substring(TABLE_PREFIX.length()).replace('_', '-');
+    }
+
+    private static double valueOrZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    record StagedUpload(int distinctRows, LocalDateTime first, LocalDateTime last, Map<LocalDate, DayChecksum> dayChecksums) {
+    }
+}
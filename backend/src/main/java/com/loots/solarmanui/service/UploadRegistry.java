@@ -0,0 +1,63 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.UploadSession;
+import com.loots.solarmanui.model.UploadedFile;
+
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Where {@link UploadStore} records which file IDs exist and where their files live,
+ * along with the chunked uploads still in progress.
+ *
+ * <p>The default implementation keeps a JSON index in the upload directory and is
+ * only visible to the replica that owns that directory. A shared implementation
+ * (see {@link JdbcUploadRegistry}) lets any replica resolve any file ID, provided
+ * the upload directory itself is a volume shared between the replicas.
+ */
+public interface UploadRegistry {
+
+    /** Prepares the registry for use with the given upload directory. */
+    void open(Path uploadDir);
+
+    void save(UploadedFile uploadedFile);
+
+    UploadedFile find(String fileId);
+
+    /** An existing upload of the same content and type, or {@code null}. */
+    UploadedFile findByHash(String sha256, String fileType);
+
+    /**
+     * Removes the entry, returning {@code true} only for the caller that actually
+     * removed it so that file deletion and counters happen exactly once.
+     */
+    boolean delete(String fileId);
+
+    Collection<UploadedFile> findAll();
+
+    void touch(String fileId, long lastAccessed);
+
+    void saveSession(UploadSession session);
+
+    UploadSession findSession(String uploadId);
+
+    /**
+     * Marks a byte range of a chunked upload as written and the session as active,
+     * as one atomic update so that replicas writing chunks of the same upload do
+     * not lose each other's ranges.
+     *
+     * @return the updated session, or {@code null} if it no longer exists
+     */
+    UploadSession recordChunk(String uploadId, long start, long end, long now);
+
+    /** Removes the session, returning {@code true} only for the caller that actually removed it. */
+    boolean deleteSession(String uploadId);
+
+    Collection<UploadSession> findAllSessions();
+
+    /** Writes out any pending changes. Called from the store's background thread. */
+    void flush();
+
+    /** Whether other replicas may be registering uploads in the same directory. */
+    boolean isShared();
+}
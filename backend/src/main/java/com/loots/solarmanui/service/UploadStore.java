@@ -0,0 +1,478 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.StoredUpload;
+import com.loots.solarmanui.model.UploadSession;
+import com.loots.solarmanui.model.UploadStoreStats;
+import com.loots.solarmanui.model.UploadedFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Temp store for uploaded workbooks and the registry of their file IDs.
+ *
+ * <p>Uploads are written to the upload directory in a single pass, hashing the
+ * content and enforcing the size limit as the bytes arrive. Registered uploads
+ * are recorded in an {@link UploadRegistry}: by default a JSON index persisted
+ * next to the files, or a database table when several replicas share the
+ * upload directory. The store is bounded by a total size and file count; when
+ * either is exceeded the least recently used uploads are evicted. The part files
+ * of chunked uploads in progress count towards the size but are never evicted.
+ * The quota is checked against running totals, so registering an upload does not
+ * list the registry; the totals are recounted from the registry on every expiry
+ * pass, which also picks up uploads registered by other replicas. Index writes,
+ * file deletion and TTL expiry run on a background thread, off the request path.
+ */
+@Service
+public class UploadStore {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${solarman.upload.dir:${java.io.tmpdir}/solarman-uploads}")
+    private String uploadDir = System.getProperty("java.io.tmpdir") + "/solarman-uploads";
+
+    @Value("${solarman.upload.max-file-size:200MB}")
+    private DataSize maxFileSize = DataSize.ofMegabytes(200);
+
+    @Value("${solarman.upload.max-total-size:2GB}")
+    private DataSize maxTotalSize = DataSize.ofGigabytes(2);
+
+    @Value("${solarman.upload.max-files:100}")
+    private int maxFiles = 100;
+
+    @Value("${solarman.upload.ttl:PT1H}")
+    private Duration ttl = Duration.ofHours(1);
+
+    @Autowired(required = false)
+    private UploadRegistry registry;
+
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "upload-store-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicInteger storedFiles = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        if (registry == null) {
+            registry = new FileUploadRegistry();
+        }
+        try {
+            Files.createDirectories(getUploadDir());
+            loadIndex();
+        } catch (IOException e) {
+            System.err.println("Failed to initialise upload directory: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdown();
+        try {
+            ioExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        registry.flush();
+    }
+
+    public StoredUpload store(InputStream in, String originalFilename) throws IOException {
+        String fileId = UUID.randomUUID().toString();
+        String safeName = sanitizeFilename(originalFilename);
+        Path target = getUploadDir().resolve(fileId + "_" + safeName);
+        long limit = maxFileSize.toBytes();
+
+        MessageDigest digest = newSha256();
+        long size = 0;
+        boolean complete = false;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (size > limit) {
+                    throw new MaxUploadSizeExceededException(limit);
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+            complete = true;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(target);
+            }
+        }
+
+        return new StoredUpload(fileId, target, safeName, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Takes ownership of a file that was assembled elsewhere in the upload
+     * directory (e.g. by a chunked upload) and whose hash is already known.
+     */
+    public StoredUpload adopt(Path source, String fileId, String originalFilename, long size, String sha256) throws IOException {
+        String safeName = sanitizeFilename(originalFilename);
+        Path target = getUploadDir().resolve(fileId + "_" + safeName);
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        return new StoredUpload(fileId, target, safeName, size, sha256);
+    }
+
+    /**
+     * Registers a parsed upload under its file ID so it can be imported later,
+     * evicting least recently used uploads if the quota is exceeded.
+     */
+    public UploadedFile register(StoredUpload stored, String fileType, int totalRecords) {
+        UploadedFile uploadedFile = new UploadedFile(stored.getFileId(), stored.getPath().toString(),
+                fileType, totalRecords, stored.getSize(), stored.getSha256());
+        registry.save(uploadedFile);
+        added(uploadedFile);
+        enforceQuota();
+        scheduleFlush();
+        return uploadedFile;
+    }
+
+    public UploadedFile get(String fileId) {
+        UploadedFile uploadedFile = fileId != null ? registry.find(fileId) : null;
+        if (uploadedFile == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!Files.exists(Paths.get(uploadedFile.getFilePath()))) {
+            if (registry.delete(fileId)) {
+                removed(uploadedFile);
+                notifyRemoved(fileId);
+            }
+            scheduleFlush();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        long now = System.currentTimeMillis();
+        uploadedFile.setLastAccessed(now);
+        registry.touch(fileId, now);
+        return uploadedFile;
+    }
+
+    /**
+     * Finds a registered upload with the same content and type, so a repeat upload
+     * can reuse its file ID instead of keeping a second copy.
+     */
+    public UploadedFile findByHash(String sha256, String fileType) {
+        UploadedFile existing = sha256 != null ? registry.findByHash(sha256, fileType) : null;
+        if (existing == null || !Files.exists(Paths.get(existing.getFilePath()))) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        existing.setLastAccessed(now);
+        registry.touch(existing.getFileId(), now);
+        return existing;
+    }
+
+    /** Whether the file ID is in the registry, without touching it or checking its file. */
+    public boolean isRegistered(String fileId) {
+        return registry.find(fileId) != null;
+    }
+
+    public void remove(String fileId) {
+        UploadedFile removed = registry.find(fileId);
+        if (removed != null && registry.delete(fileId)) {
+            removed(removed);
+            deleteInBackground(removed);
+            notifyRemoved(fileId);
+            scheduleFlush();
+        }
+    }
+
+    public void delete(StoredUpload upload) {
+        try {
+            Files.deleteIfExists(upload.getPath());
+        } catch (IOException e) {
+            System.err.println("Failed to delete upload: " + upload.getPath());
+        }
+    }
+
+    /**
+     * Records a new chunked upload whose part file has been created, making room
+     * for it by evicting completed uploads if need be.
+     *
+     * @throws IllegalStateException if the uploads in progress alone would exceed the quota
+     */
+    public void openSession(UploadSession session) {
+        long inProgress = partBytes(registry.findAllSessions());
+        if (inProgress + session.getTotalSize() > maxTotalSize.toBytes()) {
+            throw new IllegalStateException("Not enough upload space: " + inProgress
+                    + " bytes are already reserved by uploads in progress");
+        }
+        registry.saveSession(session);
+        storedBytes.addAndGet(session.getTotalSize());
+        enforceQuota();
+        scheduleFlush();
+    }
+
+    public UploadSession findSession(String uploadId) {
+        return uploadId != null ? registry.findSession(uploadId) : null;
+    }
+
+    /** @return the session with the range added, or {@code null} if it has been completed, aborted or expired */
+    public UploadSession recordChunk(String uploadId, long start, long end) {
+        UploadSession session = registry.recordChunk(uploadId, start, end, System.currentTimeMillis());
+        scheduleFlush();
+        return session;
+    }
+
+    /** Removes a session, returning {@code true} only for the caller that removed it. */
+    public boolean removeSession(UploadSession session) {
+        boolean removed = registry.deleteSession(session.getUploadId());
+        if (removed) {
+            storedBytes.addAndGet(-session.getTotalSize());
+            scheduleFlush();
+        }
+        return removed;
+    }
+
+    public Collection<UploadSession> findSessions() {
+        return registry.findAllSessions();
+    }
+
+    public UploadStoreStats getStats() {
+        Collection<UploadedFile> entries = registry.findAll();
+        long totalBytes = entries.stream().mapToLong(UploadedFile::getSize).sum();
+        return new UploadStoreStats(entries.size(), totalBytes, hits.get(), misses.get(), evictions.get(), expirations.get());
+    }
+
+    /** Background cleanup: expires uploads that have not been touched within the TTL. */
+    @Scheduled(fixedDelayString = "${solarman.upload.cleanup-interval:PT1M}")
+    public void expireOldUploads() {
+        long cutoff = System.currentTimeMillis() - ttl.toMillis();
+        List<UploadedFile> kept = new ArrayList<>();
+        for (UploadedFile uploadedFile : registry.findAll()) {
+            // With a shared registry every replica runs this; only the one whose delete succeeds removes the file
+            if (uploadedFile.getLastAccessed() < cutoff && registry.delete(uploadedFile.getFileId())) {
+                expirations.incrementAndGet();
+                deleteFile(uploadedFile);
+                notifyRemoved(uploadedFile.getFileId());
+            } else if (uploadedFile.getLastAccessed() >= cutoff) {
+                kept.add(uploadedFile);
+            }
+        }
+        recount(kept, registry.findAllSessions());
+        registry.flush();
+    }
+
+    /**
+     * Registers a callback for file IDs that are removed, evicted or expired, so
+     * state kept elsewhere for an upload can be released with it.
+     */
+    public void addRemovalListener(Consumer<String> listener) {
+        removalListeners.add(listener);
+    }
+
+    public boolean isSharedRegistry() {
+        return registry.isShared();
+    }
+
+    public Path getUploadDir() {
+        return Paths.get(uploadDir);
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize.toBytes();
+    }
+
+    /**
+     * Evicts least recently used uploads once the running totals exceed the quota.
+     * Only then is the registry listed, which also corrects the totals.
+     */
+    private synchronized void enforceQuota() {
+        if (storedFiles.get() <= maxFiles && storedBytes.get() <= maxTotalSize.toBytes()) {
+            return;
+        }
+        List<UploadedFile> byLastAccess = new ArrayList<>(registry.findAll());
+        Collection<UploadSession> sessions = registry.findAllSessions();
+        long totalBytes = byLastAccess.stream().mapToLong(UploadedFile::getSize).sum() + partBytes(sessions);
+        int files = byLastAccess.size();
+        if (files <= maxFiles && totalBytes <= maxTotalSize.toBytes()) {
+            recount(byLastAccess, sessions);
+            return;
+        }
+
+        byLastAccess.sort(Comparator.comparingLong(UploadedFile::getLastAccessed));
+        for (UploadedFile candidate : byLastAccess) {
+            if (files <= maxFiles && totalBytes <= maxTotalSize.toBytes()) {
+                break;
+            }
+            if (registry.delete(candidate.getFileId())) {
+                evictions.incrementAndGet();
+                files--;
+                totalBytes -= candidate.getSize();
+                deleteInBackground(candidate);
+                notifyRemoved(candidate.getFileId());
+            }
+        }
+        storedFiles.set(files);
+        storedBytes.set(totalBytes);
+    }
+
+    private void added(UploadedFile uploadedFile) {
+        storedFiles.incrementAndGet();
+        storedBytes.addAndGet(uploadedFile.getSize());
+    }
+
+    private void removed(UploadedFile uploadedFile) {
+        storedFiles.decrementAndGet();
+        storedBytes.addAndGet(-uploadedFile.getSize());
+    }
+
+    private void recount(Collection<UploadedFile> entries, Collection<UploadSession> sessions) {
+        storedFiles.set(entries.size());
+        storedBytes.set(entries.stream().mapToLong(UploadedFile::getSize).sum() + partBytes(sessions));
+    }
+
+    /** Part files are preallocated, so each session takes its full size on disk. */
+    private static long partBytes(Collection<UploadSession> sessions) {
+        return sessions.stream().mapToLong(UploadSession::getTotalSize).sum();
+    }
+
+    private void notifyRemoved(String fileId) {
+        for (Consumer<String> listener : removalListeners) {
+            try {
+                listener.accept(fileId);
+            } catch (RuntimeException e) {
+                System.err.println("Upload removal listener failed for " + fileId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushPending.compareAndSet(false, true)) {
+            ioExecutor.execute(() -> {
+                flushPending.set(false);
+                registry.flush();
+            });
+        }
+    }
+
+    private void deleteInBackground(UploadedFile uploadedFile) {
+        ioExecutor.execute(() -> deleteFile(uploadedFile));
+    }
+
+    private void deleteFile(UploadedFile uploadedFile) {
+        try {
+            Files.deleteIfExists(Paths.get(uploadedFile.getFilePath()));
+        } catch (IOException e) {
+            System.err.println("Failed to delete old file: " + uploadedFile.getFilePath());
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        registry.open(getUploadDir());
+        for (UploadedFile entry : registry.findAll()) {
+            if (!Files.exists(Paths.get(entry.getFilePath()))) {
+                registry.delete(entry.getFileId());
+            }
+        }
+
+        // Files left behind by a crash or by uploads that never made it into the index.
+        // On a shared volume another replica may be between storing and registering a
+        // file, so only files older than the TTL count as orphans there.
+        for (UploadSession session : registry.findAllSessions()) {
+            if (!Files.exists(Paths.get(session.getPartPath()))) {
+                registry.deleteSession(session.getUploadId());
+            }
+        }
+
+        Set<Path> known = new HashSet<>();
+        Collection<UploadedFile> entries = registry.findAll();
+        Collection<UploadSession> sessions = registry.findAllSessions();
+        entries.forEach(entry -> known.add(Paths.get(entry.getFilePath()).getFileName()));
+        // Part files of chunked uploads that are still open are resumed, not swept
+        sessions.forEach(session -> known.add(Paths.get(session.getPartPath()).getFileName()));
+        recount(entries, sessions);
+        FileTime orphanCutoff = FileTime.fromMillis(System.currentTimeMillis() - ttl.toMillis());
+        try (Stream<Path> files = Files.list(getUploadDir())) {
+            files.filter(Files::isRegularFile)
+                    .filter(file -> !known.contains(file.getFileName()))
+                    .filter(file -> !FileUploadRegistry.isIndexFile(file.getFileName().toString()))
+                    .filter(file -> !registry.isShared() || isOlderThan(file, orphanCutoff))
+                    .forEach(file -> {
+                        try {
+                            Files.deleteIfExists(file);
+                        } catch (IOException e) {
+                            System.err.println("Failed to delete orphaned upload: " + file);
+                        }
+                    });
+        }
+
+        registry.flush();
+    }
+
+    private static boolean isOlderThan(Path file, FileTime cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).compareTo(cutoff) < 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String sanitizeFilename(String originalFilename) {
+        if (originalFilename == null || originalFilename.isBlank()) {
+            return "upload";
+        }
+        // Drop any client-supplied directory components before building the temp path
+        String name = originalFilename.replace('\\', '/');
+        name = name.substring(name.lastIndexOf('/') + 1);
+        name = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return name.isEmpty() || name.startsWith(".") ? "upload" + name : name;
+    }
+}
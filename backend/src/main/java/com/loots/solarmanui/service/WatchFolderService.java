@@ -0,0 +1,438 @@
+package com.loots.solarmanui.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loots.solarmanui.model.ImportResult;
+import com.loots.solarmanui.model.SolarManRecord;
+import com.loots.solarmanui.model.TshwaneRecord;
+import com.loots.solarmanui.model.WatchedFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Optional ingestion daemon: workbooks dropped into {@code <dir>/solarman} or
+ * {@code <dir>/tshwane} are imported without going through the upload screen.
+ *
+ * <p>Changes are picked up from a {@link WatchService} and, because file events are
+ * not delivered for writes made by other hosts on a shared volume, from a periodic
+ * rescan as well. A file is imported once its size and modification time have been
+ * stable for the settle period. Per file, the size, modification time and hash of
+ * the last import are kept with the number of rows imported and the last record,
+ * so an unchanged file is skipped and a file that only grew has just its new rows
+ * imported. A file whose earlier rows changed is imported whole, where the per-day
+ * checksums still skip the days that did not change.
+ *
+ * <p>When several replicas share the directory, only the one holding a PostgreSQL
+ * advisory lock imports. The lock is held on a dedicated connection outside the
+ * pool and checked on every tick; leadership is given up as soon as that check fails.
+ */
+@Service
+@ConditionalOnProperty(name = "solarman.watch.enabled", havingValue = "true")
+public class WatchFolderService {
+
+    static final String STATE_FILE = ".watch-state.json";
+    private static final long LEADER_LOCK_ID = 0x534f4c41524d414eL; // "SOLARMAN"
+    private static final List<String> FILE_TYPES = List.of("solarman", "tshwane");
+
+    @Autowired
+    private ExcelProcessingService excelProcessingService;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private ImportLedger importLedger;
+
+    @Autowired
+    private ImportAdmission importAdmission;
+
+    @Value("${spring.datasource.url}")
+    private String datasourceUrl;
+
+    @Value("${spring.datasource.username:}")
+    private String datasourceUsername;
+
+    @Value("${spring.datasource.password:}")
+    private String datasourcePassword;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${solarman.watch.dir:${java.io.tmpdir}/solarman-watch}")
+    private String watchDir;
+
+    @Value("${solarman.watch.settle:PT2S}")
+    private Duration settle = Duration.ofSeconds(2);
+
+    @Value("${solarman.watch.poll-interval:PT30S}")
+    private Duration pollInterval = Duration.ofSeconds(30);
+
+    private final Map<String, WatchedFile> state = new ConcurrentHashMap<>();
+    private final Map<Path, Observation> pending = new ConcurrentHashMap<>();
+    private final Map<Path, Observation> failed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService importScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "watch-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private WatchService watchService;
+    private Connection leaderConnection;
+    private long lastScanNanos;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path root = Paths.get(watchDir);
+        for (String fileType : FILE_TYPES) {
+            Files.createDirectories(root.resolve(fileType));
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        for (String fileType : FILE_TYPES) {
+            root.resolve(fileType).register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        Thread watcher = new Thread(this::watchLoop, "watch-folder");
+        watcher.setDaemon(true);
+        watcher.start();
+
+        long tick = Math.max(100, settle.toMillis() / 2);
+        importScheduler.scheduleWithFixedDelay(this::tick, 0, tick, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importScheduler.shutdownNow();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Shutting down anyway
+        }
+        releaseLeadership();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        lastScanNanos = 0; // events were lost: rescan on the next tick
+                    } else {
+                        observe(dir.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shut down
+        }
+    }
+
+    private void tick() {
+        try {
+            if (!holdLeadership()) {
+                // Another replica imports; its state is reloaded if leadership moves here
+                pending.clear();
+                state.clear();
+                return;
+            }
+            if (state.isEmpty()) {
+                loadState();
+            }
+            if (lastScanNanos == 0 || System.nanoTime() - lastScanNanos >= pollInterval.toNanos()) {
+                scan();
+                lastScanNanos = System.nanoTime();
+            }
+
+            for (Map.Entry<Path, Observation> entry : pending.entrySet()) {
+                Path path = entry.getKey();
+                Observation seen = entry.getValue();
+                if (System.nanoTime() - seen.seenAtNanos() < settle.toNanos()) {
+                    continue;
+                }
+                Observation now = Observation.of(path);
+                if (now == null) {
+                    pending.remove(path);
+                } else if (!now.sameFile(seen)) {
+                    pending.put(path, now); // still being written
+                } else {
+                    pending.remove(path);
+                    processFile(path, path.getParent().getFileName().toString());
+                }
+            }
+        } catch (RuntimeException e) {
+            // A throwing task would never be scheduled again
+            System.err.println("Watch folder tick failed: " + e.getMessage());
+        }
+    }
+
+    private void scan() {
+        for (String fileType : FILE_TYPES) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(watchDir, fileType))) {
+                for (Path path : files) {
+                    observe(path);
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot scan watch folder: " + e.getMessage());
+            }
+        }
+    }
+
+    private void observe(Path path) {
+        String name = path.getFileName().toString();
+        // Hidden files and Excel lock files (~$name.xlsx) are not workbooks
+        if (name.startsWith(".") || name.startsWith("~$") || !excelProcessingService.validateFileName(name)) {
+            return;
+        }
+        Observation seen = Observation.of(path);
+        if (seen != null) {
+            pending.putIfAbsent(path, seen);
+        }
+    }
+
+    /** Imports whatever is new in the file since it was last imported. */
+    void processFile(Path path, String fileType) {
+        String key = fileType + "/" + path.getFileName();
+        WatchedFile previous = state.get(key);
+        Observation seen = Observation.of(path);
+        if (seen == null) {
+            return;
+        }
+        if (previous != null && previous.getSize() == seen.size() && previous.getLastModified() == seen.lastModified()) {
+            return;
+        }
+        if (seen.sameFile(failed.get(path))) {
+            return; // failed before and not changed since
+        }
+
+        try {
+            String sha256 = hash(path);
+            WatchedFile current = new WatchedFile();
+            current.setFileType(fileType);
+            current.setSize(seen.size());
+            current.setLastModified(seen.lastModified());
+            current.setSha256(sha256);
+
+            if (previous != null && sha256.equals(previous.getSha256())) {
+                // Touched but not changed
+                current.setRowsImported(previous.getRowsImported());
+                current.setLastRecord(previous.getLastRecord());
+                current.setImportedAt(previous.getImportedAt());
+                state.put(key, current);
+                saveState();
+                return;
+            }
+
+            try (ImportAdmission.Permit permit = importAdmission.tryAdmit(fileType, path)) {
+                if (permit == null) {
+                    // Busy with uploads; tried again after the settle period
+                    pending.putIfAbsent(path, seen);
+                    return;
+                }
+                ImportResult result;
+                if ("solarman".equals(fileType)) {
+                    List<SolarManRecord> records = excelProcessingService.processSolarManFile(path);
+                    result = importService.importSolarManData(newRows(records, previous, SolarManRecord::getUpdated));
+                    current.setRowsImported(records.size());
+                    current.setLastRecord(records.isEmpty() ? null : records.get(records.size() - 1).getUpdated());
+                } else {
+                    List<TshwaneRecord> records = excelProcessingService.processTshwaneFile(path);
+                    result = importService.importTshwaneData(newRows(records, previous, TshwaneRecord::getReadingDate));
+                    current.setRowsImported(records.size());
+                    current.setLastRecord(records.isEmpty() ? null : records.get(records.size() - 1).getReadingDate());
+                }
+
+                if (result.getErrorCount() > 0) {
+                    System.err.println("Watch folder import of " + key + " had " + result.getErrorCount() + " errors");
+                    failed.put(path, seen);
+                    return;
+                }
+                if (result.getRecordsSpooled() == 0) {
+                    // Spooled rows are only in the database once replayed
+                    importLedger.recordImport(sha256, fileType, result);
+                }
+                current.setImportedAt(LocalDateTime.now());
+                failed.remove(path);
+                state.put(key, current);
+                saveState();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Watch folder could not import " + key + ": " + e.getMessage());
+            failed.put(path, seen);
+        }
+    }
+
+    /**
+     * The rows after those already imported, if the file still starts with them;
+     * otherwise every row.
+     */
+    static <T> List<T> newRows(List<T> records, WatchedFile previous, Function<T, LocalDateTime> timestamp) {
+        if (previous == null || previous.getRowsImported() == 0 || previous.getRowsImported() > records.size()) {
+            return records;
+        }
+        T lastImported = records.get(previous.getRowsImported() - 1);
+        if (!Objects.equals(timestamp.apply(lastImported), previous.getLastRecord())) {
+            return records;
+        }
+        return records.subList(previous.getRowsImported(), records.size());
+    }
+
+    private boolean holdLeadership() {
+        if (leaderConnection != null) {
+            if (stillLeader()) {
+                return true;
+            }
+            // The session or its lock is gone, so another replica may already be importing
+            releaseLeadership();
+            return false;
+        }
+        try {
+            Connection connection = openLeaderConnection();
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT pg_try_advisory_lock(" + LEADER_LOCK_ID + ")")) {
+                if (rs.next() && rs.getBoolean(1)) {
+                    // The session lock lives as long as this connection is kept open
+                    leaderConnection = connection;
+                    return true;
+                }
+            }
+            connection.close();
+        } catch (SQLException e) {
+            // No database: nothing could be imported anyway
+        }
+        return false;
+    }
+
+    /**
+     * The lock is held on a connection of its own rather than one borrowed from the
+     * pool for good, so it neither shrinks the pool nor gets recycled by it.
+     */
+    private Connection openLeaderConnection() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", datasourceUsername);
+        properties.setProperty("password", datasourcePassword);
+        properties.setProperty("connectTimeout", "5");
+        properties.setProperty("socketTimeout", "10");
+        properties.setProperty("tcpKeepAlive", "true");
+        properties.setProperty("ApplicationName", "solarman-watch-leader");
+        return DriverManager.getConnection(datasourceUrl, properties);
+    }
+
+    /** Whether this session still holds the leader lock, asked of the database on every tick. */
+    private boolean stillLeader() {
+        String sql = "SELECT EXISTS (SELECT 1 FROM pg_locks WHERE locktype = 'advisory' AND granted " +
+                "AND pid = pg_backend_pid() AND classid = ? AND objid = ? AND objsubid = 1)";
+        try (PreparedStatement stmt = leaderConnection.prepareStatement(sql)) {
+            stmt.setQueryTimeout(2);
+            // A bigint advisory key is split into its high and low 32 bits
+            stmt.setLong(1, LEADER_LOCK_ID >>> 32);
+            stmt.setLong(2, LEADER_LOCK_ID & 0xFFFFFFFFL);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void releaseLeadership() {
+        if (leaderConnection != null) {
+            try {
+                leaderConnection.close();
+            } catch (SQLException e) {
+                // The lock goes with the session
+            }
+            leaderConnection = null;
+        }
+    }
+
+    private void loadState() {
+        Path stateFile = Paths.get(watchDir, STATE_FILE);
+        if (Files.exists(stateFile)) {
+            try {
+                state.putAll(objectMapper.readValue(stateFile.toFile(), new TypeReference<Map<String, WatchedFile>>() {}));
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable watch folder state: " + e.getMessage());
+            }
+        }
+    }
+
+    private void saveState() {
+        Path stateFile = Paths.get(watchDir, STATE_FILE);
+        Path tmp = stateFile.resolveSibling(STATE_FILE + ".tmp");
+        try {
+            objectMapper.writeValue(tmp.toFile(), state);
+            Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write watch folder state: " + e.getMessage());
+        }
+    }
+
+    private static String hash(Path path) throws IOException {
+        MessageDigest digest = UploadStore.newSha256();
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private record Observation(long size, long lastModified, long seenAtNanos) {
+
+        static Observation of(Path path) {
+            try {
+                return new Observation(Files.size(path), Files.getLastModifiedTime(path).toMillis(), System.nanoTime());
+            } catch (IOException e) {
+                return null; // deleted or renamed meanwhile
+            }
+        }
+
+        boolean sameFile(Observation other) {
+            return other != null && size == other.size && lastModified == other.lastModified;
+        }
+    }
+}
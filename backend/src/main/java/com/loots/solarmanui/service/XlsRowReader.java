@@ -0,0 +1,202 @@
+package com.loots.solarmanui.service;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.RecordFormatException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the rows of a single worksheet of a legacy .xls (BIFF8) workbook through
+ * the HSSF event model, delivering the same rows as {@link XlsxRowReader}: raw cell
+ * values indexed by column, with shared strings resolved, numbers written as Excel
+ * shows them in full precision and formula cells yielding their cached result.
+ * Records are read one at a time from the workbook stream and reading stops at the
+ * end of the requested sheet, so memory stays flat whatever the workbook's size.
+ */
+public final class XlsRowReader {
+
+    private static final short CONTINUE = 0;
+    private static final short STOP = 1;
+
+    private XlsRowReader() {}
+
+    /**
+     * Reads the worksheet with the given name (case-insensitive), or the first
+     * worksheet when {@code sheetName} is null. Chart, macro and dialog sheets are
+     * never read.
+     *
+     * @return false if the workbook has no sheet with that name
+     */
+    public static boolean readSheet(POIFSFileSystem fs, String sheetName, XlsxRowReader.RowHandler handler)
+            throws IOException {
+        SheetListener listener = new SheetListener(sheetName, handler);
+        HSSFRequest request = new HSSFRequest();
+        request.addListenerForAllRecords(listener);
+        try {
+            new HSSFEventFactory().abortableProcessWorkbookEvents(request, fs);
+        } catch (HSSFUserException | RecordFormatException e) {
+            throw new IOException("Unable to read workbook: " + e.getMessage(), e);
+        }
+        return listener.found;
+    }
+
+    private static final class SheetListener extends AbortableHSSFListener {
+        private final String sheetName;
+        private final XlsxRowReader.RowHandler handler;
+        private final List<BoundSheetRecord> boundSheets = new ArrayList<>();
+        private List<String> sheetNames;
+        private final List<String> cells = new ArrayList<>();
+
+        private SSTRecord strings;
+        private int sheetIndex = -1;
+        private int depth;
+        private boolean inTarget;
+        private boolean found;
+        private int rowIndex = -1;
+        private int formulaColumn = -1;
+
+        SheetListener(String sheetName, XlsxRowReader.RowHandler handler) {
+            this.sheetName = sheetName;
+            this.handler = handler;
+        }
+
+        @Override
+        public short abortableProcessRecord(Record record) {
+            switch (record.getSid()) {
+                case BoundSheetRecord.sid:
+                    boundSheets.add((BoundSheetRecord) record);
+                    break;
+                case SSTRecord.sid:
+                    strings = (SSTRecord) record;
+                    break;
+                case BOFRecord.sid: {
+                    // Every sheet, whatever its type, has a top-level substream in the order of
+                    // its BoundSheetRecord's BOF position; charts embedded in a worksheet nest inside it
+                    int type = ((BOFRecord) record).getType();
+                    if (depth++ == 0 && type != BOFRecord.TYPE_WORKBOOK) {
+                        sheetIndex++;
+                        inTarget = type == BOFRecord.TYPE_WORKSHEET && isTarget(sheetIndex);
+                        found |= inTarget;
+                    }
+                    break;
+                }
+                case EOFRecord.sid:
+                    if (--depth == 0 && inTarget) {
+                        endRow();
+                        return STOP;
+                    }
+                    break;
+                default:
+                    if (inTarget && depth == 1) {
+                        cell(record);
+                    }
+                    break;
+            }
+            return CONTINUE;
+        }
+
+        private boolean isTarget(int index) {
+            if (sheetName == null) {
+                return !found;
+            }
+            if (sheetNames == null) {
+                sheetNames = new ArrayList<>();
+                for (BoundSheetRecord sheet : BoundSheetRecord.orderByBofPosition(boundSheets)) {
+                    sheetNames.add(sheet.getSheetname());
+                }
+            }
+            return index < sheetNames.size() && sheetName.equalsIgnoreCase(sheetNames.get(index));
+        }
+
+        private void cell(Record record) {
+            switch (record.getSid()) {
+                case NumberRecord.sid: {
+                    NumberRecord number = (NumberRecord) record;
+                    setCell(number.getRow(), number.getColumn(), NumberToTextConverter.toText(number.getValue()));
+                    break;
+                }
+                case LabelSSTRecord.sid: {
+                    LabelSSTRecord label = (LabelSSTRecord) record;
+                    String value = strings != null ? strings.getString(label.getSSTIndex()).getString() : null;
+                    setCell(label.getRow(), label.getColumn(), value);
+                    break;
+                }
+                case LabelRecord.sid: {
+                    LabelRecord label = (LabelRecord) record;
+                    setCell(label.getRow(), label.getColumn(), label.getValue());
+                    break;
+                }
+                case BoolErrRecord.sid: {
+                    BoolErrRecord boolErr = (BoolErrRecord) record;
+                    String value = boolErr.isBoolean() ? (boolErr.getBooleanValue() ? "TRUE" : "FALSE") : null;
+                    setCell(boolErr.getRow(), boolErr.getColumn(), value);
+                    break;
+                }
+                case FormulaRecord.sid: {
+                    FormulaRecord formula = (FormulaRecord) record;
+                    int type = formula.getCachedResultType();
+                    String value = null;
+                    if (type == CellType.NUMERIC.getCode()) {
+                        value = NumberToTextConverter.toText(formula.getValue());
+                    } else if (type == CellType.BOOLEAN.getCode()) {
+                        value = formula.getCachedBooleanValue() ? "TRUE" : "FALSE";
+                    }
+                    setCell(formula.getRow(), formula.getColumn(), value);
+                    // A string result follows in its own record
+                    formulaColumn = formula.hasCachedResultString() ? formula.getColumn() : -1;
+                    break;
+                }
+                case StringRecord.sid:
+                    if (formulaColumn >= 0) {
+                        setCellInRow(formulaColumn, ((StringRecord) record).getString());
+                        formulaColumn = -1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void setCell(int row, int column, String value) {
+            if (row != rowIndex) {
+                endRow();
+                rowIndex = row;
+            }
+            setCellInRow(column, value);
+        }
+
+        private void setCellInRow(int column, String value) {
+            while (cells.size() <= column) {
+                cells.add(null);
+            }
+            cells.set(column, value);
+        }
+
+        private void endRow() {
+            if (rowIndex >= 0) {
+                handler.handleRow(rowIndex, cells.toArray(new String[0]));
+                cells.clear();
+                rowIndex = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.loots.solarmanui.service;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.IOException;
+
+/**
+ * Reads a worksheet of a small .xlsx workbook through the POI DOM, delivering the
+ * same rows as {@link XlsxRowReader}. Building the DOM costs far more heap per
+ * byte of XML than streaming, but skips the SAX pipeline's setup, so it is only
+ * chosen for workbooks whose sheets are known to be small.
+ */
+public final class XlsxDomRowReader {
+
+    private XlsxDomRowReader() {}
+
+    /**
+     * Reads the sheet with the given name (case-insensitive), or the first sheet
+     * when {@code sheetName} is null. The package stays open; its owner reverts it.
+     *
+     * @return false if the workbook has no sheet with that name
+     */
+    public static boolean readSheet(OPCPackage pkg, String sheetName, XlsxRowReader.RowHandler handler)
+            throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook(pkg);
+        Sheet sheet = null;
+        for (int i = 0; i < workbook.getNumberOfSheets() && sheet == null; i++) {
+            if (sheetName == null || sheetName.equalsIgnoreCase(workbook.getSheetName(i))) {
+                sheet = workbook.getSheetAt(i);
+            }
+        }
+        if (sheet == null) {
+            return false;
+        }
+
+        for (Row row : sheet) {
+            String[] cells = new String[Math.max(0, row.getLastCellNum())];
+            for (Cell cell : row) {
+                cells[cell.getColumnIndex()] = cellValue(cell);
+            }
+            handler.handleRow(row.getRowNum(), cells);
+        }
+        return true;
+    }
+
+    private static String cellValue(Cell cell) {
+        CellType type = cell.getCellType() == CellType.FORMULA ? cell.getCachedFormulaResultType() : cell.getCellType();
+        switch (type) {
+            case NUMERIC:
+                return NumberToTextConverter.toText(cell.getNumericCellValue());
+            case STRING:
+                String value = cell.getStringCellValue();
+                return value.isEmpty() ? null : value;
+            case BOOLEAN:
+                return cell.getBooleanCellValue() ? "TRUE" : "FALSE";
+            default:
+                return null;
+        }
+    }
+}
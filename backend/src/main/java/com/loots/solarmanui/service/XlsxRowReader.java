@@ -0,0 +1,175 @@
+package com.loots.solarmanui.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the rows of a single worksheet through SAX instead of building the
+ * POI DOM. Each row is delivered as an array of raw cell values indexed by
+ * column: shared and inline strings are resolved, numbers are passed through
+ * as written in the sheet XML and formula cells yield their cached result.
+ */
+public final class XlsxRowReader {
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void handleRow(int rowIndex, String[] cells);
+    }
+
+    private XlsxRowReader() {}
+
+    /**
+     * Reads the sheet with the given name (case-insensitive), or the first sheet
+     * when {@code sheetName} is null.
+     *
+     * @return false if the workbook has no sheet with that name
+     */
+    public static boolean readSheet(OPCPackage pkg, String sheetName, RowHandler handler) throws IOException {
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    if (sheetName == null || sheetName.equalsIgnoreCase(sheets.getSheetName())) {
+                        parse(sheet, strings, handler);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } catch (OpenXML4JException | SAXException e) {
+            throw new IOException("Unable to read workbook: " + e.getMessage(), e);
+        }
+    }
+
+    static void parse(InputStream sheet, ReadOnlySharedStringsTable strings, RowHandler handler)
+            throws IOException, SAXException {
+        try {
+            XMLReader xmlReader = XMLHelper.newXMLReader();
+            xmlReader.setContentHandler(new SheetHandler(strings, handler));
+            xmlReader.parse(new InputSource(sheet));
+        } catch (ParserConfigurationException e) {
+            throw new IOException("Unable to create XML parser: " + e.getMessage(), e);
+        }
+    }
+
+    static int columnIndex(String cellRef) {
+        int column = 0;
+        for (int i = 0; i < cellRef.length(); i++) {
+            char c = cellRef.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private static final class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable strings;
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+
+        private int rowIndex = -1;
+        private int column = -1;
+        private String cellType;
+        private boolean capturing;
+
+        SheetHandler(ReadOnlySharedStringsTable strings, RowHandler handler) {
+            this.strings = strings;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    column = -1;
+                    cells.clear();
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? columnIndex(ref) : column + 1;
+                    cellType = attributes.getValue("t");
+                    text.setLength(0);
+                    break;
+                case "v":
+                case "t":
+                    capturing = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (capturing) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    capturing = false;
+                    break;
+                case "c":
+                    setCell(column, cellValue());
+                    break;
+                case "row":
+                    handler.handleRow(rowIndex, cells.toArray(new String[0]));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private String cellValue() {
+            if (text.length() == 0) {
+                return null;
+            }
+            String value = text.toString();
+            if (cellType == null) {
+                return value;
+            }
+            switch (cellType) {
+                case "s":
+                    return strings.getItemAt(Integer.parseInt(value)).getString();
+                case "b":
+                    return "0".equals(value) ? "FALSE" : "TRUE";
+                case "e":
+                    return null;
+                default:
+                    return value;
+            }
+        }
+
+        private void setCell(int index, String value) {
+            while (cells.size() <= index) {
+                cells.add(null);
+            }
+            cells.set(index, value);
+        }
+    }
+}
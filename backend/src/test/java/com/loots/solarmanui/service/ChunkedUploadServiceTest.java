@@ -0,0 +1,169 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.ChunkedUploadStatus;
+import com.loots.solarmanui.model.StoredUpload;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedUploadServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private UploadStore uploadStore;
+    private ChunkedUploadService chunkedUploadService;
+
+    @BeforeEach
+    void setUp() {
+        uploadStore = newUploadStore();
+        chunkedUploadService = newService(uploadStore);
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadStore.shutdown();
+    }
+
+    @Test
+    void testChunkedUpload_OutOfOrderChunksAssembleAndHash() throws IOException {
+        byte[] content = createContent(200_000);
+        ChunkedUploadStatus init = chunkedUploadService.init("export.xlsx", "solarman", content.length);
+        String uploadId = init.getUploadId();
+
+        // Send the tail first, then the head
+        chunkedUploadService.writeChunk(uploadId, 100_000, slice(content, 100_000, 200_000));
+        ChunkedUploadStatus partial = chunkedUploadService.writeChunk(uploadId, 0, slice(content, 0, 50_000));
+
+        assertEquals(150_000, partial.getReceivedBytes());
+        assertEquals(1, partial.getMissingRanges().size());
+        assertEquals(50_000, partial.getMissingRanges().get(0).getStart());
+        assertEquals(100_000, partial.getMissingRanges().get(0).getEnd());
+
+        ChunkedUploadStatus done = chunkedUploadService.writeChunk(uploadId, 50_000, slice(content, 50_000, 100_000));
+        assertTrue(done.isComplete());
+
+        StoredUpload stored = chunkedUploadService.complete(uploadId, null);
+
+        assertArrayEquals(content, Files.readAllBytes(stored.getPath()));
+        assertEquals(HexFormat.of().formatHex(UploadStore.newSha256().digest(content)), stored.getSha256());
+    }
+
+    @Test
+    void testChunkedUpload_ResentChunkDoesNotDoubleCount() throws IOException {
+        byte[] content = createContent(1_000);
+        String uploadId = chunkedUploadService.init("export.xlsx", "solarman", content.length).getUploadId();
+
+        chunkedUploadService.writeChunk(uploadId, 0, slice(content, 0, 600));
+        ChunkedUploadStatus status = chunkedUploadService.writeChunk(uploadId, 0, slice(content, 0, 600));
+
+        assertEquals(600, status.getReceivedBytes());
+    }
+
+    @Test
+    void testComplete_IncompleteUploadIsRejected() throws IOException {
+        byte[] content = createContent(1_000);
+        String uploadId = chunkedUploadService.init("export.xlsx", "solarman", content.length).getUploadId();
+        chunkedUploadService.writeChunk(uploadId, 0, slice(content, 0, 500));
+
+        assertThrows(IllegalStateException.class, () -> chunkedUploadService.complete(uploadId, null));
+    }
+
+    @Test
+    void testComplete_HashMismatchIsRejected() throws IOException {
+        byte[] content = createContent(1_000);
+        String uploadId = chunkedUploadService.init("export.xlsx", "solarman", content.length).getUploadId();
+        chunkedUploadService.writeChunk(uploadId, 0, slice(content, 0, 1_000));
+
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.complete(uploadId, "00ff"));
+    }
+
+    @Test
+    void testWriteChunk_PastDeclaredSizeIsRejected() throws IOException {
+        String uploadId = chunkedUploadService.init("export.xlsx", "solarman", 100).getUploadId();
+
+        assertThrows(IllegalArgumentException.class, () ->
+                chunkedUploadService.writeChunk(uploadId, 50, new ByteArrayInputStream(new byte[60])));
+    }
+
+    @Test
+    void testChunkedUpload_ResumesAfterRestart() throws IOException {
+        byte[] content = createContent(10_000);
+        String uploadId = chunkedUploadService.init("export.xlsx", "solarman", content.length).getUploadId();
+        chunkedUploadService.writeChunk(uploadId, 0, slice(content, 0, 4_000));
+        uploadStore.shutdown();
+
+        // A new store on the same directory sees the session and keeps its part file
+        uploadStore = newUploadStore();
+        ChunkedUploadService restarted = newService(uploadStore);
+        ChunkedUploadStatus status = restarted.getStatus(uploadId);
+        assertEquals(4_000, status.getReceivedBytes());
+
+        restarted.writeChunk(uploadId, 4_000, slice(content, 4_000, 10_000));
+        StoredUpload stored = restarted.complete(uploadId, HexFormat.of().formatHex(UploadStore.newSha256().digest(content)));
+
+        assertArrayEquals(content, Files.readAllBytes(stored.getPath()));
+    }
+
+    @Test
+    void testExpireStaleSessions_DiscardsIdleSessionAndPartFile() throws IOException {
+        String uploadId = chunkedUploadService.init("export.xlsx", "solarman", 100).getUploadId();
+        Path partFile = chunkedUploadService.getPartFile(uploadId);
+        ReflectionTestUtils.setField(chunkedUploadService, "sessionTtl", Duration.ZERO);
+
+        chunkedUploadService.expireStaleSessions();
+
+        assertFalse(Files.exists(partFile));
+        assertThrows(IllegalArgumentException.class, () -> chunkedUploadService.getStatus(uploadId));
+    }
+
+    @Test
+    void testInit_PartFilesCountAgainstQuota() throws IOException {
+        ReflectionTestUtils.setField(uploadStore, "maxTotalSize", DataSize.ofBytes(1_500));
+        chunkedUploadService.init("first.xlsx", "solarman", 1_000);
+
+        assertThrows(IllegalStateException.class, () -> chunkedUploadService.init("second.xlsx", "solarman", 1_000));
+        // The rejected upload leaves no part file behind
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.filter(f -> f.getFileName().toString().endsWith(".part")).count());
+        }
+    }
+
+    private UploadStore newUploadStore() {
+        UploadStore store = new UploadStore();
+        ReflectionTestUtils.setField(store, "uploadDir", tempDir.toString());
+        store.init();
+        return store;
+    }
+
+    private ChunkedUploadService newService(UploadStore store) {
+        ChunkedUploadService service = new ChunkedUploadService();
+        ReflectionTestUtils.setField(service, "uploadStore", store);
+        return service;
+    }
+
+    private byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+
+    private ByteArrayInputStream slice(byte[] content, int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(content, from, to));
+    }
+}
@@ -1,16 +1,29 @@
 package com.loots.solarmanui.service;
 
+import com.loots.solarmanui.model.ImportProfile;
 import com.loots.solarmanui.model.SolarManRecord;
 import com.loots.solarmanui.model.TshwaneRecord;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -65,6 +78,39 @@ class ExcelProcessingServiceTest {
         assertTrue(exception.getMessage().contains("Invalid SolarMan Excel format"));
     }
 
+    @Test
+    void testProcessSolarManFile_ReorderedAndExtraColumns() throws IOException {
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("SolarMan Data");
+        String[] headers = {"Updated", "SoC(%)", "Plant", "Inverter SN", "Production Power(W)", "Consumption Power(W)",
+                "Grid Power(W)", "Purchasing Power(W)", "Feed-in Power(W)", "Battery Power(W)",
+                "Discharging Power(W)", "Charging Power(W)", "Time"};
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            headerRow.createCell(i).setCellValue(headers[i]);
+        }
+        Row dataRow = sheet.createRow(1);
+        dataRow.createCell(0).setCellValue("2024/01/15 10:30");
+        dataRow.createCell(1).setCellValue(85.5);
+        dataRow.createCell(2).setCellValue("Plant 1");
+        dataRow.createCell(3).setCellValue("SN-1");
+        for (int i = 4; i < 12; i++) {
+            dataRow.createCell(i).setCellValue(i);
+        }
+
+        List<SolarManRecord> records = excelProcessingService.processSolarManFile(
+                convertWorkbookToMultipartFile(workbook, "solarman_new_layout.xlsx"));
+
+        assertEquals(1, records.size());
+        SolarManRecord record = records.get(0);
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30), record.getUpdated());
+        assertEquals(85.5, record.getSoc());
+        assertEquals(4.0, record.getProductionPower());
+        assertEquals(9.0, record.getBatteryPower());
+        assertEquals(10.0, record.getDischargePower());
+        assertEquals(11.0, record.getChargePower());
+    }
+
     @Test
     void testProcessSolarManFile_FiltersBefore2020() throws IOException {
         // Create a file with records before 2020
@@ -121,6 +167,149 @@ class ExcelProcessingServiceTest {
         assertTrue(records.size() >= 2);
     }
 
+    @Test
+    void testProcessSolarManFile_FromPath(@TempDir Path tempDir) throws IOException {
+        // Parse a workbook already written to disk, as the upload store does
+        Path path = tempDir.resolve("solarman_test.xlsx");
+        Files.write(path, createValidSolarManFile().getBytes());
+
+        List<SolarManRecord> records = excelProcessingService.processSolarManFile(path);
+
+        assertEquals(2, records.size());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 11, 0), records.get(1).getUpdated());
+        assertEquals(86.0, records.get(1).getSoc());
+    }
+
+    @Test
+    void testProcessSolarManFile_RecordsEngineInImportProfile(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("solarman_test.xlsx");
+        Files.write(path, createValidSolarManFile().getBytes());
+
+        ImportProfile profile;
+        try (ImportProfiler.Profiling profiling = new ImportProfiler().begin("solarman", "upsert", false)) {
+            excelProcessingService.processSolarManFile(path);
+            profile = profiling.profile();
+        }
+
+        assertEquals("dom", profile.getParseEngine());
+        assertNotNull(profile.getParseReason());
+    }
+
+    @Test
+    void testProcessSolarManFile_WatermarkDropsOlderRows(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("solarman_test.xlsx");
+        Files.write(path, createValidSolarManFile().getBytes());
+
+        List<SolarManRecord> records = excelProcessingService.processSolarManFile(path, LocalDateTime.of(2024, 1, 15, 10, 45));
+
+        assertEquals(1, records.size());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 11, 0), records.get(0).getUpdated());
+    }
+
+    @Test
+    void testProcessSolarManFile_NullWatermarkKeepsPre2020Filter(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("solarman_test.xlsx");
+        Files.write(path, createSolarManFileWithOldRecords().getBytes());
+
+        assertEquals(excelProcessingService.processSolarManFile(path).size(),
+                excelProcessingService.processSolarManFile(path, null).size());
+    }
+
+    @Test
+    void testProcessSolarManFile_ParallelRangesMatchSerialParse(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("solarman_large.xlsx");
+        Files.write(path, createSolarManFileWithRows(100).getBytes());
+
+        ReflectionTestUtils.setField(excelProcessingService, "parallelism", 1);
+        List<SolarManRecord> serial = excelProcessingService.processSolarManFile(path);
+
+        ReflectionTestUtils.setField(excelProcessingService, "parallelism", 4);
+        ReflectionTestUtils.setField(excelProcessingService, "rangeSize", 7);
+        ReflectionTestUtils.setField(excelProcessingService, "domMaxSheetSize", DataSize.ofBytes(0));
+        ReflectionTestUtils.setField(excelProcessingService, "parallelMinSheetSize", DataSize.ofBytes(0));
+        List<SolarManRecord> parallel = excelProcessingService.processSolarManFile(path);
+        excelProcessingService.shutdown();
+
+        // Every tenth row has no timestamp and is dropped
+        assertEquals(90, serial.size());
+        assertEquals(serial.size(), parallel.size());
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.get(i).getUpdated(), parallel.get(i).getUpdated());
+            assertEquals(serial.get(i).getSoc(), parallel.get(i).getSoc());
+        }
+    }
+
+    @Test
+    void testProcessSolarManFile_DomMatchesStreamingParse(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("solarman_small.xlsx");
+        Files.write(path, createSolarManFileWithRows(50).getBytes());
+
+        List<SolarManRecord> dom = excelProcessingService.processSolarManFile(path);
+
+        ReflectionTestUtils.setField(excelProcessingService, "domMaxSheetSize", DataSize.ofBytes(0));
+        List<SolarManRecord> streamed = excelProcessingService.processSolarManFile(path);
+
+        assertEquals(45, dom.size());
+        assertEquals(streamed.size(), dom.size());
+        for (int i = 0; i < dom.size(); i++) {
+            assertEquals(streamed.get(i).getUpdated(), dom.get(i).getUpdated());
+            assertEquals(streamed.get(i).getProductionPower(), dom.get(i).getProductionPower());
+            assertEquals(streamed.get(i).getSoc(), dom.get(i).getSoc());
+        }
+    }
+
+    @Test
+    void testPlanParse_PicksEngineBySheetSizeAndHeap() {
+        ReflectionTestUtils.setField(excelProcessingService, "parallelism", 4);
+        long mb = 1024 * 1024;
+
+        assertEquals(ExcelProcessingService.ParseEngine.DOM,
+                excelProcessingService.planParse(200_000, 100_000, 50_000, 1024 * mb).engine());
+        // Small sheet, but too little free heap for the DOM
+        assertEquals(ExcelProcessingService.ParseEngine.STREAMING,
+                excelProcessingService.planParse(200_000, 100_000, 50_000, 10 * mb).engine());
+        assertEquals(ExcelProcessingService.ParseEngine.STREAMING,
+                excelProcessingService.planParse(4 * mb, 4 * mb, mb, 1024 * mb).engine());
+        assertEquals(ExcelProcessingService.ParseEngine.PARALLEL_STREAMING,
+                excelProcessingService.planParse(64 * mb, 64 * mb, mb, 1024 * mb).engine());
+
+        ReflectionTestUtils.setField(excelProcessingService, "parallelism", 1);
+        assertEquals(ExcelProcessingService.ParseEngine.STREAMING,
+                excelProcessingService.planParse(64 * mb, 64 * mb, mb, 1024 * mb).engine());
+    }
+
+    @Test
+    void testProcessSolarManFile_LegacyXlsFromPath(@TempDir Path tempDir) throws IOException {
+        Workbook workbook = new HSSFWorkbook();
+        Sheet sheet = workbook.createSheet("SolarMan Data");
+        String[] headers = {"Plant", "Updated", "Time", "Production", "Consumption", "Grid",
+                "Purchasing", "Feed-in", "Battery", "Charging", "Discharging", "SoC"};
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            headerRow.createCell(i).setCellValue(headers[i]);
+        }
+        Row dataRow = sheet.createRow(1);
+        dataRow.createCell(0).setCellValue("Plant 1");
+        dataRow.createCell(1).setCellFormula("\"2024/01/15 \"&\"10:30\"");
+        dataRow.createCell(3).setCellValue(5.5);
+        dataRow.createCell(4).setCellFormula("1+2.2");
+        dataRow.createCell(11).setCellValue(85.5);
+        workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+        sheet.createRow(3).createCell(0).setCellValue("No timestamp");
+
+        Path path = tempDir.resolve("solarman_test.xls");
+        Files.write(path, convertWorkbookToMultipartFile(workbook, "solarman_test.xls").getBytes());
+
+        List<SolarManRecord> records = excelProcessingService.processSolarManFile(path);
+
+        assertEquals(1, records.size());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30), records.get(0).getUpdated());
+        assertEquals(5.5, records.get(0).getProductionPower());
+        assertEquals(3.2, records.get(0).getConsumePower(), 1e-9);
+        assertEquals(0.0, records.get(0).getGridPower());
+        assertEquals(85.5, records.get(0).getSoc());
+    }
+
     // ==================== Tshwane File Processing Tests ====================
 
     @Test
@@ -181,6 +370,83 @@ class ExcelProcessingServiceTest {
         assertNotNull(records.get(0).getReadingDate());
     }
 
+    @Test
+    void testProcessTshwaneFile_FromPathReadsDateCellsOfReadingsSheet(@TempDir Path tempDir) throws IOException {
+        Workbook workbook = new XSSFWorkbook();
+        Sheet summary = workbook.createSheet("Opsomming");
+        summary.createRow(0).createCell(0).setCellValue("Not a reading");
+
+        Sheet sheet = workbook.createSheet("Elektrisiteit Lesings");
+        sheet.createRow(0).createCell(0).setCellValue("Day");
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy/mm/dd hh:mm"));
+        Row row = sheet.createRow(1);
+        Cell dateCell = row.createCell(0);
+        dateCell.setCellValue(LocalDateTime.of(2024, 1, 15, 7, 30));
+        dateCell.setCellStyle(dateStyle);
+        row.createCell(2).setCellValue(1250.5);
+
+        Path path = tempDir.resolve("tshwane.xlsx");
+        Files.write(path, convertWorkbookToMultipartFile(workbook, "tshwane.xlsx").getBytes());
+
+        List<TshwaneRecord> records = excelProcessingService.processTshwaneFile(path);
+
+        assertEquals(1, records.size());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 7, 30), records.get(0).getReadingDate());
+        assertEquals(1250.5, records.get(0).getCumulativeElectricityUsed());
+    }
+
+    @Test
+    void testProcessTshwaneFile_LegacyXlsReadsDateCellsOfReadingsSheet() throws IOException {
+        Workbook workbook = new HSSFWorkbook();
+        workbook.createSheet("Opsomming").createRow(0).createCell(0).setCellValue(45000);
+
+        Sheet sheet = workbook.createSheet("Elektrisiteit Lesings");
+        sheet.createRow(0).createCell(0).setCellValue("Day");
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy/mm/dd hh:mm"));
+        Row row = sheet.createRow(1);
+        Cell dateCell = row.createCell(0);
+        dateCell.setCellValue(LocalDateTime.of(2024, 1, 15, 7, 30));
+        dateCell.setCellStyle(dateStyle);
+        row.createCell(2).setCellValue(1250.5);
+        row.createCell(14).setCellValue("New meter");
+        Row skipped = sheet.createRow(2);
+        skipped.createCell(0).setCellValue("2024/01/16 07:30");
+
+        List<TshwaneRecord> records = excelProcessingService.processTshwaneFile(
+                convertWorkbookToMultipartFile(workbook, "tshwane.xls"));
+
+        assertEquals(1, records.size());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 7, 30), records.get(0).getReadingDate());
+        assertEquals(1250.5, records.get(0).getCumulativeElectricityUsed());
+        assertEquals("New meter", records.get(0).getReadingNotes());
+    }
+
+    @Test
+    void testProcessTshwaneFile_LegacyXlsSkipsChartSheetBeforeReadingsSheet(@TempDir Path tempDir) throws IOException {
+        Workbook workbook = new HSSFWorkbook();
+        workbook.createSheet("Opsomming").createRow(0).createCell(0).setCellValue(45000);
+        Row chartRow = workbook.createSheet("Grafiek").createRow(1);
+        chartRow.createCell(0).setCellValue("2024/01/01 07:30");
+        chartRow.createCell(2).setCellValue(999.0);
+
+        Sheet sheet = workbook.createSheet("Elektrisiteit Lesings");
+        sheet.createRow(0).createCell(0).setCellValue("Day");
+        Row row = sheet.createRow(1);
+        row.createCell(0).setCellValue("2024/01/15 07:30");
+        row.createCell(2).setCellValue(1250.5);
+
+        Path path = tempDir.resolve("tshwane.xls");
+        Files.write(path, markAsChartSheet(convertWorkbookToMultipartFile(workbook, "tshwane.xls").getBytes(), 1));
+
+        List<TshwaneRecord> records = excelProcessingService.processTshwaneFile(path);
+
+        assertEquals(1, records.size());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 7, 30), records.get(0).getReadingDate());
+        assertEquals(1250.5, records.get(0).getCumulativeElectricityUsed());
+    }
+
     // ==================== File Format Validation Tests ====================
 
     @Test
@@ -297,6 +563,32 @@ class ExcelProcessingServiceTest {
         return convertWorkbookToMultipartFile(workbook, "solarman_test.xlsx");
     }
 
+    private MultipartFile createSolarManFileWithRows(int rows) throws IOException {
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("SolarMan Data");
+
+        Row headerRow = sheet.createRow(0);
+        String[] headers = {"Plant", "Updated", "Time", "Production", "Consumption", "Grid",
+                "Purchasing", "Feed-in", "Battery", "Charging", "Discharging", "SoC"};
+        for (int i = 0; i < headers.length; i++) {
+            headerRow.createCell(i).setCellValue(headers[i]);
+        }
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 15, 0, 0);
+        for (int i = 0; i < rows; i++) {
+            Row row = sheet.createRow(i + 1);
+            row.createCell(0).setCellValue("Plant 1");
+            LocalDateTime time = start.plusMinutes(5L * i);
+            row.createCell(1).setCellValue(i % 10 == 9 ? "" : String.format("%d/%02d/%02d %02d:%02d",
+                    time.getYear(), time.getMonthValue(), time.getDayOfMonth(), time.getHour(), time.getMinute()));
+            for (int column = 3; column < 12; column++) {
+                row.createCell(column).setCellValue(i + column / 10.0);
+            }
+        }
+
+        return convertWorkbookToMultipartFile(workbook, "solarman_large.xlsx");
+    }
+
     private MultipartFile createInvalidSolarManFile() throws IOException {
         Workbook workbook = new XSSFWorkbook();
         Sheet sheet = workbook.createSheet("Invalid Data");
@@ -512,6 +804,28 @@ class ExcelProcessingServiceTest {
         return convertWorkbookToMultipartFile(workbook, "tshwane_excel_dates.xlsx");
     }
 
+    /** Turns the sheet at {@code index} of an .xls into a chart sheet by rewriting the type in its BOF record. */
+    private static byte[] markAsChartSheet(byte[] xls, int index) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(xls))) {
+            byte[] stream;
+            try (InputStream in = fs.createDocumentInputStream("Workbook")) {
+                stream = in.readAllBytes();
+            }
+            ByteBuffer records = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+            int bofs = 0;
+            for (int pos = 0; pos + 4 <= stream.length; pos += 4 + (records.getShort(pos + 2) & 0xFFFF)) {
+                // The first BOF opens the workbook globals; the type follows the 2-byte version
+                if (records.getShort(pos) == BOFRecord.sid && bofs++ == index + 1) {
+                    records.putShort(pos + 6, (short) BOFRecord.TYPE_CHART);
+                }
+            }
+            fs.createOrUpdateDocument(new ByteArrayInputStream(stream), "Workbook");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            fs.writeFilesystem(out);
+            return out.toByteArray();
+        }
+    }
+
     private MultipartFile convertWorkbookToMultipartFile(Workbook workbook, String filename) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         workbook.write(baos);
@@ -0,0 +1,97 @@
+package com.loots.solarmanui.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportAdmissionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImportAdmission importAdmission;
+    private long budget;
+
+    @BeforeEach
+    void setUp() {
+        importAdmission = new ImportAdmission();
+        ReflectionTestUtils.setField(importAdmission, "maxWait", Duration.ZERO);
+        budget = Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    @Test
+    void testEstimateMemory_CountsSheetAndSharedStringParts() throws IOException {
+        Path workbook = tempDir.resolve("export.xlsx");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(workbook))) {
+            writeEntry(zip, "xl/worksheets/sheet1.xml", 10_000);
+            writeEntry(zip, "xl/sharedStrings.xml", 2_000);
+            writeEntry(zip, "xl/styles.xml", 50_000);
+        }
+
+        assertEquals(36_000, importAdmission.estimateMemory(workbook));
+        assertEquals(ImportAdmission.Lane.INTERACTIVE, importAdmission.laneFor("solarman", 36_000));
+        assertEquals(ImportAdmission.Lane.BULK, importAdmission.laneFor("solarman", 1L << 30));
+        assertEquals(ImportAdmission.Lane.INTERACTIVE, importAdmission.laneFor("tshwane", 1L << 30));
+    }
+
+    @Test
+    void testTryAdmit_RefusesWhenMemoryBudgetIsTaken() {
+        ImportAdmission.Permit first = importAdmission.tryAdmit(ImportAdmission.Lane.INTERACTIVE, budget * 6 / 10);
+        assertNotNull(first);
+
+        assertNull(importAdmission.tryAdmit(ImportAdmission.Lane.INTERACTIVE, budget * 6 / 10));
+
+        first.close();
+        first.close(); // released once only
+        ImportAdmission.Permit second = importAdmission.tryAdmit(ImportAdmission.Lane.INTERACTIVE, budget * 6 / 10);
+        assertNotNull(second);
+        assertEquals(1, importAdmission.getRunning());
+        second.close();
+        assertEquals(0, importAdmission.getMemoryInUse());
+    }
+
+    @Test
+    void testTryAdmit_BulkLaneIsCappedButLeavesRoomForInteractive() {
+        ImportAdmission.Permit bulk1 = importAdmission.tryAdmit(ImportAdmission.Lane.BULK, budget / 10);
+        ImportAdmission.Permit bulk2 = importAdmission.tryAdmit(ImportAdmission.Lane.BULK, budget / 10);
+        assertNotNull(bulk1);
+        assertNotNull(bulk2);
+
+        // Two bulk jobs fill the bulk lane, while small jobs still get in
+        assertNull(importAdmission.tryAdmit(ImportAdmission.Lane.BULK, budget / 10));
+        ImportAdmission.Permit small = importAdmission.tryAdmit(ImportAdmission.Lane.INTERACTIVE, budget / 10);
+        assertNotNull(small);
+
+        small.close();
+        bulk1.close();
+        bulk2.close();
+    }
+
+    @Test
+    void testTryAdmit_OversizedJobRunsAlone() {
+        ImportAdmission.Permit huge = importAdmission.tryAdmit(ImportAdmission.Lane.BULK, budget * 4);
+        assertNotNull(huge);
+        assertTrue(huge.getMemory() <= budget);
+
+        assertNull(importAdmission.tryAdmit(ImportAdmission.Lane.INTERACTIVE, budget / 2));
+        huge.close();
+    }
+
+    // ==================== Helper Methods ====================
+
+    private void writeEntry(ZipOutputStream zip, String name, int size) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(new byte[size]);
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,167 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.ImportDiff;
+import com.loots.solarmanui.model.SolarManRecord;
+import com.loots.solarmanui.model.TshwaneRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportDiffServiceTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @InjectMocks
+    private ImportDiffService importDiffService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        lenient().when(dataSource.getConnection()).thenReturn(connection);
+        lenient().when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        lenient().when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    }
+
+    // ==================== SolarMan Diff Tests ====================
+
+    @Test
+    void testDiffSolarMan_ClassifiesNewChangedAndIdenticalRows() throws SQLException {
+        LocalDateTime t1 = LocalDateTime.of(2024, 1, 15, 10, 0);
+        LocalDateTime t2 = LocalDateTime.of(2024, 1, 15, 10, 5);
+        LocalDateTime t3 = LocalDateTime.of(2024, 1, 16, 10, 0);
+
+        // Stored: t1 identical, t2 with a different value; t3 is not stored yet
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getTimestamp(1)).thenReturn(Timestamp.valueOf(t1), Timestamp.valueOf(t2));
+        when(resultSet.getDouble(anyInt())).thenReturn(1.0);
+        when(resultSet.getDouble(2)).thenReturn(1.0, 5.0); // production power
+
+        List<SolarManRecord> records = new ArrayList<>();
+        records.add(createSolarManRecord(t3, 1.0));
+        records.add(createSolarManRecord(t2, 9.9));
+        records.add(createSolarManRecord(t1, 1.0));
+
+        ImportDiff diff = importDiffService.diffSolarMan(records);
+
+        assertEquals(1, diff.getNewRows());
+        assertEquals(1, diff.getChangedRows());
+        assertEquals(1, diff.getIdenticalRows());
+        assertFalse(diff.isUnchanged());
+        assertEquals(t1, diff.getFirstRecordDate());
+        assertEquals(t3, diff.getLastRecordDate());
+
+        assertEquals(2, diff.getDays().size());
+        assertEquals(LocalDate.of(2024, 1, 15), diff.getDays().get(0).getDay());
+        assertEquals(1, diff.getDays().get(0).getChangedRows());
+        assertEquals(1, diff.getDays().get(1).getNewRows());
+
+        // One range query for the file's span, never a lookup per row
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(preparedStatement).setTimestamp(1, Timestamp.valueOf(t1));
+        verify(preparedStatement).setTimestamp(2, Timestamp.valueOf(t3));
+        verify(preparedStatement, times(1)).executeQuery();
+    }
+
+    @Test
+    void testDiffSolarMan_RepeatedTimestampIsComparedOnceUsingItsLastRow() throws SQLException {
+        LocalDateTime t1 = LocalDateTime.of(2024, 1, 15, 10, 0);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getTimestamp(1)).thenReturn(Timestamp.valueOf(t1));
+        when(resultSet.getDouble(anyInt())).thenReturn(1.0);
+
+        // The import keeps the last row for t1, which matches the stored one
+        List<SolarManRecord> records = new ArrayList<>();
+        records.add(createSolarManRecord(t1, 9.9));
+        records.add(createSolarManRecord(t1, 1.0));
+
+        ImportDiff diff = importDiffService.diffSolarMan(records);
+
+        assertEquals(0, diff.getNewRows());
+        assertEquals(0, diff.getChangedRows());
+        assertEquals(1, diff.getIdenticalRows());
+        assertTrue(diff.isUnchanged());
+    }
+
+    @Test
+    void testDiffSolarMan_EmptyListDoesNotQuery() throws SQLException {
+        ImportDiff diff = importDiffService.diffSolarMan(new ArrayList<>());
+
+        assertTrue(diff.isUnchanged());
+        verify(dataSource, never()).getConnection();
+    }
+
+    @Test
+    void testDiffSolarMan_DatabaseErrorPropagates() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        List<SolarManRecord> records = List.of(createSolarManRecord(LocalDateTime.of(2024, 1, 15, 10, 0), 1.0));
+
+        assertThrows(SQLException.class, () -> importDiffService.diffSolarMan(records));
+    }
+
+    // ==================== Tshwane Diff Tests ====================
+
+    @Test
+    void testDiffTshwane_ComparesNotes() throws SQLException {
+        LocalDateTime reading = LocalDateTime.of(2024, 1, 15, 0, 0);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getTimestamp(1)).thenReturn(Timestamp.valueOf(reading));
+        when(resultSet.getDouble(2)).thenReturn(1000.0);
+        when(resultSet.getString(3)).thenReturn("Old note");
+
+        TshwaneRecord record = new TshwaneRecord();
+        record.setReadingDate(reading);
+        record.setCumulativeElectricityUsed(1000.0);
+        record.setReadingNotes("New note");
+
+        ImportDiff diff = importDiffService.diffTshwane(List.of(record));
+
+        assertEquals(1, diff.getChangedRows());
+        assertEquals(0, diff.getIdenticalRows());
+    }
+
+    // ==================== Helper Methods ====================
+
+    private SolarManRecord createSolarManRecord(LocalDateTime updated, double value) {
+        SolarManRecord record = new SolarManRecord();
+        record.setUpdated(updated);
+        record.setProductionPower(value);
+        record.setConsumePower(1.0);
+        record.setGridPower(1.0);
+        record.setPurchasePower(1.0);
+        record.setFeedIn(1.0);
+        record.setBatteryPower(1.0);
+        record.setChargePower(1.0);
+        record.setDischargePower(1.0);
+        record.setSoc(1.0);
+        return record;
+    }
+}
@@ -1,24 +1,36 @@
 package com.loots.solarmanui.service;
 
+import com.loots.solarmanui.model.DayChecksum;
+import com.loots.solarmanui.model.ErrorCategory;
+import com.loots.solarmanui.model.ImportProfile;
 import com.loots.solarmanui.model.ImportResult;
 import com.loots.solarmanui.model.SolarManRecord;
+import com.loots.solarmanui.model.StageTiming;
 import com.loots.solarmanui.model.TshwaneRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -36,6 +48,12 @@ class ImportServiceTest {
     @Mock
     private PreparedStatement preparedStatement;
 
+    @Mock
+    private ImportLedger importLedger;
+
+    @Mock
+    private ImportSpool importSpool;
+
     @InjectMocks
     private ImportService importService;
 
@@ -340,6 +358,243 @@ class ImportServiceTest {
         assertEquals(LocalDateTime.of(2024, 3, 20, 0, 0), result.getLastRecordDate());
     }
 
+    // ==================== Incremental Import Tests ====================
+
+    @Test
+    void testImportSolarManData_SkipsDaysWithUnchangedChecksum() throws SQLException {
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        importService.importSolarManData(createValidSolarManRecords());
+        Map<LocalDate, String> known = captureSavedChecksums("solarman");
+
+        // Re-import of the same rows: the ledger already holds the day's checksum
+        when(importLedger.findDayChecksums(eq("solarman"), any(), any())).thenReturn(known);
+        ImportResult result = importService.importSolarManData(createValidSolarManRecords());
+
+        assertEquals(0, result.getRecordsInserted());
+        assertEquals(2, result.getRecordsSkipped());
+        assertEquals(1, result.getDaysSkipped());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 0), result.getFirstRecordDate());
+        verify(preparedStatement, times(2)).executeUpdate(); // only the first import wrote rows
+    }
+
+    @Test
+    void testImportSolarManData_WritesDayWhenContentChanged() throws SQLException {
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        importService.importSolarManData(createValidSolarManRecords());
+        Map<LocalDate, String> known = captureSavedChecksums("solarman");
+        when(importLedger.findDayChecksums(eq("solarman"), any(), any())).thenReturn(known);
+
+        List<SolarManRecord> changed = createValidSolarManRecords();
+        changed.get(1).setProductionPower(9.9);
+        ImportResult result = importService.importSolarManData(changed);
+
+        assertEquals(2, result.getRecordsInserted());
+        assertEquals(0, result.getRecordsSkipped());
+    }
+
+    @Test
+    void testImportSolarManData_FailedDayIsNotRecorded() throws SQLException {
+        when(preparedStatement.executeUpdate())
+                .thenReturn(1)
+                .thenThrow(new SQLException("Constraint violation"));
+
+        importService.importSolarManData(createValidSolarManRecords());
+
+        verify(importLedger, never()).saveDayChecksums(anyString(), any());
+    }
+
+    @Test
+    void testImportSolarManData_ReportsMalformedRowWithoutWritingIt() throws SQLException {
+        List<SolarManRecord> records = createValidSolarManRecords();
+        records.get(1).setConsumePower(null);
+        records.get(1).setParseError("Unreadable number 'n/a' in column 5");
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+
+        ImportResult result = importService.importSolarManData(records);
+
+        assertEquals(1, result.getRecordsInserted());
+        assertEquals(1, result.getErrorCount());
+        assertEquals("malformed row", result.getErrorCategories().get(0).getCategory());
+        assertTrue(result.getErrors().get(0).contains("n/a"));
+        verify(preparedStatement, times(1)).executeUpdate();
+        // The day is written again once a corrected file is imported
+        verify(importLedger, never()).saveDayChecksums(anyString(), any());
+    }
+
+    @Test
+    void testReplaceSolarManRange_LeavesRangeAloneWhenARowIsMalformed() throws SQLException {
+        List<SolarManRecord> records = createValidSolarManRecords();
+        records.get(0).setParseError("Unreadable number 'x' in column 4");
+
+        ImportResult result = importService.replaceSolarManRange(records);
+
+        assertEquals(0, result.getRecordsInserted());
+        assertEquals(1, result.getErrorCount());
+        verify(dataSource, never()).getConnection();
+    }
+
+    @Test
+    void testImportTshwaneData_SkipsDaysWithUnchangedChecksum() throws SQLException {
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        importService.importTshwaneData(createValidTshwaneRecords());
+        Map<LocalDate, String> known = captureSavedChecksums("tshwane");
+
+        when(importLedger.findDayChecksums(eq("tshwane"), any(), any())).thenReturn(known);
+        ImportResult result = importService.importTshwaneData(createValidTshwaneRecords());
+
+        assertEquals(0, result.getRecordsInserted());
+        assertEquals(createValidTshwaneRecords().size(), result.getRecordsSkipped());
+    }
+
+    @Test
+    void testMergeStagedSolarMan_SkipsUnchangedDaysAndRecordsWrittenDays() throws SQLException {
+        LocalDate unchanged = LocalDate.of(2024, 1, 15);
+        LocalDate changed = LocalDate.of(2024, 1, 16);
+        Map<LocalDate, DayChecksum> dayChecksums = new HashMap<>();
+        dayChecksums.put(unchanged, new DayChecksum(unchanged, "aaa", 2));
+        dayChecksums.put(changed, new DayChecksum(changed, "bbb", 3));
+        when(importLedger.findDayChecksums(eq("solarman"), any(), any())).thenReturn(Map.of(unchanged, "aaa", changed, "old"));
+        when(preparedStatement.executeUpdate()).thenReturn(3);
+
+        ImportResult result = importService.mergeStagedSolarMan("import_staging_test", new StagingService.StagedUpload(5,
+                LocalDateTime.of(2024, 1, 15, 10, 0), LocalDateTime.of(2024, 1, 16, 12, 0), dayChecksums));
+
+        assertEquals(0, result.getErrorCount());
+        assertEquals(3, result.getRecordsInserted());
+        assertEquals(2, result.getRecordsSkipped());
+        assertEquals(1, result.getDaysSkipped());
+        verify(connection).createArrayOf("date", new Object[]{java.sql.Date.valueOf(unchanged)});
+        assertEquals(Map.of(changed, "bbb"), captureSavedChecksums("solarman"));
+    }
+
+    @Test
+    void testMergeStagedSolarMan_ReportsLostConnection() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+
+        ImportResult result = importService.mergeStagedSolarMan("import_staging_test",
+                new StagingService.StagedUpload(2, null, null, new HashMap<>()));
+
+        assertTrue(ImportService.lostConnection(result));
+        verify(importSpool, never()).appendSolarMan(anyList());
+        verify(importLedger, never()).saveDayChecksums(anyString(), any());
+    }
+
+    // ==================== Batched Write Tests ====================
+
+    @Test
+    void testReplaceSolarManRange_DeletesRangeAndInsertsInOneTransaction() throws SQLException {
+        List<SolarManRecord> records = createValidSolarManRecords();
+        records.add(createSolarManRecord(LocalDateTime.of(2024, 1, 15, 10, 0), 7.0)); // repeated timestamp, last wins
+
+        ImportResult result = importService.replaceSolarManRange(records);
+
+        assertEquals(2, result.getRecordsInserted());
+        assertEquals(0, result.getErrorCount());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 0), result.getFirstRecordDate());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 11, 0), result.getLastRecordDate());
+
+        verify(connection).setAutoCommit(false);
+        // The delete and the insert share the mocked statement: 10:00 is bound by both
+        verify(preparedStatement, times(2)).setTimestamp(1, Timestamp.valueOf(LocalDateTime.of(2024, 1, 15, 10, 0)));
+        verify(preparedStatement).setTimestamp(2, Timestamp.valueOf(LocalDateTime.of(2024, 1, 15, 11, 0)));
+        verify(preparedStatement).executeUpdate(); // the range delete
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement).setDouble(2, 7.0);
+        verify(connection).commit();
+        verify(importLedger).deleteDayChecksums("solarman", LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 15));
+        verify(importLedger).saveDayChecksums(eq("solarman"), any());
+    }
+
+    @Test
+    void testReplaceSolarManRange_RollsBackOnFailure() throws SQLException {
+        when(preparedStatement.executeBatch()).thenThrow(new SQLException("Constraint violation"));
+
+        ImportResult result = importService.replaceSolarManRange(createValidSolarManRecords());
+
+        assertEquals(0, result.getRecordsInserted());
+        assertEquals(1, result.getErrorCount());
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(importLedger, never()).saveDayChecksums(anyString(), any());
+    }
+
+    @Test
+    void testUpsertSolarManBatch_WritesOneBatchInOneTransaction() throws SQLException {
+        ImportResult result = importService.upsertSolarManBatch(createValidSolarManRecords());
+
+        assertEquals(2, result.getRecordsInserted());
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement).executeBatch();
+        verify(preparedStatement, never()).executeUpdate();
+        verify(connection).commit();
+        // The day no longer matches the checksum of an earlier file import
+        verify(importLedger).deleteDayChecksums("solarman", LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 15));
+    }
+
+    // ==================== Spool Tests ====================
+
+    @Test
+    void testImportSolarManData_SpoolsWhenDatabaseUnavailable() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+        when(importSpool.appendSolarMan(anyList())).thenReturn(true);
+
+        ImportResult result = importService.importSolarManData(createValidSolarManRecords());
+
+        assertEquals(0, result.getErrorCount());
+        assertEquals(2, result.getRecordsSpooled());
+        assertEquals(0, result.getRecordsInserted());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 11, 0), result.getLastRecordDate());
+        // The ledger is not consulted, so the outage costs one connection attempt
+        verify(importLedger, never()).findDayChecksums(anyString(), any(), any());
+    }
+
+    @Test
+    void testReplaySolarManData_ReportsConnectionFailureInsteadOfSpooling() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+
+        ImportResult result = importService.replaySolarManData(createValidSolarManRecords());
+
+        assertEquals(0, result.getRecordsSpooled());
+        assertEquals(ImportService.CONNECTION, result.getErrorCategories().get(0).getCategory());
+        verify(importSpool, never()).appendSolarMan(anyList());
+    }
+
+    @Test
+    void testUpsertSolarManBatch_SpoolsWhenConnectionLost() throws SQLException {
+        when(preparedStatement.executeBatch()).thenThrow(new SQLException("I/O error", "08006"));
+        when(importSpool.appendSolarMan(anyList())).thenReturn(true);
+
+        ImportResult result = importService.upsertSolarManBatch(createValidSolarManRecords());
+
+        verify(connection).rollback();
+        assertEquals(0, result.getErrorCount());
+        assertEquals(2, result.getRecordsSpooled());
+    }
+
+    @Test
+    void testUpsertSolarManBatch_SpoolsWhenRollbackFailsOnDeadConnection() throws SQLException {
+        BatchUpdateException batchFailure = new BatchUpdateException("Batch entry 0 was aborted", new int[0]);
+        batchFailure.setNextException(new SQLException("I/O error", "08006"));
+        when(preparedStatement.executeBatch()).thenThrow(batchFailure);
+        doThrow(new SQLException("Connection is closed")).when(connection).rollback();
+        when(importSpool.appendSolarMan(anyList())).thenReturn(true);
+
+        ImportResult result = importService.upsertSolarManBatch(createValidSolarManRecords());
+
+        assertEquals(0, result.getErrorCount());
+        assertEquals(2, result.getRecordsSpooled());
+    }
+
+    @Test
+    void testUpsertSolarManBatch_DoesNotSpoolRowErrors() throws SQLException {
+        when(preparedStatement.executeBatch()).thenThrow(new SQLException("Constraint violation", "23505"));
+
+        ImportResult result = importService.upsertSolarManBatch(createValidSolarManRecords());
+
+        assertEquals(1, result.getErrorCount());
+        verify(importSpool, never()).appendSolarMan(anyList());
+    }
+
     // ==================== Error Logging Tests ====================
 
     @Test
@@ -398,6 +653,64 @@ class ImportServiceTest {
         assertEquals(100, errorLogs.size());
     }
 
+    @Test
+    void testImportSolarManData_AggregatesFailureStormByCategory() throws SQLException {
+        List<SolarManRecord> records = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            records.add(createSolarManRecord(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(5L * i), 1.0));
+        }
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("duplicate key", "23505"));
+
+        ImportResult result = importService.importSolarManData(records);
+
+        assertEquals(150, result.getErrorCount());
+        assertEquals(ImportResult.MAX_ERRORS, result.getErrors().size());
+        assertEquals(1, result.getErrorCategories().size());
+        assertEquals("SQLSTATE 23505", result.getErrorCategories().get(0).getCategory());
+        assertEquals(150, result.getErrorCategories().get(0).getCount());
+        assertEquals(ErrorCategory.MAX_SAMPLES, result.getErrorCategories().get(0).getSamples().size());
+    }
+
+    @Test
+    void testImportSolarManData_RecordsBatchLatencyAndRowOutcomes() throws SQLException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(importService, "meterRegistry", registry);
+        when(preparedStatement.executeUpdate()).thenReturn(1).thenThrow(new SQLException("Test error"));
+
+        importService.importSolarManData(createValidSolarManRecords());
+
+        assertEquals(1, registry.get("solarman.import.batch").tags("type", "solarman", "mode", "upsert").timer().count());
+        assertEquals(1.0, registry.get("solarman.import.rows").tags("type", "solarman", "outcome", "inserted").counter().count());
+        assertEquals(1.0, registry.get("solarman.import.rows").tags("type", "solarman", "outcome", "failed").counter().count());
+
+        importService.importSolarManData(createValidSolarManRecords());
+
+        assertEquals(2, registry.get("solarman.import.batch").tags("type", "solarman", "mode", "upsert").timer().count());
+        assertEquals(1, registry.find("solarman.import.batch").timers().size());
+    }
+
+    @Test
+    void testImportSolarManData_ProfilesStagesAndKeepsHistory() throws SQLException {
+        ImportProfiler profiler = new ImportProfiler();
+        ReflectionTestUtils.setField(importService, "importProfiler", profiler);
+        List<SolarManRecord> records = createValidSolarManRecords();
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+
+        ImportResult result = importService.importSolarManData(records);
+
+        ImportProfile profile = result.getProfile();
+        assertNotNull(profile);
+        assertEquals("solarman", profile.getFileType());
+        assertEquals(records.size(), profile.getRows());
+        assertEquals(records.size(), profile.getBatches());
+        List<String> stages = profile.getStages().stream().map(StageTiming::getStage).toList();
+        assertTrue(stages.containsAll(List.of("connect", "bind", "execute")));
+        // Binding is timed across the batch and recorded once, not per row
+        assertEquals(1, profile.getStages().stream().filter(stage -> stage.getStage().equals("bind")).findFirst().orElseThrow().getCalls());
+        assertEquals(List.of(profile), profiler.getHistory());
+        assertNull(ImportProfiler.current());
+    }
+
     @Test
     void testErrorLogging_GetLogsCopy() throws SQLException {
         // Create test data and generate error
@@ -455,6 +768,15 @@ class ImportServiceTest {
 
     // ==================== Helper Methods ====================
 
+    @SuppressWarnings("unchecked")
+    private Map<LocalDate, String> captureSavedChecksums(String fileType) {
+        ArgumentCaptor<Collection<DayChecksum>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(importLedger).saveDayChecksums(eq(fileType), captor.capture());
+        Map<LocalDate, String> checksums = new HashMap<>();
+        captor.getValue().forEach(day -> checksums.put(day.getDay(), day.getChecksum()));
+        return checksums;
+    }
+
     private List<SolarManRecord> createValidSolarManRecords() {
         List<SolarManRecord> records = new ArrayList<>();
 
@@ -0,0 +1,138 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.SolarManRecord;
+import com.loots.solarmanui.model.TshwaneRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportSpoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImportSpool importSpool;
+    private final List<SolarManRecord> replayedSolarMan = new ArrayList<>();
+    private final List<TshwaneRecord> replayedTshwane = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        importSpool = new ImportSpool();
+        ReflectionTestUtils.setField(importSpool, "spoolDir", tempDir.toString());
+    }
+
+    @Test
+    void testAppend_RoundTripsBatchesInOrder() throws IOException {
+        SolarManRecord sample = solarManRecord(LocalDateTime.of(2024, 1, 15, 10, 0, 30));
+        sample.setFeedIn(null);
+        TshwaneRecord reading = new TshwaneRecord();
+        reading.setReadingDate(LocalDateTime.of(2024, 2, 1, 0, 0));
+        reading.setCumulativeElectricityUsed(1234.5);
+        reading.setReadingNotes("Nuwe meter");
+
+        assertTrue(importSpool.appendSolarMan(List.of(sample)));
+        assertTrue(importSpool.appendTshwane(List.of(reading)));
+        assertTrue(importSpool.hasPending());
+
+        List<Path> segments = importSpool.sealForReplay();
+        assertEquals(1, segments.size());
+        replay(segments.get(0));
+
+        assertEquals(1, replayedSolarMan.size());
+        SolarManRecord replayed = replayedSolarMan.get(0);
+        assertEquals(sample.getUpdated(), replayed.getUpdated());
+        assertEquals(5.5, replayed.getProductionPower());
+        assertNull(replayed.getFeedIn());
+        assertEquals(1, replayedTshwane.size());
+        assertEquals("Nuwe meter", replayedTshwane.get(0).getReadingNotes());
+        assertEquals(1234.5, replayedTshwane.get(0).getCumulativeElectricityUsed());
+
+        importSpool.delete(segments.get(0));
+        assertFalse(importSpool.hasPending());
+    }
+
+    @Test
+    void testReplay_StopsAtTornFrame() throws IOException {
+        importSpool.appendSolarMan(List.of(solarManRecord(LocalDateTime.of(2024, 1, 15, 10, 0))));
+        importSpool.appendSolarMan(List.of(solarManRecord(LocalDateTime.of(2024, 1, 15, 11, 0))));
+        Path segment = importSpool.sealForReplay().get(0);
+
+        // A crash part-way through the second frame
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(segment) - 5);
+        }
+        replay(segment);
+
+        assertEquals(1, replayedSolarMan.size());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 0), replayedSolarMan.get(0).getUpdated());
+    }
+
+    @Test
+    void testSealForReplay_LeavesRecentSegmentOfAnotherHost() throws IOException {
+        Files.write(tempDir.resolve("other.spool"), new byte[]{1, 2, 3});
+
+        assertTrue(importSpool.sealForReplay().isEmpty());
+        assertTrue(Files.exists(tempDir.resolve("other.spool")));
+    }
+
+    @Test
+    void testAppend_StartsNewSegmentAfterAnotherHostSealedItsSegment() throws IOException {
+        ReflectionTestUtils.setField(importSpool, "host", "first");
+        ImportSpool otherHost = new ImportSpool();
+        ReflectionTestUtils.setField(otherHost, "spoolDir", tempDir.toString());
+        ReflectionTestUtils.setField(otherHost, "host", "second");
+
+        assertTrue(importSpool.appendSolarMan(List.of(solarManRecord(LocalDateTime.of(2024, 1, 15, 10, 0)))));
+        // The first host looks silent, so the other one seals its segment, replays it and deletes it
+        Files.setLastModifiedTime(tempDir.resolve("first.spool"), FileTime.fromMillis(0));
+        List<Path> sealed = otherHost.sealForReplay();
+        assertEquals(1, sealed.size());
+        replay(sealed.get(0));
+        otherHost.delete(sealed.get(0));
+
+        assertTrue(importSpool.appendSolarMan(List.of(solarManRecord(LocalDateTime.of(2024, 1, 15, 11, 0)))));
+        for (Path segment : importSpool.sealForReplay()) {
+            replay(segment);
+        }
+
+        assertEquals(2, replayedSolarMan.size());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 11, 0), replayedSolarMan.get(1).getUpdated());
+    }
+
+    // ==================== Helper Methods ====================
+
+    private void replay(Path segment) throws IOException {
+        importSpool.replay(segment, new ImportSpool.BatchHandler() {
+            @Override
+            public void solarMan(List<SolarManRecord> records) {
+                replayedSolarMan.addAll(records);
+            }
+
+            @Override
+            public void tshwane(List<TshwaneRecord> records) {
+                replayedTshwane.addAll(records);
+            }
+        });
+    }
+
+    private SolarManRecord solarManRecord(LocalDateTime updated) {
+        SolarManRecord record = new SolarManRecord();
+        record.setUpdated(updated);
+        record.setProductionPower(5.5);
+        record.setSoc(85.0);
+        return record;
+    }
+}
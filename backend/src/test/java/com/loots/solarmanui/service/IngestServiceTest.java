@@ -0,0 +1,172 @@
+package com.loots.solarmanui.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loots.solarmanui.model.ImportResult;
+import com.loots.solarmanui.model.SolarManRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class IngestServiceTest {
+
+    private ImportService importService;
+    private IngestService ingestService;
+
+    @BeforeEach
+    void setUp() {
+        importService = mock(ImportService.class);
+        when(importService.upsertSolarManBatch(anyList())).thenAnswer(invocation -> {
+            List<SolarManRecord> batch = invocation.getArgument(0);
+            ImportResult result = new ImportResult();
+            result.setRecordsInserted(batch.size());
+            return result;
+        });
+
+        ingestService = new IngestService();
+        ReflectionTestUtils.setField(ingestService, "importService", importService);
+        ReflectionTestUtils.setField(ingestService, "solarManJsonReader", new SolarManJsonReader());
+        ReflectionTestUtils.setField(ingestService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(ingestService, "batchSize", 2);
+    }
+
+    @Test
+    void testIngestSolarMan_FlushesBySizeAndAtEndOfStream() throws IOException {
+        String samples = sample("10:00:00") + sample("10:00:05") + sample("10:00:10");
+        ByteArrayOutputStream acks = new ByteArrayOutputStream();
+
+        long accepted = ingestService.ingestSolarMan(stream(samples), acks);
+
+        assertEquals(3, accepted);
+        ArgumentCaptor<List<SolarManRecord>> batches = captureBatches(2);
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals(1, batches.getAllValues().get(1).size());
+
+        String[] lines = acks.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"batch\":1") && lines[0].contains("\"recordsWritten\":2"));
+        assertTrue(lines[1].contains("\"batch\":2") && lines[1].contains("\"recordsWritten\":1"));
+    }
+
+    @Test
+    void testIngestSolarMan_RejectedSampleDoesNotEndStream() throws IOException {
+        String samples = "{\"Updated\":\"yesterday\"}\n" + sample("10:00:00");
+        ByteArrayOutputStream acks = new ByteArrayOutputStream();
+
+        long accepted = ingestService.ingestSolarMan(stream(samples), acks);
+
+        assertEquals(1, accepted);
+        String[] lines = acks.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("Invalid date format: yesterday"));
+        assertTrue(lines[1].contains("\"recordsWritten\":1"));
+    }
+
+    @Test
+    void testIngestSolarMan_FlushesOnDeadlineWhileStreamIsIdle() throws Exception {
+        ReflectionTestUtils.setField(ingestService, "batchSize", 1000);
+        ReflectionTestUtils.setField(ingestService, "maxLatency", Duration.ofMillis(50));
+        PipedOutputStream logger = new PipedOutputStream();
+        PipedInputStream samples = new PipedInputStream(logger);
+        ByteArrayOutputStream acks = new ByteArrayOutputStream();
+
+        Thread reader = new Thread(() -> {
+            try {
+                ingestService.ingestSolarMan(samples, acks);
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        reader.start();
+        logger.write(sample("10:00:00").getBytes(StandardCharsets.UTF_8));
+        logger.flush();
+
+        // The stream stays open, so only the deadline can flush the sample
+        verify(importService, timeout(2000)).upsertSolarManBatch(anyList());
+
+        logger.close();
+        reader.join(2000);
+        assertFalse(reader.isAlive());
+    }
+
+    @Test
+    void testIngestSolarMan_SlowDeadlineFlushDoesNotDelayOtherStreams() throws Exception {
+        ReflectionTestUtils.setField(ingestService, "batchSize", 1000);
+        ReflectionTestUtils.setField(ingestService, "maxLatency", Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherWritten = new CountDownLatch(1);
+        when(importService.upsertSolarManBatch(anyList())).thenAnswer(invocation -> {
+            List<SolarManRecord> batch = invocation.getArgument(0);
+            if (batch.get(0).getUpdated().getHour() == 10) {
+                release.await(5, TimeUnit.SECONDS);
+            } else {
+                otherWritten.countDown();
+            }
+            return new ImportResult();
+        });
+
+        PipedOutputStream slowLogger = new PipedOutputStream();
+        PipedOutputStream otherLogger = new PipedOutputStream();
+        Thread slow = reader(new PipedInputStream(slowLogger));
+        Thread other = reader(new PipedInputStream(otherLogger));
+        slowLogger.write(sample("10:00:00").getBytes(StandardCharsets.UTF_8));
+        slowLogger.flush();
+        verify(importService, timeout(2000)).upsertSolarManBatch(anyList());
+
+        // The first stream's write is stuck in the database; the second still meets its deadline
+        otherLogger.write(sample("11:00:00").getBytes(StandardCharsets.UTF_8));
+        otherLogger.flush();
+        assertTrue(otherWritten.await(2, TimeUnit.SECONDS));
+
+        release.countDown();
+        slowLogger.close();
+        otherLogger.close();
+        slow.join(2000);
+        other.join(2000);
+        assertFalse(slow.isAlive() || other.isAlive());
+    }
+
+    // ==================== Helper Methods ====================
+
+    @SuppressWarnings("unchecked")
+    private ArgumentCaptor<List<SolarManRecord>> captureBatches(int times) {
+        ArgumentCaptor<List<SolarManRecord>> captor = ArgumentCaptor.forClass(List.class);
+        verify(importService, times(times)).upsertSolarManBatch(captor.capture());
+        return captor;
+    }
+
+    private Thread reader(PipedInputStream samples) {
+        Thread reader = new Thread(() -> {
+            try {
+                ingestService.ingestSolarMan(samples, new ByteArrayOutputStream());
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        reader.start();
+        return reader;
+    }
+
+    private static String sample(String time) {
+        return "{\"updated\":\"2024-01-15T" + time + "\",\"productionPower\":1.5,\"soc\":80}\n";
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,74 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.SolarManRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InverterFormatRegistryTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final String[] SOLARMAN_HEADERS = {"Plant", "Updated", "Time", "Production Power(W)",
+            "Consumption Power(W)", "Grid Power(W)", "Purchasing Power(W)", "Feed-in Power(W)",
+            "Battery Power(W)", "Charging Power(W)", "Discharging Power(W)", "SoC(%)"};
+
+    @Test
+    void testDetect_SolarManHeaders() {
+        InverterFormat.RowMapper mapper = InverterFormatRegistry.defaults().detect(SOLARMAN_HEADERS);
+
+        assertNotNull(mapper);
+        SolarManRecord record = mapper.map(new String[]{"Home", "2024/01/15 10:30", "10:30", "5.5", "3.2", "2.3",
+                "0.5", "1.8", "4", "1.5", "0", "85.5"}, CUTOFF);
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30), record.getUpdated());
+        assertEquals(5.5, record.getProductionPower());
+        assertEquals(85.5, record.getSoc());
+    }
+
+    @Test
+    void testDetect_UnknownHeaders() {
+        assertNull(InverterFormatRegistry.defaults().detect(new String[]{"Date", "Yield", "Load"}));
+    }
+
+    @Test
+    void testDetect_PicksRegisteredVendorFormat() {
+        InverterFormat vendor = new InverterFormat() {
+            @Override
+            public String getName() {
+                return "vendor";
+            }
+
+            @Override
+            public Set<String> getSignature() {
+                return Set.of("timestamp", "pv", "load");
+            }
+
+            @Override
+            public RowMapper compile(String[] headers) {
+                return (cells, notBefore) -> {
+                    SolarManRecord record = new SolarManRecord();
+                    record.setUpdated(LocalDateTime.parse(cells[0]));
+                    record.setProductionPower(Double.parseDouble(cells[1]));
+                    return record;
+                };
+            }
+        };
+        InverterFormatRegistry registry = new InverterFormatRegistry(List.of(new SolarManFormat(), vendor));
+
+        InverterFormat.RowMapper mapper = registry.detect(new String[]{"Timestamp", "PV [kW]", "Load [kW]"});
+
+        assertNotNull(mapper);
+        assertEquals(2.5, mapper.map(new String[]{"2024-01-15T10:30", "2.5", "1"}, CUTOFF).getProductionPower());
+        assertNotNull(registry.detect(SOLARMAN_HEADERS));
+    }
+
+    @Test
+    void testHeaderKey() {
+        assertEquals("feed-in", InverterFormatRegistry.headerKey(" Feed-in Power(W)"));
+        assertEquals("soc", InverterFormatRegistry.headerKey("SoC(%)"));
+        assertEquals("", InverterFormatRegistry.headerKey(null));
+    }
+}
@@ -0,0 +1,70 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.UploadSession;
+import com.loots.solarmanui.model.UploadedFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JdbcUploadRegistryTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @InjectMocks
+    private JdbcUploadRegistry registry;
+
+    @Test
+    void testSave_KeepsUploadLocallyWhileDatabaseIsDownAndWritesItOnFlush() throws SQLException {
+        UploadedFile upload = new UploadedFile("0f8fad5b-d9cb-469f-a165-70867728950e", "/uploads/a.xlsx", "solarman", 10, 100, "abc");
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+
+        registry.save(upload);
+
+        assertSame(upload, registry.find(upload.getFileId()));
+        assertSame(upload, registry.findByHash("abc", "solarman"));
+        assertEquals(1, registry.findAll().size());
+
+        reset(dataSource);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        registry.flush();
+
+        verify(preparedStatement).setString(1, upload.getFileId());
+        verify(preparedStatement).executeUpdate();
+        // From now on the entry is read from the table
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        assertNull(registry.find(upload.getFileId()));
+    }
+
+    @Test
+    void testSaveSession_ReportsUnreachableDatabase() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+        UploadSession session = new UploadSession("0f8fad5b-d9cb-469f-a165-70867728950e", "a.xlsx", "solarman", 100, "/uploads/a.part");
+
+        assertThrows(DataAccessResourceFailureException.class, () -> registry.saveSession(session));
+    }
+}
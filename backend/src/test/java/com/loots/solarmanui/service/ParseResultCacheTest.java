@@ -0,0 +1,52 @@
+package com.loots.solarmanui.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseResultCacheTest {
+
+    private ParseResultCache parseResultCache;
+
+    @BeforeEach
+    void setUp() {
+        parseResultCache = new ParseResultCache();
+        ReflectionTestUtils.setField(parseResultCache, "maxRecords", 10);
+    }
+
+    @Test
+    void testGet_ReturnsResultForSameHashAndType() {
+        parseResultCache.put("solarman", "abc", List.of("a", "b"));
+
+        List<String> cached = parseResultCache.get("solarman", "abc");
+
+        assertEquals(List.of("a", "b"), cached);
+        assertNull(parseResultCache.get("tshwane", "abc"));
+        assertNull(parseResultCache.get("solarman", null));
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsedBeyondRecordBudget() {
+        parseResultCache.put("solarman", "first", Collections.nCopies(4, "x"));
+        parseResultCache.put("solarman", "second", Collections.nCopies(4, "x"));
+        parseResultCache.get("solarman", "first");
+
+        parseResultCache.put("solarman", "third", Collections.nCopies(4, "x"));
+
+        assertNotNull(parseResultCache.get("solarman", "first"));
+        assertNull(parseResultCache.get("solarman", "second"));
+        assertEquals(2, parseResultCache.size());
+    }
+
+    @Test
+    void testPut_SkipsResultLargerThanBudget() {
+        parseResultCache.put("solarman", "huge", Collections.nCopies(11, "x"));
+
+        assertNull(parseResultCache.get("solarman", "huge"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.SolarManRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolarManCsvReaderTest {
+
+    private static final String HEADER = "Plant,Updated,Time,Production Power(W),Consumption Power(W),Grid Power(W),"
+            + "Purchasing Power(W),Feed-in Power(W),Battery Power(W),Charging Power(W),Discharging Power(W),SoC(%)\n";
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Test
+    void testRead_ParsesRowsLikeWorkbookParser() throws IOException {
+        String csv = HEADER
+                + "Home,2024/01/15 10:30,10:30,5.5,3.2,-2.3,0.5,1.8,4,1.5,,85.5\n"
+                + "Home,2019/12/31 23:55,23:55,1,1,1,1,1,1,1,1,1\n"
+                + "Home,,00:00,1,1,1,1,1,1,1,1,1\n"
+                + "Home,01/16/2024 11:00:42,11:00,1.25e3,3,0.1,0.2,0.3,0.4,0.5,0.6,99\n";
+
+        List<SolarManRecord> records = read(csv);
+
+        assertEquals(2, records.size());
+        SolarManRecord first = records.get(0);
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30), first.getUpdated());
+        assertEquals(5.5, first.getProductionPower());
+        assertEquals(-2.3, first.getGridPower());
+        assertEquals(4.0, first.getBatteryPower());
+        assertEquals(0.0, first.getDischargePower());
+        assertEquals(85.5, first.getSoc());
+
+        SolarManRecord second = records.get(1);
+        assertEquals(LocalDateTime.of(2024, 1, 16, 11, 0), second.getUpdated());
+        assertEquals(1250.0, second.getProductionPower());
+        assertEquals(0.1, second.getGridPower());
+        assertNull(first.getParseError());
+    }
+
+    @Test
+    void testRead_UnreadableNumberIsReportedNotReadAsZero() throws IOException {
+        String csv = HEADER + "Home,2024/01/16 11:00,11:00,1,n/a,0.1,0.2,0.3,0.4,0.5,0.6,99\n";
+
+        List<SolarManRecord> records = read(csv);
+
+        assertEquals(1, records.size());
+        assertNull(records.get(0).getConsumePower());
+        assertEquals("Unreadable number 'n/a' in column 5", records.get(0).getParseError());
+    }
+
+    @Test
+    void testRead_SemicolonFileWithDecimalCommas() throws IOException {
+        String csv = HEADER.replace(',', ';')
+                + "Home;2024/02/01 08:00;08:00;1,5;-2,25;0;0,1;3;4;5;6;85,5\n";
+
+        List<SolarManRecord> records = read(csv);
+
+        assertEquals(1, records.size());
+        SolarManRecord record = records.get(0);
+        assertNull(record.getParseError());
+        assertEquals(1.5, record.getProductionPower());
+        assertEquals(-2.25, record.getConsumePower());
+        assertEquals(0.1, record.getPurchasePower());
+        assertEquals(85.5, record.getSoc());
+    }
+
+    @Test
+    void testRead_HandlesBomQuotesCrlfAndSemicolons() throws IOException {
+        String csv = "\uFEFF" + HEADER.replace(',', ';').replace("\n", "\r\n")
+                + "\"Home; \"\"roof\"\"\";\"2024/02/01 08:00\";08:00;1;2;3;4;5;6;7;8;\"50\"\r\n"
+                + "\r\n"
+                + "\"Multi\nline\";2024/02/01 08:05;08:05;1;2;3;4;5;6;7;8;51";
+
+        List<SolarManRecord> records = read(csv);
+
+        assertEquals(2, records.size());
+        assertEquals(LocalDateTime.of(2024, 2, 1, 8, 0), records.get(0).getUpdated());
+        assertEquals(50.0, records.get(0).getSoc());
+        assertEquals(LocalDateTime.of(2024, 2, 1, 8, 5), records.get(1).getUpdated());
+        assertEquals(51.0, records.get(1).getSoc());
+    }
+
+    @Test
+    void testRead_MapsColumnsByHeaderName() throws IOException {
+        String csv = "SoC(%),Grid Power(W),Updated,Production Power(W),Consumption Power(W),Purchasing Power(W),"
+                + "Feed-in Power(W),Battery Power(W),Charging Power(W),Discharging Power(W),Plant,Serial\n"
+                + "85.5,-2.3,2024/01/15 10:30,5.5,3.2,0.5,1.8,4,1.5,0,Home,SN-1\n";
+
+        List<SolarManRecord> records = read(csv);
+
+        assertEquals(1, records.size());
+        SolarManRecord record = records.get(0);
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30), record.getUpdated());
+        assertEquals(85.5, record.getSoc());
+        assertEquals(-2.3, record.getGridPower());
+        assertEquals(5.5, record.getProductionPower());
+        assertEquals(1.5, record.getChargePower());
+    }
+
+    @Test
+    void testRead_RejectsUnexpectedHeader() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> read("Date,Value\n2024/01/15 10:30,1\n"));
+
+        assertTrue(exception.getMessage().contains("Invalid SolarMan CSV format"));
+    }
+
+    @Test
+    void testRead_RowsSpanningBufferRefills(@TempDir Path tempDir) throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER);
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 0, 0);
+        int rows = 40_000;
+        for (int i = 0; i < rows; i++) {
+            LocalDateTime time = start.plusMinutes(5L * i);
+            csv.append(String.format("Home,%d/%02d/%02d %02d:%02d,,%d.%d,0,0,0,0,0,0,0,%d%n", time.getYear(),
+                    time.getMonthValue(), time.getDayOfMonth(), time.getHour(), time.getMinute(), i, i % 10, i % 100));
+        }
+        Path path = tempDir.resolve("export.csv");
+        Files.writeString(path, csv);
+
+        List<SolarManRecord> records = SolarManCsvReader.read(path, CUTOFF);
+
+        assertEquals(rows, records.size());
+        SolarManRecord last = records.get(rows - 1);
+        assertEquals(start.plusMinutes(5L * (rows - 1)), last.getUpdated());
+        assertEquals(Double.parseDouble((rows - 1) + "." + ((rows - 1) % 10)), last.getProductionPower());
+    }
+
+    // ==================== Helper Methods ====================
+
+    private List<SolarManRecord> read(String csv) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+        return SolarManCsvReader.read(Channels.newChannel(in), CUTOFF);
+    }
+}
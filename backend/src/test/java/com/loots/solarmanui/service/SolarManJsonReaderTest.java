@@ -0,0 +1,84 @@
+package com.loots.solarmanui.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.loots.solarmanui.model.SolarManRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolarManJsonReaderTest {
+
+    private final SolarManJsonReader reader = new SolarManJsonReader();
+
+    @Test
+    void testReadRecords_MapsDisplayAndCamelCaseNames() throws IOException {
+        String json = "[{\"Updated\":\"2024-01-15T10:00:30\",\"Production Power\":5.5,\"SoC\":\"85.5\",\"Plant\":\"x\"}," +
+                "{\"updated\":\"2024-01-15T11:00\",\"consumePower\":3,\"feedIn\":null,\"extra\":{\"nested\":[1,2]}}]";
+
+        List<SolarManRecord> records = readAll(json, 100);
+
+        assertEquals(2, records.size());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 0, 30), records.get(0).getUpdated());
+        assertEquals(5.5, records.get(0).getProductionPower());
+        assertEquals(85.5, records.get(0).getSoc());
+        assertEquals(0.0, records.get(0).getGridPower());
+        // Seconds are optional
+        assertEquals(LocalDateTime.of(2024, 1, 15, 11, 0), records.get(1).getUpdated());
+        assertEquals(3.0, records.get(1).getConsumePower());
+        assertEquals(0.0, records.get(1).getFeedIn());
+    }
+
+    @Test
+    void testReadRecords_ClosesBatchesOnlyAtDayBoundary() throws IOException {
+        String json = "[{\"Updated\":\"2024-01-15T10:00\"},{\"Updated\":\"2024-01-15T11:00\"}," +
+                "{\"Updated\":\"2024-01-15T12:00\"},{\"Updated\":\"2024-01-16T00:00\"}]";
+        List<Integer> batchSizes = new ArrayList<>();
+
+        try (JsonParser parser = parserAtArray(json)) {
+            int count = reader.readRecords(parser, 2, batch -> batchSizes.add(batch.size()));
+            assertEquals(4, count);
+        }
+
+        assertEquals(List.of(3, 1), batchSizes);
+    }
+
+    @Test
+    void testReadRecords_RejectsMissingTimestamp() throws IOException {
+        try (JsonParser parser = parserAtArray("[{\"Production Power\":1.0}]")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> reader.readRecords(parser, 10, batch -> { }));
+            assertEquals("Missing or empty 'Updated' field in record", e.getMessage());
+        }
+    }
+
+    @Test
+    void testReadRecords_RejectsInvalidTimestamp() throws IOException {
+        try (JsonParser parser = parserAtArray("[{\"Updated\":\"15/01/2024 10:00\"}]")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> reader.readRecords(parser, 10, batch -> { }));
+            assertTrue(e.getMessage().startsWith("Invalid date format: 15/01/2024 10:00"));
+        }
+    }
+
+    // ==================== Helper Methods ====================
+
+    private List<SolarManRecord> readAll(String json, int batchSize) throws IOException {
+        List<SolarManRecord> records = new ArrayList<>();
+        try (JsonParser parser = parserAtArray(json)) {
+            reader.readRecords(parser, batchSize, records::addAll);
+        }
+        return records;
+    }
+
+    private JsonParser parserAtArray(String json) throws IOException {
+        JsonParser parser = new JsonFactory().createParser(json);
+        parser.nextToken();
+        return parser;
+    }
+}
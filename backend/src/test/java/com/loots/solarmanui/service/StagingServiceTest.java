@@ -0,0 +1,85 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.SolarManRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StagingServiceTest {
+
+    private static final String FILE_ID = "0f8fad5b-d9cb-469f-a165-70867728950e";
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private ImportService importService;
+
+    @Mock
+    private UploadStore uploadStore;
+
+    @InjectMocks
+    private StagingService stagingService;
+
+    @AfterEach
+    void tearDown() {
+        stagingService.shutdown();
+    }
+
+    @Test
+    void testStageSolarMan_SkipsFilesBelowMinimumRows() {
+        stagingService.stageSolarMan(FILE_ID, List.of(record()));
+
+        assertFalse(stagingService.isStaged(FILE_ID));
+        assertNull(stagingService.mergeSolarMan(FILE_ID));
+    }
+
+    @Test
+    void testMergeSolarMan_CancelsStagingThatOutlastsTheWait() throws Exception {
+        ReflectionTestUtils.setField(stagingService, "minRows", 1);
+        ReflectionTestUtils.setField(stagingService, "maxWait", Duration.ofMillis(50));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        when(dataSource.getConnection()).thenAnswer(invocation -> {
+            loading.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                cancelled.countDown();
+            }
+            throw new SQLException("Staging cancelled");
+        }).thenThrow(new SQLException("Connection refused"));
+
+        stagingService.stageSolarMan(FILE_ID, List.of(record()));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        assertNull(stagingService.mergeSolarMan(FILE_ID));
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        assertFalse(stagingService.isStaged(FILE_ID));
+        verify(importService, never()).mergeStagedSolarMan(any(), any());
+    }
+
+    private static SolarManRecord record() {
+        SolarManRecord record = new SolarManRecord();
+        record.setUpdated(LocalDateTime.of(2024, 1, 15, 10, 0));
+        record.setProductionPower(1.0);
+        return record;
+    }
+}
@@ -0,0 +1,238 @@
+package com.loots.solarmanui.service;
+
+import com.loots.solarmanui.model.StoredUpload;
+import com.loots.solarmanui.model.UploadStoreStats;
+import com.loots.solarmanui.model.UploadedFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UploadStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private UploadStore uploadStore;
+
+    @BeforeEach
+    void setUp() {
+        uploadStore = new UploadStore();
+        ReflectionTestUtils.setField(uploadStore, "uploadDir", tempDir.toString());
+        uploadStore.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Index flushes and file deletes run in the background; let them finish before the temp dir goes
+        uploadStore.shutdown();
+    }
+
+    private StoredUpload storeBytes(String name, int size) throws IOException {
+        return uploadStore.store(new ByteArrayInputStream(new byte[size]), name);
+    }
+
+    @Test
+    void testStore_WritesFileAndComputesHash() throws IOException {
+        byte[] content = "abc".getBytes(StandardCharsets.UTF_8);
+
+        StoredUpload stored = uploadStore.store(new ByteArrayInputStream(content), "export.xlsx");
+
+        assertEquals(3, stored.getSize());
+        // SHA-256("abc")
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", stored.getSha256());
+        assertArrayEquals(content, Files.readAllBytes(stored.getPath()));
+        assertTrue(stored.getPath().getFileName().toString().startsWith(stored.getFileId() + "_"));
+    }
+
+    @Test
+    void testStore_RejectsFileOverLimitAndRemovesPartialFile() throws IOException {
+        ReflectionTestUtils.setField(uploadStore, "maxFileSize", DataSize.ofBytes(10));
+
+        assertThrows(MaxUploadSizeExceededException.class, () ->
+                uploadStore.store(new ByteArrayInputStream(new byte[11]), "big.xlsx"));
+
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.filter(f -> !f.getFileName().toString().startsWith(FileUploadRegistry.INDEX_FILE)).count());
+        }
+    }
+
+    @Test
+    void testGet_TracksHitsAndMisses() throws IOException {
+        StoredUpload stored = storeBytes("a.xlsx", 10);
+        uploadStore.register(stored, "solarman", 5);
+
+        UploadedFile found = uploadStore.get(stored.getFileId());
+        assertNotNull(found);
+        assertEquals("solarman", found.getFileType());
+        assertEquals(5, found.getTotalRecords());
+        assertNull(uploadStore.get("unknown"));
+
+        UploadStoreStats stats = uploadStore.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getFiles());
+        assertEquals(10, stats.getTotalBytes());
+    }
+
+    @Test
+    void testFindByHash_MatchesContentAndType() throws IOException {
+        StoredUpload stored = storeBytes("a.xlsx", 10);
+        uploadStore.register(stored, "solarman", 5);
+
+        UploadedFile found = uploadStore.findByHash(stored.getSha256(), "solarman");
+        assertNotNull(found);
+        assertEquals(stored.getFileId(), found.getFileId());
+        assertNull(uploadStore.findByHash(stored.getSha256(), "tshwane"));
+        assertNull(uploadStore.findByHash("0000", "solarman"));
+    }
+
+    @Test
+    void testIndex_SurvivesRestart() throws IOException {
+        StoredUpload stored = storeBytes("a.xlsx", 10);
+        uploadStore.register(stored, "tshwane", 3);
+        uploadStore.shutdown();
+
+        UploadStore restarted = new UploadStore();
+        ReflectionTestUtils.setField(restarted, "uploadDir", tempDir.toString());
+        restarted.init();
+
+        UploadedFile found = restarted.get(stored.getFileId());
+        assertNotNull(found);
+        assertEquals("tshwane", found.getFileType());
+        assertEquals(stored.getSha256(), found.getSha256());
+    }
+
+    @Test
+    void testInit_RemovesOrphanedFiles() throws IOException {
+        Path orphan = Files.write(tempDir.resolve("stale_upload.xlsx"), new byte[]{1});
+
+        UploadStore restarted = new UploadStore();
+        ReflectionTestUtils.setField(restarted, "uploadDir", tempDir.toString());
+        restarted.init();
+
+        assertFalse(Files.exists(orphan));
+    }
+
+    @Test
+    void testInit_SharedRegistryOnlyRemovesOrphansOlderThanTtl() throws IOException {
+        Path recent = Files.write(tempDir.resolve("other_replica.xlsx"), new byte[]{1});
+        Path stale = Files.write(tempDir.resolve("stale_upload.xlsx"), new byte[]{1});
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis()));
+
+        UploadRegistry sharedRegistry = mock(UploadRegistry.class);
+        when(sharedRegistry.isShared()).thenReturn(true);
+        when(sharedRegistry.findAll()).thenReturn(List.of());
+
+        UploadStore replica = new UploadStore();
+        ReflectionTestUtils.setField(replica, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(replica, "registry", sharedRegistry);
+        replica.init();
+
+        // Another replica may still be registering the recent file
+        assertTrue(Files.exists(recent));
+        assertFalse(Files.exists(stale));
+    }
+
+    @Test
+    void testRegister_EvictsLeastRecentlyUsedWhenOverFileQuota() throws IOException {
+        ReflectionTestUtils.setField(uploadStore, "maxFiles", 2);
+        StoredUpload first = storeBytes("1.xlsx", 10);
+        StoredUpload second = storeBytes("2.xlsx", 10);
+        uploadStore.register(first, "solarman", 1).setLastAccessed(1000);
+        uploadStore.register(second, "solarman", 1).setLastAccessed(500);
+
+        uploadStore.register(storeBytes("3.xlsx", 10), "solarman", 1);
+
+        // The second upload was touched least recently, so it goes first
+        assertNotNull(uploadStore.get(first.getFileId()));
+        assertNull(uploadStore.get(second.getFileId()));
+        assertEquals(1, uploadStore.getStats().getEvictions());
+
+        uploadStore.shutdown();
+        assertFalse(Files.exists(second.getPath()));
+    }
+
+    @Test
+    void testRegister_EvictsWhenOverSizeQuota() throws IOException {
+        ReflectionTestUtils.setField(uploadStore, "maxTotalSize", DataSize.ofBytes(25));
+        StoredUpload first = storeBytes("1.xlsx", 10);
+        uploadStore.register(first, "solarman", 1).setLastAccessed(0);
+        uploadStore.register(storeBytes("2.xlsx", 10), "solarman", 1);
+        uploadStore.register(storeBytes("3.xlsx", 10), "solarman", 1);
+
+        assertNull(uploadStore.get(first.getFileId()));
+        assertEquals(20, uploadStore.getStats().getTotalBytes());
+    }
+
+    @Test
+    void testRegister_DoesNotListRegistryWhileUnderQuota() throws IOException {
+        UploadRegistry registry = spy(new FileUploadRegistry());
+        UploadStore store = new UploadStore();
+        ReflectionTestUtils.setField(store, "uploadDir", tempDir.resolve("spied").toString());
+        ReflectionTestUtils.setField(store, "registry", registry);
+        ReflectionTestUtils.setField(store, "maxFiles", 2);
+        store.init();
+        clearInvocations(registry);
+
+        store.register(store.store(new ByteArrayInputStream(new byte[10]), "1.xlsx"), "solarman", 1);
+        store.register(store.store(new ByteArrayInputStream(new byte[10]), "2.xlsx"), "solarman", 1);
+        verify(registry, never()).findAll();
+
+        // Over the quota the registry is listed to pick what to evict
+        store.register(store.store(new ByteArrayInputStream(new byte[10]), "3.xlsx"), "solarman", 1);
+        verify(registry).findAll();
+        assertEquals(1, store.getStats().getEvictions());
+        store.shutdown();
+    }
+
+    @Test
+    void testExpireOldUploads_RemovesEntriesPastTtl() throws IOException {
+        StoredUpload stored = storeBytes("a.xlsx", 10);
+        uploadStore.register(stored, "solarman", 1).setLastAccessed(System.currentTimeMillis() - Duration.ofHours(2).toMillis());
+
+        uploadStore.expireOldUploads();
+
+        assertNull(uploadStore.get(stored.getFileId()));
+        assertFalse(Files.exists(stored.getPath()));
+        assertEquals(1, uploadStore.getStats().getExpirations());
+    }
+
+    @Test
+    void testRemovalListener_NotifiedOnRemoveAndEviction() throws IOException {
+        List<String> removed = new ArrayList<>();
+        uploadStore.addRemovalListener(removed::add);
+        ReflectionTestUtils.setField(uploadStore, "maxFiles", 1);
+        StoredUpload first = storeBytes("1.xlsx", 10);
+        StoredUpload second = storeBytes("2.xlsx", 10);
+        uploadStore.register(first, "solarman", 1).setLastAccessed(0);
+        uploadStore.register(second, "solarman", 1);
+
+        uploadStore.remove(second.getFileId());
+
+        assertEquals(List.of(first.getFileId(), second.getFileId()), removed);
+    }
+
+    @Test
+    void testSanitizeFilename_StripsDirectoryComponents() {
+        assertEquals("report.xlsx", UploadStore.sanitizeFilename("../../etc/report.xlsx"));
+        assertEquals("my_file.xlsx", UploadStore.sanitizeFilename("C:\\Users\\me\\my file.xlsx"));
+        assertEquals("upload", UploadStore.sanitizeFilename(null));
+    }
+}
@@ -0,0 +1,130 @@
+package com.loots.solarmanui.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.loots.solarmanui.model.ImportResult;
+import com.loots.solarmanui.model.SolarManRecord;
+import com.loots.solarmanui.model.WatchedFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WatchFolderServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ExcelProcessingService excelProcessingService;
+    private ImportService importService;
+    private ImportLedger importLedger;
+    private WatchFolderService watchFolderService;
+    private Path workbook;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        excelProcessingService = mock(ExcelProcessingService.class);
+        importService = mock(ImportService.class);
+        importLedger = mock(ImportLedger.class);
+        when(importService.importSolarManData(anyList())).thenReturn(new ImportResult());
+
+        // Processing is driven directly; init() would start the watcher and scheduler threads
+        watchFolderService = new WatchFolderService();
+        ReflectionTestUtils.setField(watchFolderService, "excelProcessingService", excelProcessingService);
+        ReflectionTestUtils.setField(watchFolderService, "importService", importService);
+        ReflectionTestUtils.setField(watchFolderService, "importLedger", importLedger);
+        ReflectionTestUtils.setField(watchFolderService, "importAdmission", new ImportAdmission());
+        ReflectionTestUtils.setField(watchFolderService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(watchFolderService, "watchDir", tempDir.toString());
+
+        Files.createDirectories(tempDir.resolve("solarman"));
+        workbook = tempDir.resolve("solarman").resolve("export.xlsx");
+    }
+
+    @Test
+    void testProcessFile_ImportsOnlyAppendedRows() throws IOException {
+        writeWorkbook("v1", 1000);
+        when(excelProcessingService.processSolarManFile(workbook)).thenReturn(records(3));
+        watchFolderService.processFile(workbook, "solarman");
+
+        writeWorkbook("v2", 2000);
+        when(excelProcessingService.processSolarManFile(workbook)).thenReturn(records(5));
+        watchFolderService.processFile(workbook, "solarman");
+
+        List<List<SolarManRecord>> imported = capturedImports(2);
+        assertEquals(3, imported.get(0).size());
+        assertEquals(2, imported.get(1).size());
+        assertEquals(hour(3), imported.get(1).get(0).getUpdated());
+        verify(importLedger, times(2)).recordImport(anyString(), eq("solarman"), any());
+        assertTrue(Files.exists(tempDir.resolve(WatchFolderService.STATE_FILE)));
+    }
+
+    @Test
+    void testProcessFile_SkipsUnchangedFile() throws IOException {
+        writeWorkbook("v1", 1000);
+        when(excelProcessingService.processSolarManFile(workbook)).thenReturn(records(3));
+        watchFolderService.processFile(workbook, "solarman");
+
+        // Same content, new modification time: hashed, but not parsed again
+        writeWorkbook("v1", 2000);
+        watchFolderService.processFile(workbook, "solarman");
+
+        verify(excelProcessingService, times(1)).processSolarManFile(workbook);
+    }
+
+    @Test
+    void testNewRows_ImportsEverythingWhenEarlierRowsChanged() {
+        List<SolarManRecord> first = records(3);
+        WatchedFile previous = new WatchedFile();
+        previous.setRowsImported(3);
+        previous.setLastRecord(first.get(2).getUpdated());
+
+        List<SolarManRecord> rewritten = records(5);
+        rewritten.get(2).setUpdated(hour(2).plusMinutes(30));
+
+        assertEquals(5, WatchFolderService.newRows(rewritten, previous, SolarManRecord::getUpdated).size());
+        assertEquals(2, WatchFolderService.newRows(records(5), previous, SolarManRecord::getUpdated).size());
+    }
+
+    // ==================== Helper Methods ====================
+
+    @SuppressWarnings("unchecked")
+    private List<List<SolarManRecord>> capturedImports(int times) {
+        ArgumentCaptor<List<SolarManRecord>> captor = ArgumentCaptor.forClass(List.class);
+        verify(importService, times(times)).importSolarManData(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private void writeWorkbook(String content, long lastModified) throws IOException {
+        Files.writeString(workbook, content);
+        Files.setLastModifiedTime(workbook, FileTime.fromMillis(lastModified));
+    }
+
+    private List<SolarManRecord> records(int count) {
+        List<SolarManRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            SolarManRecord record = new SolarManRecord();
+            record.setUpdated(hour(i));
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static LocalDateTime hour(int hour) {
+        return LocalDateTime.of(2024, 1, 15, hour, 0);
+    }
+}
@@ -34,7 +34,7 @@ test.describe('Upload Page', () => {
   test('upload guidelines are displayed', async ({ page }) => {
     await page.goto('/upload');
     await expect(page.locator('text=Upload Guidelines')).toBeVisible();
-    await expect(page.locator('text=Maximum file size: 10MB')).toBeVisible();
+    await expect(page.locator('text=Maximum file size: 200MB')).toBeVisible();
     await expect(page.locator('text=Supported formats: .xlsx, .xls')).toBeVisible();
   });
 });
@@ -5,11 +5,12 @@ import { MatButtonModule } from '@angular/material/button';
 import { MatIconModule } from '@angular/material/icon';
 import { MatTableModule, MatTableDataSource } from '@angular/material/table';
 import { MatPaginatorModule, MatPaginator } from '@angular/material/paginator';
+import { MatCheckboxModule } from '@angular/material/checkbox';
 
 @Component({
   selector: 'app-data-preview',
   standalone: true,
-  imports: [MatCardModule, MatButtonModule, MatIconModule, MatTableModule, MatPaginatorModule],
+  imports: [MatCardModule, MatButtonModule, MatIconModule, MatTableModule, MatPaginatorModule, MatCheckboxModule],
   templateUrl: './data-preview.html',
   styleUrl: './data-preview.scss'
 })
@@ -22,13 +23,15 @@ export class DataPreviewComponent implements AfterViewInit {
   }
   @Input() fileType: 'solarman' | 'tshwane' | null = null;
   @Input() totalRecords: number = 0;
-  @Output() confirmImport = new EventEmitter<{data: any[], fileType: 'solarman' | 'tshwane'}>();
+  @Output() confirmImport = new EventEmitter<{data: any[], fileType: 'solarman' | 'tshwane', appendOnly?: boolean, replaceRange?: boolean}>();
   @Output() cancelImport = new EventEmitter<void>();
   @ViewChild(MatPaginator) paginator!: MatPaginator;
 
   dataSource = new MatTableDataSource<any>([]);
   displayedColumns: string[] = [];
   pageSizeOptions = [5, 10, 25, 50];
+  appendOnly = false;
+  replaceRange = false;
 
   ngOnInit(): void {
     this.setDisplayedColumns();
@@ -66,7 +69,7 @@ export class DataPreviewComponent implements AfterViewInit {
 
   onConfirmImport(): void {
     if (this.fileType) {
-      this.confirmImport.emit({ data: this.dataSource.data, fileType: this.fileType });
+      this.confirmImport.emit({ data: this.dataSource.data, fileType: this.fileType, appendOnly: this.appendOnly, replaceRange: this.replaceRange });
     }
   }
 
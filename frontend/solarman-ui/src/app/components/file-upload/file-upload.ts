@@ -33,7 +33,7 @@ export class FileUploadComponent {
       return;
     }
 
-    const validationError = this.fileUploadService.getFileValidationError(file);
+    const validationError = this.fileUploadService.getFileValidationError(file, fileType);
     if (validationError) {
       this.showError(validationError);
       this.clearFileSelection();
@@ -62,7 +62,12 @@ export class FileUploadComponent {
             totalRecords: response.totalRecords
           });
           const recordCount = response.totalRecords || response.data.length;
-          this.showSuccess(`File uploaded successfully! Found ${recordCount} records.`);
+          if (response.alreadyImported) {
+            const importedOn = response.importedAt ? new Date(response.importedAt).toLocaleString() : 'earlier';
+            this.showSuccess(`Found ${recordCount} records. This file was already imported (${importedOn}).`);
+          } else {
+            this.showSuccess(`File uploaded successfully! Found ${recordCount} records.`);
+          }
         },
         error: (error) => {
           this.isUploading = false;
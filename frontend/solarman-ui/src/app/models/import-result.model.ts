@@ -1,10 +1,43 @@
+export interface ErrorCategory {
+  category: string;
+  count: number;
+  samples: string[];
+}
+
+export interface StageTiming {
+  stage: string;
+  calls: number;
+  wallMillis: number;
+  cpuMillis: number;
+}
+
+export interface ImportProfile {
+  fileType: string;
+  mode: string;
+  startedAt: Date;
+  wallMillis: number;
+  cpuMillis: number;
+  rows: number;
+  rowsPerSecond: number;
+  batches: number;
+  bytesRead: number;
+  parseEngine?: string;
+  parseReason?: string;
+  stages: StageTiming[];
+}
+
 export interface ImportResult {
   recordsInserted: number;
   recordsUpdated: number;
+  recordsSkipped?: number;
+  daysSkipped?: number;
+  recordsSpooled?: number;
   firstRecordDate: Date;
   lastRecordDate: Date;
   errorCount: number;
   errors: string[];
+  errorCategories?: ErrorCategory[];
+  profile?: ImportProfile;
   success: boolean;
   message?: string;
 }
\ No newline at end of file
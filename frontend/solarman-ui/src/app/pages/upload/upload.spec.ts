@@ -13,7 +13,7 @@ import { vi } from 'vitest';
 describe('UploadComponent', () => {
   let component: UploadComponent;
   let fixture: ComponentFixture<UploadComponent>;
-  let mockImportService: { importData: ReturnType<typeof vi.fn>; importDataByFileId: ReturnType<typeof vi.fn> };
+  let mockImportService: { importData: ReturnType<typeof vi.fn>; importDataByFileId: ReturnType<typeof vi.fn>; discardUpload: ReturnType<typeof vi.fn> };
   let mockChartRefreshService: { triggerRefresh: ReturnType<typeof vi.fn> };
   let mockRouter: { navigate: ReturnType<typeof vi.fn> };
   let mockSnackBar: { open: ReturnType<typeof vi.fn> };
@@ -22,7 +22,8 @@ describe('UploadComponent', () => {
     // Create mock services
     mockImportService = {
       importData: vi.fn(),
-      importDataByFileId: vi.fn()
+      importDataByFileId: vi.fn(),
+      discardUpload: vi.fn().mockReturnValue(of('Upload discarded'))
     };
     mockChartRefreshService = { triggerRefresh: vi.fn() };
     mockRouter = { navigate: vi.fn() };
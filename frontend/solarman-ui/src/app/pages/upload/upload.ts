@@ -50,12 +50,16 @@ export class UploadComponent {
     this.currentView = 'preview';
   }
 
-  onImportConfirmed(event: {data: any[], fileType: 'solarman' | 'tshwane'}): void {
+  onImportConfirmed(event: {data: any[], fileType: 'solarman' | 'tshwane', appendOnly?: boolean, replaceRange?: boolean}): void {
     this.isImporting = true;
     
     // Use fileId if available, otherwise fallback to data array
     if (this.fileId) {
-      this.importService.importDataByFileId(event.fileType, this.fileId)
+      const mode = event.appendOnly ? 'append' : event.replaceRange ? 'replace_range' : undefined;
+      const request = mode
+        ? this.importService.importDataByFileId(event.fileType, this.fileId, mode)
+        : this.importService.importDataByFileId(event.fileType, this.fileId);
+      request
         .subscribe({
           next: (result) => {
             this.isImporting = false;
@@ -91,6 +95,10 @@ export class UploadComponent {
   }
 
   onImportCanceled(): void {
+    // Release the stored file and any staged rows; the upload would otherwise linger until it expires
+    if (this.fileId) {
+      this.importService.discardUpload(this.fileId).subscribe({ error: () => {} });
+    }
     this.resetToUpload();
   }
 
@@ -8,19 +8,21 @@ import { catchError, map } from 'rxjs/operators';
 })
 export class FileUploadService {
   private readonly baseUrl = '/api';
-  private readonly maxFileSize = 10 * 1024 * 1024; // 10MB
+  private readonly maxFileSize = 200 * 1024 * 1024; // 200MB
 
   constructor(private http: HttpClient) { }
 
-  uploadFile(file: File, fileType: 'solarman' | 'tshwane'): Observable<{data: any[], fileId?: string, totalRecords?: number}> {
-    if (!this.validateFile(file)) {
+  uploadFile(file: File, fileType: 'solarman' | 'tshwane'): Observable<{data: any[], fileId?: string, totalRecords?: number, alreadyImported?: boolean, importedAt?: string}> {
+    if (!this.validateFile(file, fileType)) {
       return throwError(() => new Error('Invalid file format or size'));
     }
 
     const formData = new FormData();
     formData.append('file', file);
+    // SolarMan CSV exports take the server's CSV parser
+    const format = this.isCsv(file) ? '?format=csv' : '';
 
-    return this.http.post<{previewData: any[], totalRecords: number, fileType: string, fileId?: string}>(`${this.baseUrl}/upload/${fileType}`, formData)
+    return this.http.post<{previewData: any[], totalRecords: number, fileType: string, fileId?: string, alreadyImported?: boolean, importedAt?: string}>(`${this.baseUrl}/upload/${fileType}${format}`, formData)
       .pipe(
         map(response => {
           console.log('Backend response:', response);
@@ -28,7 +30,9 @@ export class FileUploadService {
           return {
             data: response.previewData || [],
             fileId: response.fileId,
-            totalRecords: response.totalRecords
+            totalRecords: response.totalRecords,
+            alreadyImported: response.alreadyImported,
+            importedAt: response.importedAt
           };
         }),
         catchError(error => {
@@ -38,7 +42,7 @@ export class FileUploadService {
       );
   }
 
-  validateFile(file: File): boolean {
+  validateFile(file: File, fileType?: 'solarman' | 'tshwane'): boolean {
     if (!file) {
       return false;
     }
@@ -54,28 +58,42 @@ export class FileUploadService {
       'application/vnd.ms-excel' // .xls
     ];
 
+    if (fileType === 'solarman' && this.isCsv(file)) {
+      return true;
+    }
+
     return allowedTypes.includes(file.type) || 
            file.name.toLowerCase().endsWith('.xlsx') || 
            file.name.toLowerCase().endsWith('.xls');
   }
 
-  getFileValidationError(file: File): string | null {
+  isCsv(file: File): boolean {
+    return file.name.toLowerCase().endsWith('.csv');
+  }
+
+  getFileValidationError(file: File, fileType?: 'solarman' | 'tshwane'): string | null {
     if (!file) {
       return 'No file selected';
     }
 
     if (file.size > this.maxFileSize) {
-      return `File size exceeds 10MB limit. Current size: ${(file.size / (1024 * 1024)).toFixed(2)}MB`;
+      return `File size exceeds 200MB limit. Current size: ${(file.size / (1024 * 1024)).toFixed(2)}MB`;
     }
 
-    if (!this.validateFile(file)) {
-      return 'Invalid file format. Please select an Excel file (.xlsx or .xls)';
+    if (!this.validateFile(file, fileType)) {
+      return fileType === 'solarman'
+        ? 'Invalid file format. Please select an Excel file (.xlsx or .xls) or a CSV export (.csv)'
+        : 'Invalid file format. Please select an Excel file (.xlsx or .xls)';
     }
 
     return null;
   }
 
   private getErrorMessage(error: any): string {
+    if (error.status === 429 && typeof error.error === 'string') {
+      // Server is busy with other imports; the body says when to retry
+      return error.error;
+    }
     if (error.error?.message) {
       return error.error.message;
     }
@@ -22,8 +22,9 @@ export class ImportService {
       );
   }
 
-  importDataByFileId(fileType: 'solarman' | 'tshwane', fileId: string): Observable<ImportResult> {
-    return this.http.post<ImportResult>(`${this.baseUrl}/import/${fileType}`, { fileId })
+  importDataByFileId(fileType: 'solarman' | 'tshwane', fileId: string, mode?: 'upsert' | 'append' | 'replace_range'): Observable<ImportResult> {
+    const body = mode ? { fileId, mode } : { fileId };
+    return this.http.post<ImportResult>(`${this.baseUrl}/import/${fileType}`, body)
       .pipe(
         catchError(error => {
           console.error('Data import error:', error);
@@ -32,6 +33,16 @@ export class ImportService {
       );
   }
 
+  discardUpload(fileId: string): Observable<string> {
+    return this.http.delete(`${this.baseUrl}/upload/${fileId}`, { responseType: 'text' })
+      .pipe(
+        catchError(error => {
+          console.error('Discard upload error:', error);
+          return throwError(() => new Error(this.getErrorMessage(error)));
+        })
+      );
+  }
+
   getErrorLogs(): Observable<string[]> {
     return this.http.get<string[]>(`${this.baseUrl}/import/error-logs`)
       .pipe(
@@ -43,6 +54,10 @@ export class ImportService {
   }
 
   private getErrorMessage(error: any): string {
+    if (error.status === 429 && typeof error.error === 'string') {
+      // Server is busy with other imports; the body says when to retry
+      return error.error;
+    }
     if (error.error?.message) {
       return error.error.message;
     }
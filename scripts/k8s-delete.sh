@@ -22,6 +22,7 @@ kubectl delete -f k8s/frontend-deployment.yaml --ignore-not-found=true
 echo ""
 echo "🗑️  Deleting Backend..."
 kubectl delete -f k8s/backend-deployment.yaml --ignore-not-found=true
+kubectl delete -f k8s/backend-uploads-pvc.yaml --ignore-not-found=true
 
 echo ""
 echo "🗑️  Deleting PostgreSQL..."
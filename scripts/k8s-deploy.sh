@@ -66,6 +66,7 @@ kubectl wait --for=condition=ready pod -l app=postgres --timeout=120s
 # Deploy Backend
 echo ""
 echo "☕ Deploying Backend..."
+kubectl apply -f k8s/backend-uploads-pvc.yaml
 kubectl apply -f k8s/backend-deployment.yaml
 
 # Wait for Backend to be ready